@@ -0,0 +1,64 @@
+package com.timetracker.benchmark;
+
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.cache.UserExistenceCache;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.client.PeerClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.service.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of TimeTrackerService.retrieveRecords against an in-memory legacy service,
+ * on a warm cache and on a cache miss that fetches and decodes the page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RetrieveRecordsBenchmark {
+
+    @Param({"10", "100"})
+    public int recordsPerPage;
+
+    private final static int HISTORY_SIZE = 5000;
+
+    private TimeTrackerService timeTrackerService;
+
+    private int coldEmployee;
+
+    @Setup
+    public void setUp() {
+        LegacyServiceClient legacyClient = new LegacyServiceClient();
+        legacyClient.setRestTemplate(new StubLegacyService(HISTORY_SIZE).restTemplate());
+        TimeTrackerMetrics metrics = new TimeTrackerMetrics();
+        RecordsCache recordsCache = new RecordsCache();
+        ReadAheadPrefetcher prefetcher = new ReadAheadPrefetcher(false, 0, 0, 1, 1);
+        TailSyncer tailSyncer = new TailSyncer();
+        CacheFiller cacheFiller = new CacheFiller(recordsPerPage, 5, 5, 10000, recordsCache, new UserExistenceCache(), prefetcher, tailSyncer, metrics);
+        timeTrackerService = new TimeTrackerService(recordsCache, cacheFiller, prefetcher,
+                new PageRangeFetcher(), new Revalidator(), new RecordExporter(1000, legacyClient, metrics), new RecordImporter(),
+                new TeamFetcher(), new HoursSummarizer(recordsCache, cacheFiller), tailSyncer, new WriteBehindQueue(), metrics, legacyClient, new PeerClient());
+
+        // Load the whole history of the warm employee
+        timeTrackerService.retrieveRecords("warm@example.com", 0, HISTORY_SIZE, true, false);
+    }
+
+    @Benchmark
+    public List<TimeRecord> warmCache() {
+        return timeTrackerService.retrieveRecords("warm@example.com", HISTORY_SIZE / 2, recordsPerPage, true, false);
+    }
+
+    @Benchmark
+    public List<TimeRecord> coldCache() {
+        // A new employee every call, so the first page is always fetched
+        String email = "cold" + (coldEmployee++) + "@example.com";
+        return timeTrackerService.retrieveRecords(email, 0, recordsPerPage, true, false);
+    }
+}
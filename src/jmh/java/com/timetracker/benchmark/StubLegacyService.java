@@ -0,0 +1,85 @@
+package com.timetracker.benchmark;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * In-memory stand-in for the legacy "/records" API, so benchmarks measure this frontend only.
+ * Every employee has the same generated history of one 8 hour record per day.
+ */
+public class StubLegacyService implements ClientHttpRequestFactory {
+
+    private final static DateTimeFormatter legacyResponseFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'+0000'");
+
+    private final String[] startTimes;
+    private final String[] endTimes;
+
+    public StubLegacyService(int historySize) {
+        startTimes = new String[historySize];
+        endTimes = new String[historySize];
+        LocalDateTime day = LocalDateTime.of(2015, 1, 1, 9, 0);
+        for (int i = 0; i < historySize; i++) {
+            startTimes[i] = day.plusDays(i).format(legacyResponseFormatter);
+            endTimes[i] = day.plusDays(i).plusHours(8).format(legacyResponseFormatter);
+        }
+    }
+
+    /**
+     * Returns a RestTemplate answering from this stub.
+     * @return The RestTemplate.
+     */
+    public RestTemplate restTemplate() {
+        return new RestTemplate(this);
+    }
+
+    /**
+     * Encodes a range of an employee's history as the legacy service would.
+     * @param email The email of the employee.
+     * @param offset The offset of the first record.
+     * @param length The maximum number of records.
+     * @return The JSON array of records.
+     */
+    public byte[] recordsJson(String email, int offset, int length) {
+        StringBuilder json = new StringBuilder("[");
+        int end = Math.min(startTimes.length, offset + length);
+        for (int i = offset; i < end; i++) {
+            if (i > offset) {
+                json.append(',');
+            }
+            json.append("{\"start\":\"").append(startTimes[i])
+                    .append("\",\"end\":\"").append(endTimes[i])
+                    .append("\",\"email\":\"").append(email).append("\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        MockClientHttpRequest request = new MockClientHttpRequest(httpMethod, uri);
+        MockClientHttpResponse response;
+        if (httpMethod == HttpMethod.GET) {
+            MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(uri).build().getQueryParams();
+            byte[] body = recordsJson(params.getFirst("email"),
+                    Integer.parseInt(params.getFirst("offset")), Integer.parseInt(params.getFirst("length")));
+            response = new MockClientHttpResponse(body, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        } else {
+            response = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+        }
+        request.setResponse(response);
+        return request;
+    }
+}
@@ -0,0 +1,75 @@
+package com.timetracker.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.model.TimeRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding, rendering and sorting records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeRecordBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private byte[] json;
+    private LegacyServiceClient legacyClient;
+    private List<TimeRecord> records;
+
+    @Setup
+    public void setUp() throws IOException {
+        StubLegacyService legacyService = new StubLegacyService(size);
+        json = legacyService.recordsJson("employee@example.com", 0, size);
+        legacyClient = new LegacyServiceClient();
+        legacyClient.setRestTemplate(legacyService.restTemplate());
+
+        // Reversed so that sorting has work to do
+        records = new ArrayList<>(Arrays.asList(objectMapper.readValue(json, TimeRecord[].class)));
+        records.sort(Comparator.comparingLong(TimeRecord::getStartEpochMillis).reversed());
+    }
+
+    @Benchmark
+    public TimeRecord[] decodeWithDatabind() throws IOException {
+        return objectMapper.readValue(json, TimeRecord[].class);
+    }
+
+    @Benchmark
+    public int decodeWithStreamingClient(Blackhole blackhole) {
+        return legacyClient.streamRecords("employee@example.com", 0, size, blackhole::consume);
+    }
+
+    @Benchmark
+    public void renderGetters(Blackhole blackhole) {
+        for (TimeRecord record : records) {
+            blackhole.consume(record.getStartDate());
+            blackhole.consume(record.getStartTime());
+            blackhole.consume(record.getEndDate());
+            blackhole.consume(record.getEndTime());
+        }
+    }
+
+    @Benchmark
+    public List<TimeRecord> sortByStart() {
+        List<TimeRecord> copy = new ArrayList<>(records);
+        copy.sort(Comparator.comparingLong(TimeRecord::getStartEpochMillis));
+        return copy;
+    }
+}
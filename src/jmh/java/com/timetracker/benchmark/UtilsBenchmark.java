@@ -0,0 +1,36 @@
+package com.timetracker.benchmark;
+
+import com.timetracker.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting and validating legacy timestamps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilsBenchmark {
+
+    private final String start = "2023-01-01T09:00:00.000+0000";
+    private final String end = "2023-01-01T17:00:00.000+0000";
+
+    @Benchmark
+    public String toIsoTimeFormat() {
+        return Utils.toIsoTimeFormat(start);
+    }
+
+    @Benchmark
+    public boolean validateLegacyStartEndTime() {
+        return Utils.validateLegacyStartEndTime(start, end);
+    }
+
+    @Benchmark
+    public long parseLegacyEpochMillis() {
+        return Utils.parseLegacyEpochMillis(start);
+    }
+}
@@ -0,0 +1,219 @@
+package com.timetracker.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process HTTP stand-in for the legacy TimeTracker service, serving GET and POST "/records" over a real socket.
+ * Employees emp0@loadtest.example to emp{employees-1}@loadtest.example each have a generated history of historySize
+ * records, one 8 hour record per day; other emails have none. Posted records are appended to the employee's history.
+ * Every request is delayed by a log-normally distributed latency with the given median and 99th percentile,
+ * and fails with a 500 response at the given error rate.
+ */
+public class LegacyServiceStub {
+
+    private final static DateTimeFormatter legacyResponseFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'+0000'");
+    private final static DateTimeFormatter legacyRequestFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    // 99th percentile of the standard normal distribution
+    private final static double Z_99 = 2.326;
+
+    private final int employees;
+    private final double latencyMedianMs;
+    private final double latencySigma;
+    private final double errorRate;
+
+    // Generated history shared by all employees
+    private final String[] startTimes;
+    private final String[] endTimes;
+
+    // Records posted per employee, following the generated history
+    private final Map<String, List<String[]>> postedRecords = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public LegacyServiceStub(int employees, int historySize, double latencyMedianMs, double latencyP99Ms, double errorRate) {
+        this.employees = employees;
+        this.latencyMedianMs = latencyMedianMs;
+        this.latencySigma = latencyMedianMs > 0 && latencyP99Ms > latencyMedianMs ? Math.log(latencyP99Ms / latencyMedianMs) / Z_99 : 0;
+        this.errorRate = errorRate;
+
+        startTimes = new String[historySize];
+        endTimes = new String[historySize];
+        LocalDateTime day = LocalDateTime.of(2015, 1, 1, 9, 0);
+        for (int i = 0; i < historySize; i++) {
+            startTimes[i] = day.plusDays(i).format(legacyResponseFormatter);
+            endTimes[i] = day.plusDays(i).plusHours(8).format(legacyResponseFormatter);
+        }
+    }
+
+    public static String email(int employee) {
+        return "emp" + employee + "@loadtest.example";
+    }
+
+    /**
+     * Starts serving on a port, with a thread per concurrent request so that latencies overlap.
+     * @param port The port, 0 for any free port.
+     * @return The port served on.
+     */
+    public int start(int port) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "legacy-stub-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/records", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            sleepLatency();
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                respond(exchange, 500, "text/plain", "Injected error".getBytes(StandardCharsets.UTF_8));
+            } else if ("GET".equals(exchange.getRequestMethod())) {
+                MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(exchange.getRequestURI()).build().getQueryParams();
+                byte[] body = recordsJson(URLDecoder.decode(params.getFirst("email"), StandardCharsets.UTF_8),
+                        Integer.parseInt(params.getFirst("offset")), Integer.parseInt(params.getFirst("length")));
+                respond(exchange, 200, "application/json", body);
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                addRecord(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                respond(exchange, 200, "text/plain", new byte[0]);
+            } else {
+                respond(exchange, 405, "text/plain", new byte[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sleepLatency() throws InterruptedException {
+        if (latencyMedianMs <= 0) {
+            return;
+        }
+        double latencyMs = latencyMedianMs * Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        Thread.sleep((long) latencyMs, (int) ((latencyMs % 1) * 1000000));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Encodes a range of an employee's history as the legacy service would.
+     */
+    private byte[] recordsJson(String email, int offset, int length) {
+        StringBuilder json = new StringBuilder("[");
+        if (isEmployee(email)) {
+            List<String[]> posted = postedRecords.getOrDefault(email, List.of());
+            int end;
+            synchronized (posted) {
+                end = Math.min(startTimes.length + posted.size(), offset + length);
+            }
+            for (int i = offset; i < end; i++) {
+                String start;
+                String stop;
+                if (i < startTimes.length) {
+                    start = startTimes[i];
+                    stop = endTimes[i];
+                } else {
+                    synchronized (posted) {
+                        start = posted.get(i - startTimes.length)[0];
+                        stop = posted.get(i - startTimes.length)[1];
+                    }
+                }
+                json.append(i > offset ? "," : "")
+                        .append("{\"start\":\"").append(start)
+                        .append("\",\"end\":\"").append(stop)
+                        .append("\",\"email\":\"").append(email).append("\"}");
+            }
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean isEmployee(String email) {
+        if (email == null || !email.startsWith("emp") || !email.endsWith("@loadtest.example")) {
+            return false;
+        }
+        try {
+            int employee = Integer.parseInt(email.substring(3, email.indexOf('@')));
+            return employee >= 0 && employee < employees;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends a posted record, given as a form body with start and end in legacy request format.
+     */
+    private void addRecord(String form) {
+        Map<String, String> fields = new HashMap<>();
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                fields.put(pair.substring(0, separator), URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        String email = fields.get("email");
+        if (email == null || fields.get("start") == null || fields.get("end") == null) {
+            return;
+        }
+        String[] record = {
+                LocalDateTime.parse(fields.get("start"), legacyRequestFormatter).format(legacyResponseFormatter),
+                LocalDateTime.parse(fields.get("end"), legacyRequestFormatter).format(legacyResponseFormatter)};
+        List<String[]> posted = postedRecords.computeIfAbsent(email, key -> new ArrayList<>());
+        synchronized (posted) {
+            posted.add(record);
+        }
+    }
+}
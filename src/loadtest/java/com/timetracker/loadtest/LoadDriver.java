@@ -0,0 +1,238 @@
+package com.timetracker.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the frontend. Requests are started at a fixed rate whether or not earlier
+ * ones have completed, and each latency is measured from the time the request was due rather than sent,
+ * so that a stalled frontend shows up in the percentiles instead of slowing the driver down.
+ * Each request is a records page view, a "Fetch More Pages" view or a recorded time, drawn by the given mix
+ * for an employee and page drawn with the given skew: a draw u in [0, 1) picks index n * u^skew, so skew 1
+ * is uniform and larger skews concentrate load on few employees and the first pages, as real viewers do.
+ */
+public class LoadDriver {
+
+    public enum Operation {
+        PAGE("records page"),
+        FETCH_MORE("fetch more pages"),
+        RECORD("record time");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final static DateTimeFormatter isoFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private final URI target;
+    private final int employees;
+    private final int pages;
+    private final double skew;
+    private final int[] mix;
+    private final Random random;
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+
+    // Recorded times are appended after the generated histories, 15 minutes apart
+    private final AtomicLong recordedTimes = new AtomicLong();
+
+    /**
+     * @param target The base URL of the frontend.
+     * @param employees The number of employees with records.
+     * @param pages The number of pages of each employee's history.
+     * @param skew The skew of employee and page draws.
+     * @param mix The relative weights of records page views, "Fetch More Pages" views and recorded times.
+     * @param seed The seed of the draws, so that runs with the same parameters send the same requests.
+     */
+    public LoadDriver(URI target, int employees, int pages, double skew, int[] mix, long seed) {
+        this.target = target;
+        this.employees = employees;
+        this.pages = Math.max(1, pages);
+        this.skew = skew;
+        this.mix = mix;
+        this.random = new Random(seed);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "load-driver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Sends requests at a target rate for a duration and waits for the outstanding ones.
+     * @param ratePerSec The number of requests started per second.
+     * @param duration How long to start requests for.
+     * @param maxInFlight The maximum number of outstanding requests; requests due beyond it are dropped and counted.
+     * @return The results.
+     */
+    public Report run(double ratePerSec, Duration duration, int maxInFlight) {
+        Report report = new Report();
+        AtomicInteger inFlight = new AtomicInteger();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSec);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long due = start; due < end; due += intervalNanos) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = drawOperation();
+            HttpRequest request = buildRequest(operation);
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                report.dropped.incrementAndGet();
+                continue;
+            }
+
+            long dueNanos = due;
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                report.record(operation, System.nanoTime() - dueNanos, response == null ? 0 : response.statusCode());
+                inFlight.decrementAndGet();
+            });
+        }
+
+        // Waits for the outstanding requests, which time out after 30 seconds
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Operation drawOperation() {
+        int draw = random.nextInt(mix[0] + mix[1] + mix[2]);
+        return draw < mix[0] ? Operation.PAGE : draw < mix[0] + mix[1] ? Operation.FETCH_MORE : Operation.RECORD;
+    }
+
+    private int drawSkewed(int n) {
+        return Math.min(n - 1, (int) (n * Math.pow(random.nextDouble(), skew)));
+    }
+
+    private HttpRequest buildRequest(Operation operation) {
+        String email = LegacyServiceStub.email(drawSkewed(employees));
+        HttpRequest.Builder request = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+
+        if (operation == Operation.RECORD) {
+            LocalDateTime startTime = LocalDateTime.of(2040, 1, 1, 0, 0).plusMinutes(15 * recordedTimes.getAndIncrement());
+            String form = "email=" + email
+                    + "&startTime=" + startTime.format(isoFormatter)
+                    + "&endTime=" + startTime.plusMinutes(10).format(isoFormatter);
+            return request.uri(target.resolve("/record"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+        }
+
+        int page = 1 + drawSkewed(pages);
+        String query = "/records?email=" + email + "&page=" + page + (operation == Operation.FETCH_MORE ? "&fetchMorePages=true" : "");
+        return request.uri(target.resolve(query)).GET().build();
+    }
+
+    /**
+     * Latencies and response status classes per operation of a run.
+     */
+    public static class Report {
+
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+
+        // Responses per operation and status class: 0 for failed requests, 2 for 2xx up to 5 for 5xx
+        private final Map<Operation, AtomicLongArray> statusClasses = new EnumMap<>(Operation.class);
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        private long elapsedNanos;
+
+        Report() {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new ConcurrentHistogram(3));
+                statusClasses.put(operation, new AtomicLongArray(6));
+            }
+        }
+
+        private void record(Operation operation, long latencyNanos, int status) {
+            latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            statusClasses.get(operation).incrementAndGet(status / 100);
+        }
+
+        public long getCount() {
+            return latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        }
+
+        /**
+         * Prints throughput, status classes and latency percentiles per operation and in total.
+         * @param out The stream to print to.
+         */
+        public void print(PrintStream out) {
+            double elapsedSec = elapsedNanos / 1e9;
+            out.printf("%-18s %8s %9s %7s %7s %7s %7s %7s %9s %9s %9s %9s%n",
+                    "operation", "count", "req/s", "2xx", "3xx", "4xx", "5xx", "failed", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+            Histogram total = new Histogram(3);
+            long[] totalClasses = new long[6];
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = latencies.get(operation);
+                AtomicLongArray classes = statusClasses.get(operation);
+                long[] counts = new long[6];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = classes.get(i);
+                    totalClasses[i] += counts[i];
+                }
+                total.add(histogram);
+                printRow(out, operation.label, histogram, counts, elapsedSec);
+            }
+            printRow(out, "total", total, totalClasses, elapsedSec);
+            if (dropped.get() > 0) {
+                out.printf("%d requests were dropped because too many were outstanding%n", dropped.get());
+            }
+        }
+
+        private static void printRow(PrintStream out, String label, Histogram histogram, long[] counts, double elapsedSec) {
+            long count = histogram.getTotalCount();
+            out.printf("%-18s %8d %9.1f %7d %7d %7d %7d %7d %9.2f %9.2f %9.2f %9.2f%n",
+                    label, count, count / elapsedSec, counts[2], counts[3], counts[4], counts[5], counts[0],
+                    percentileMs(histogram, 50), percentileMs(histogram, 99), percentileMs(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0);
+        }
+
+        private static double percentileMs(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.timetracker.loadtest;
+
+import com.timetracker.TimetrackerFrontendApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test of the frontend against an embedded stub of the legacy service.
+ * Starts the stub and the frontend in this JVM, unless target is given, drives the frontend at a target rate
+ * for a warm-up and a measured run, and prints throughput and latency percentiles of the measured run.
+ * Parameters are passed as key=value arguments; arguments starting with "--" are passed on to the frontend,
+ * e.g. --timetracker.bulk_fetch_pages=10.
+ * Parameters and defaults:
+ *   rate=200                requests per second
+ *   duration=30             seconds measured
+ *   warmup=10               seconds of warm-up, not measured
+ *   mix=70,20,10            weights of records page views, "Fetch More Pages" views and recorded times
+ *   employees=1000          employees with records
+ *   history=1000            records per employee
+ *   skew=2                  skew of employee and page draws, 1 for uniform
+ *   latencyMedianMs=20      median latency of the legacy service stub
+ *   latencyP99Ms=200        99th percentile latency of the legacy service stub
+ *   errorRate=0             share of legacy service stub responses that are 500 errors
+ *   maxInFlight=5000        outstanding requests beyond which due requests are dropped
+ *   seed=42                 seed of the request draws
+ *   target=                 base URL of a frontend to drive instead of an embedded one; it must use the stub
+ *   recordsPerPage=10       records per page of the target frontend
+ *   stubPort=0              port of the stub, 0 for any free port
+ *   stubOnly=false          only start the stub and keep it running, for a frontend started separately
+ */
+public class LoadTest {
+
+    private final static Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rate", "200");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("mix", "70,20,10");
+        DEFAULTS.put("employees", "1000");
+        DEFAULTS.put("history", "1000");
+        DEFAULTS.put("skew", "2");
+        DEFAULTS.put("latencyMedianMs", "20");
+        DEFAULTS.put("latencyP99Ms", "200");
+        DEFAULTS.put("errorRate", "0");
+        DEFAULTS.put("maxInFlight", "5000");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("target", "");
+        DEFAULTS.put("recordsPerPage", "10");
+        DEFAULTS.put("stubPort", "0");
+        DEFAULTS.put("stubOnly", "false");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new LinkedHashMap<>(DEFAULTS);
+        List<String> frontendArgs = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--")) {
+                frontendArgs.add(arg);
+            } else if (separator > 0 && DEFAULTS.containsKey(arg.substring(0, separator))) {
+                params.put(arg.substring(0, separator), arg.substring(separator + 1));
+            } else {
+                System.err.println("Error: Unknown parameter " + arg + ", known parameters are " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+        }
+
+        int employees = Integer.parseInt(params.get("employees"));
+        int history = Integer.parseInt(params.get("history"));
+        LegacyServiceStub stub = new LegacyServiceStub(employees, history,
+                Double.parseDouble(params.get("latencyMedianMs")), Double.parseDouble(params.get("latencyP99Ms")),
+                Double.parseDouble(params.get("errorRate")));
+        int stubPort = stub.start(Integer.parseInt(params.get("stubPort")));
+        System.out.println("Legacy service stub listening on http://127.0.0.1:" + stubPort);
+
+        if (Boolean.parseBoolean(params.get("stubOnly"))) {
+            Thread.currentThread().join();
+        }
+
+        ConfigurableApplicationContext frontend = null;
+        Path storeDirectory = null;
+        URI target;
+        int recordsPerPage = Integer.parseInt(params.get("recordsPerPage"));
+        if (params.get("target").isEmpty()) {
+            storeDirectory = Files.createTempDirectory("timetracker-loadtest");
+            try {
+                frontend = startFrontend(stubPort, storeDirectory, frontendArgs);
+            } catch (RuntimeException e) {
+                stub.stop();
+                deleteStore(storeDirectory);
+                throw e;
+            }
+            target = URI.create("http://127.0.0.1:" + frontend.getEnvironment().getProperty("local.server.port"));
+            recordsPerPage = frontend.getEnvironment().getProperty("timetracker.records_per_page", Integer.class, 10);
+        } else {
+            target = URI.create(params.get("target"));
+        }
+
+        String[] weights = params.get("mix").split(",");
+        int[] mix = {Integer.parseInt(weights[0].trim()), Integer.parseInt(weights[1].trim()), Integer.parseInt(weights[2].trim())};
+        LoadDriver driver = new LoadDriver(target, employees, history / Math.max(1, recordsPerPage),
+                Double.parseDouble(params.get("skew")), mix, Long.parseLong(params.get("seed")));
+        double rate = Double.parseDouble(params.get("rate"));
+        int maxInFlight = Integer.parseInt(params.get("maxInFlight"));
+
+        try {
+            System.out.println("Driving " + target + " with " + params);
+            long warmup = Long.parseLong(params.get("warmup"));
+            if (warmup > 0) {
+                driver.run(rate, Duration.ofSeconds(warmup), maxInFlight);
+            }
+
+            long stubRequests = stub.getRequests();
+            long stubErrors = stub.getInjectedErrors();
+            LoadDriver.Report report = driver.run(rate, Duration.ofSeconds(Long.parseLong(params.get("duration"))), maxInFlight);
+
+            System.out.println();
+            report.print(System.out);
+            long legacyRequests = stub.getRequests() - stubRequests;
+            System.out.printf("legacy service requests: %d (%.3f per request), injected errors: %d%n",
+                    legacyRequests, (double) legacyRequests / Math.max(1, report.getCount()), stub.getInjectedErrors() - stubErrors);
+
+        } finally {
+            driver.close();
+            if (frontend != null) {
+                frontend.close();
+            }
+            stub.stop();
+            if (storeDirectory != null) {
+                deleteStore(storeDirectory);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startFrontend(int stubPort, Path storeDirectory, List<String> frontendArgs) {
+        // Devtools would restart the frontend in a new class loader, running this main method again
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--timetracker.legacy_service.base_url=http://127.0.0.1:" + stubPort,
+                "--timetracker.store.directory=" + storeDirectory,
+                "--timetracker.write_behind.spool_file=" + storeDirectory.resolve("write-behind-spool.jsonl")));
+        args.addAll(frontendArgs);
+        return SpringApplication.run(TimetrackerFrontendApplication.class, args.toArray(new String[0]));
+    }
+
+    private static void deleteStore(Path storeDirectory) {
+        try {
+            FileSystemUtils.deleteRecursively(storeDirectory);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+}
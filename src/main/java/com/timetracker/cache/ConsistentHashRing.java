@@ -0,0 +1,71 @@
+package com.timetracker.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring assigning keys, e.g. emails, to nodes, e.g. frontend replicas.
+ * Each node is placed on the ring at several points, its virtual nodes, and a key belongs to the node
+ * of the first point at or after the key's hash. Adding or removing a node only moves the keys of the
+ * arcs it gains or loses, about 1/n of all keys, and virtual nodes spread the keys evenly.
+ * Positions are derived from MD5 hashes, so every replica configured with the same nodes builds the same ring.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    private final List<String> nodes;
+
+    /**
+     * @param nodes The nodes, in any order.
+     * @param virtualNodes The number of points per node on the ring.
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        this.nodes = new ArrayList<>(nodes);
+        for (String node : nodes) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the node owning a key.
+     * @param key The key.
+     * @return The node, or null if the ring has no nodes.
+     */
+    public String nodeFor(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash(key));
+        return point == null ? ring.firstEntry().getValue() : point.getValue();
+    }
+
+    /**
+     * Hashes a string to a position on the ring, the first 8 bytes of its MD5 digest.
+     */
+    private static long hash(String value) {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] digest = md5.digest(value.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,136 @@
+package com.timetracker.cache;
+
+import java.util.Arrays;
+
+/**
+ * Milliseconds worked per UTC day by one employee, kept as prefix sums so that the total of any
+ * range of days, such as an ISO week or a month, is the difference of two prefix sums.
+ * The days worked are kept sorted with a Fenwick tree over their totals, so adding a record and
+ * summing a range both take O(log n) for n days worked. Records spanning midnight are split
+ * between the days they cover. Only a record on a day before the last day worked that no other
+ * record covers yet rebuilds the tree, in O(n).
+ */
+public class DailyTotals {
+
+    private final static long MILLIS_PER_DAY = 86400000L;
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    // Epoch days worked, ascending, and the milliseconds worked on each
+    private long[] days = new long[0];
+    private long[] millis = new long[0];
+
+    // Fenwick tree over millis, 1-based
+    private long[] tree = new long[1];
+
+    private int size;
+
+    /**
+     * Adds or removes the time between two instants, split by UTC day.
+     * @param startEpochMillis The start of the time worked.
+     * @param endEpochMillis The end of the time worked; nothing is added unless it is after the start.
+     * @param sign 1 to add the time, -1 to remove time added before.
+     */
+    public void add(long startEpochMillis, long endEpochMillis, int sign) {
+        long day = Math.floorDiv(startEpochMillis, MILLIS_PER_DAY);
+        long from = startEpochMillis;
+        while (from < endEpochMillis) {
+            long nextMidnight = (day + 1) * MILLIS_PER_DAY;
+            long to = Math.min(endEpochMillis, nextMidnight);
+            addToDay(day, sign * (to - from));
+            from = nextMidnight;
+            day++;
+        }
+    }
+
+    /**
+     * Returns the milliseconds worked over a range of days.
+     * @param fromDay The first epoch day, inclusive.
+     * @param toDay The last epoch day, inclusive.
+     * @return The milliseconds worked, 0 if the range is empty.
+     */
+    public long sum(long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+        return prefixSum(lowerBound(toDay + 1)) - prefixSum(lowerBound(fromDay));
+    }
+
+    /**
+     * Removes all the time worked.
+     */
+    public void clear() {
+        days = new long[0];
+        millis = new long[0];
+        tree = new long[1];
+        size = 0;
+    }
+
+    private void addToDay(long day, long delta) {
+        int index = Arrays.binarySearch(days, 0, size, day);
+        if (index >= 0) {
+            millis[index] += delta;
+            for (int i = index + 1; i <= size; i += i & -i) {
+                tree[i] += delta;
+            }
+            return;
+        }
+
+        int insertion = -index - 1;
+        ensureCapacity(size + 1);
+        if (insertion == size) {
+            // A node covers the days (i - lowbit(i), i]; the earlier ones are already in the tree
+            days[size] = day;
+            millis[size] = delta;
+            size++;
+            tree[size] = delta + prefixSum(size - 1) - prefixSum(size - (size & -size));
+            return;
+        }
+
+        System.arraycopy(days, insertion, days, insertion + 1, size - insertion);
+        System.arraycopy(millis, insertion, millis, insertion + 1, size - insertion);
+        days[insertion] = day;
+        millis[insertion] = delta;
+        size++;
+        rebuild();
+    }
+
+    /**
+     * Returns the milliseconds worked on the first count days worked.
+     */
+    private long prefixSum(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the index of the first day worked that is not before the given day.
+     */
+    private int lowerBound(long day) {
+        int index = Arrays.binarySearch(days, 0, size, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        for (int i = 1; i <= size; i++) {
+            tree[i] += millis[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > days.length) {
+            int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, days.length * 2));
+            days = Arrays.copyOf(days, newCapacity);
+            millis = Arrays.copyOf(millis, newCapacity);
+            tree = Arrays.copyOf(tree, newCapacity + 1);
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.timetracker.cache;
+
+import com.timetracker.model.TimeRecord;
+import com.timetracker.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Cached records of one employee, kept in the order they were returned by the legacy service.
+ * The index of a fetched record is its offset in the legacy "/records" API, less the null or
+ * malformed entries the legacy service returned before it. Those entries are not cached, but
+ * their offsets are, so that the next fetch starts after them.
+ * Fetched records are stored column-wise as start and end epoch milliseconds, with the email
+ * stored once and a bit per record for validity and for a missing email, and are materialized
+ * as TimeRecord objects only when a range is copied. Start and end times that are missing or
+ * malformed are materialized as null. The time worked per day by valid records, fetched or
+ * provisional, is kept up to date as records are added, and so is an index of the fetched
+ * records sorted by start time, for looking up the records of a time range by binary search.
+ * Records submitted by this frontend but not yet fetched back are kept as provisional records
+ * after the fetched ones, sorted by start time, until a fetch returns them from the legacy service.
+ * Past its write deadline the entry is stale: it is still served, but its end is checked again.
+ */
+public class EmployeeRecords {
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    private final String email;
+
+    // Start and end epoch milliseconds of the fetched records, Utils.INVALID_TIME if missing
+    private long[] starts = new long[0];
+    private long[] ends = new long[0];
+    private int count;
+
+    // Records with all fields present and the start before the end
+    private final BitSet valid = new BitSet();
+
+    // Records returned without an email
+    private final BitSet emailMissing = new BitSet();
+
+    // Offsets of the fetched records with a start time, sorted by start time
+    private int[] byStart = new int[0];
+    private int indexedCount;
+
+    // Longest duration of a valid fetched record, bounding how far before a time range overlapping records may start
+    private long longestMillis;
+
+    // Legacy offsets of the null or malformed entries skipped so far, in ascending order
+    private int[] skippedOffsets = new int[0];
+    private int skippedCount;
+
+    // Legacy offset of the first fetched record not cached exactly (a malformed time or another employee's
+    // email); the record store keeps only the records before it
+    private int storableEnd = Integer.MAX_VALUE;
+
+    private final List<TimeRecord> provisionalRecords = new ArrayList<>();
+
+    private final DailyTotals dailyTotals = new DailyTotals();
+
+    // Whether the last fetch returned fewer records than requested, i.e. reached the end of the history
+    private volatile boolean endReached;
+
+    // System.nanoTime() of the last fetch that reached the end of the history
+    private volatile long endCheckedNanos;
+
+    // Whether the last fetch failed or is still running after the viewer was served, so newer records may be missing
+    private volatile boolean outdated;
+
+    // System.nanoTime() after which the entry is stale regardless of access
+    private volatile long writeDeadlineNanos;
+
+    // Whether the last cached entry was not fetched since the entry was renewed or restored, so the legacy
+    // history may have changed before it; the next fetch from the end refetches it to compare
+    private volatile boolean tailUnverified;
+
+    public EmployeeRecords(String email, long writeDeadlineNanos) {
+        this.email = email;
+        this.writeDeadlineNanos = writeDeadlineNanos;
+    }
+
+    /**
+     * Returns the number of cached records, including provisional ones.
+     * @return The number of cached records.
+     */
+    public synchronized int size() {
+        return count + provisionalRecords.size();
+    }
+
+    /**
+     * Returns the number of records fetched from the legacy service and cached.
+     * @return The number of fetched records.
+     */
+    public synchronized int fetchedSize() {
+        return count;
+    }
+
+    /**
+     * Returns the legacy offset of the next fetch: the number of entries fetched, including skipped null entries.
+     * @return The offset of the next fetch.
+     */
+    public synchronized int nextOffset() {
+        return count + skippedCount;
+    }
+
+    /**
+     * Returns the legacy offset up to which the fetched entries may be stored: the records before it
+     * are cached exactly.
+     * @return The offset past the last storable entry.
+     */
+    public synchronized int storableOffset() {
+        return Math.min(nextOffset(), storableEnd);
+    }
+
+    /**
+     * Appends records fetched from the legacy service starting at the given offset.
+     * Records at offsets that are already cached are skipped, so a page is never appended twice.
+     * Null elements stand for null or malformed entries: they are not cached, but their offsets are.
+     * Provisional records equal to appended ones are dropped, since the legacy service now returns them.
+     * @param offset The legacy offset of the first record.
+     * @param newRecords The records to append, with null for skipped entries.
+     * @return The number of records appended.
+     */
+    public synchronized int appendAt(int offset, List<TimeRecord> newRecords) {
+        int skip = nextOffset() - offset;
+        if (skip < 0 || skip >= newRecords.size()) {
+            return 0;
+        }
+
+        int appended = 0;
+        ensureCapacity(count + newRecords.size() - skip);
+        for (int i = skip; i < newRecords.size(); i++) {
+            TimeRecord record = newRecords.get(i);
+            if (record == null) {
+                addSkippedOffset(nextOffset());
+                continue;
+            }
+            if (storableEnd == Integer.MAX_VALUE && !isCachedExactly(record)) {
+                storableEnd = nextOffset();
+            }
+            appended++;
+            starts[count] = record.getStartEpochMillis();
+            ends[count] = record.getEndEpochMillis();
+            valid.set(count, record.isValid());
+            if (record.isValid()) {
+                longestMillis = Math.max(longestMillis, record.getEndEpochMillis() - record.getStartEpochMillis());
+            }
+            emailMissing.set(count, record.getEmail() == null);
+            addToStartIndex(count);
+            count++;
+            addToTotals(record, 1);
+
+            if (!provisionalRecords.isEmpty() && provisionalRecords.remove(record)) {
+                addToTotals(record, -1);
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * Checks whether a record is materialized again as it was fetched: times are cached as epoch
+     * milliseconds and the email once per employee, so a malformed time or another email is not.
+     */
+    private boolean isCachedExactly(TimeRecord record) {
+        return (record.getStart() == null || record.getStartEpochMillis() != Utils.INVALID_TIME)
+                && (record.getEnd() == null || record.getEndEpochMillis() != Utils.INVALID_TIME)
+                && (record.getEmail() == null || record.getEmail().equals(email));
+    }
+
+    private void addSkippedOffset(int offset) {
+        if (skippedCount == skippedOffsets.length) {
+            skippedOffsets = Arrays.copyOf(skippedOffsets, Math.max(INITIAL_CAPACITY, skippedOffsets.length * 2));
+        }
+        skippedOffsets[skippedCount++] = offset;
+    }
+
+    /**
+     * Copies the fetched entries of a range of legacy offsets, for storing them.
+     * @param fromOffset The first legacy offset, inclusive.
+     * @param toOffset The last legacy offset, exclusive.
+     * @return A new list with the fetched records in range, with null for skipped entries.
+     */
+    public synchronized List<TimeRecord> copyFetchedEntries(int fromOffset, int toOffset) {
+        int endOffset = Math.min(toOffset, nextOffset());
+        List<TimeRecord> result = new ArrayList<>(Math.max(endOffset - fromOffset, 0));
+        int skippedIndex = Arrays.binarySearch(skippedOffsets, 0, skippedCount, fromOffset);
+        if (skippedIndex < 0) {
+            skippedIndex = -skippedIndex - 1;
+        }
+        int index = fromOffset - skippedIndex;
+        for (int offset = fromOffset; offset < endOffset; offset++) {
+            if (skippedIndex < skippedCount && skippedOffsets[skippedIndex] == offset) {
+                result.add(null);
+                skippedIndex++;
+            } else {
+                result.add(TimeRecord.fromEpochMillis(starts[index], ends[index], emailMissing.get(index) ? null : email));
+                index++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether an entry fetched again from the legacy service matches the cached one at its offset,
+     * by its times and whether it has an email.
+     * @param offset The legacy offset of the entry.
+     * @param record The entry fetched again, null for a null or malformed entry.
+     * @return True if the cached entry at the offset is the same, false if it differs or is not cached.
+     */
+    public synchronized boolean matchesEntryAt(int offset, TimeRecord record) {
+        if (offset < 0 || offset >= nextOffset()) {
+            return false;
+        }
+        int skippedIndex = Arrays.binarySearch(skippedOffsets, 0, skippedCount, offset);
+        if (skippedIndex >= 0) {
+            return record == null;
+        }
+        int index = offset + skippedIndex + 1;
+        return record != null
+                && starts[index] == record.getStartEpochMillis()
+                && ends[index] == record.getEndEpochMillis()
+                && emailMissing.get(index) == (record.getEmail() == null);
+    }
+
+    /**
+     * Drops the fetched records and skipped offsets, keeping the provisional records, so that the
+     * history is fetched again from the first offset. Used when the legacy history no longer matches
+     * the cached one.
+     */
+    public synchronized void clear() {
+        starts = new long[0];
+        ends = new long[0];
+        count = 0;
+        valid.clear();
+        emailMissing.clear();
+        byStart = new int[0];
+        indexedCount = 0;
+        longestMillis = 0;
+        skippedOffsets = new int[0];
+        skippedCount = 0;
+        storableEnd = Integer.MAX_VALUE;
+        endReached = false;
+        tailUnverified = false;
+        dailyTotals.clear();
+        for (TimeRecord record : provisionalRecords) {
+            addToTotals(record, 1);
+        }
+    }
+
+    /**
+     * Adds a record submitted to the legacy service but not fetched back yet.
+     * @param record The submitted record.
+     */
+    public synchronized void addProvisional(TimeRecord record) {
+        int index = provisionalRecords.size();
+        while (index > 0 && provisionalRecords.get(index - 1).getStartEpochMillis() > record.getStartEpochMillis()) {
+            index--;
+        }
+        provisionalRecords.add(index, record);
+        addToTotals(record, 1);
+    }
+
+    /**
+     * Returns the time worked over a range of UTC days by the cached valid records.
+     * @param fromDay The first epoch day, inclusive.
+     * @param toDay The last epoch day, inclusive.
+     * @return The milliseconds worked.
+     */
+    public synchronized long millisWorked(long fromDay, long toDay) {
+        return dailyTotals.sum(fromDay, toDay);
+    }
+
+    /**
+     * Copies the cached records starting within a time range, sorted by start time.
+     * Fetched records are found by binary search in the start time index, so the cost depends
+     * on the number of records in range rather than on the number of cached records.
+     * @param fromEpochMillis The earliest start, inclusive.
+     * @param toEpochMillis The latest start, exclusive.
+     * @return A new list with the fetched and provisional records starting in range.
+     */
+    public synchronized List<TimeRecord> copyStartingBetween(long fromEpochMillis, long toEpochMillis) {
+        int from = startLowerBound(fromEpochMillis);
+        int to = startLowerBound(toEpochMillis);
+        List<TimeRecord> result = new ArrayList<>(Math.max(to - from, 0));
+
+        // Merge the index range with the provisional records, which are sorted by start too
+        int provisionalIndex = 0;
+        for (int i = from; i < to; i++) {
+            int offset = byStart[i];
+            while (provisionalIndex < provisionalRecords.size()
+                    && provisionalRecords.get(provisionalIndex).getStartEpochMillis() < starts[offset]) {
+                addIfStartingBetween(result, provisionalRecords.get(provisionalIndex++), fromEpochMillis, toEpochMillis);
+            }
+            result.add(TimeRecord.fromEpochMillis(starts[offset], ends[offset], emailMissing.get(offset) ? null : email));
+        }
+        while (provisionalIndex < provisionalRecords.size()) {
+            addIfStartingBetween(result, provisionalRecords.get(provisionalIndex++), fromEpochMillis, toEpochMillis);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a valid cached record, fetched or provisional, overlaps a time range.
+     * Records that only touch the range, ending at its start or starting at its end, do not overlap it.
+     * Fetched records are found by binary search in the start time index from the longest record
+     * duration before the range on.
+     * @param fromEpochMillis The start of the range, inclusive.
+     * @param toEpochMillis The end of the range, exclusive.
+     * @return True if a record overlaps the range.
+     */
+    public synchronized boolean overlaps(long fromEpochMillis, long toEpochMillis) {
+        for (int i = startLowerBound(fromEpochMillis - longestMillis); i < indexedCount; i++) {
+            int offset = byStart[i];
+            if (starts[offset] >= toEpochMillis) {
+                break;
+            }
+            if (valid.get(offset) && ends[offset] > fromEpochMillis) {
+                return true;
+            }
+        }
+        for (TimeRecord record : provisionalRecords) {
+            if (record.isValid() && record.getStartEpochMillis() < toEpochMillis && record.getEndEpochMillis() > fromEpochMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addIfStartingBetween(List<TimeRecord> result, TimeRecord record, long fromEpochMillis, long toEpochMillis) {
+        long start = record.getStartEpochMillis();
+        if (start != Utils.INVALID_TIME && start >= fromEpochMillis && start < toEpochMillis) {
+            result.add(record);
+        }
+    }
+
+    /**
+     * Inserts a fetched record into the start time index, after records with the same start.
+     * Records mostly arrive in start order, in which case this is an append.
+     */
+    private void addToStartIndex(int offset) {
+        long start = starts[offset];
+        if (start == Utils.INVALID_TIME) {
+            return;
+        }
+        if (indexedCount == byStart.length) {
+            byStart = Arrays.copyOf(byStart, Math.max(INITIAL_CAPACITY, byStart.length * 2));
+        }
+        int position = startLowerBound(start + 1);
+        System.arraycopy(byStart, position, byStart, position + 1, indexedCount - position);
+        byStart[position] = offset;
+        indexedCount++;
+    }
+
+    /**
+     * Returns the position in the start time index of the first record starting at or after a time.
+     */
+    private int startLowerBound(long epochMillis) {
+        int low = 0;
+        int high = indexedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[byStart[mid]] < epochMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addToTotals(TimeRecord record, int sign) {
+        if (record.isValid()) {
+            dailyTotals.add(record.getStartEpochMillis(), record.getEndEpochMillis(), sign);
+        }
+    }
+
+    /**
+     * Copies a range of cached records, with provisional records following the fetched ones.
+     * @param from The first offset, inclusive.
+     * @param to The last offset, exclusive.
+     * @return A new list with the records in range, empty if the range lies beyond the cache.
+     */
+    public List<TimeRecord> copyRange(int from, int to) {
+        return copyRange(from, to, true);
+    }
+
+    /**
+     * Copies a range of cached records, with provisional records following the fetched ones.
+     * @param from The first offset, inclusive.
+     * @param to The last offset, exclusive.
+     * @param includeInvalid Whether to include records with missing fields or an end not after the start.
+     * @return A new list with the records in range, empty if the range lies beyond the cache.
+     */
+    public synchronized List<TimeRecord> copyRange(int from, int to, boolean includeInvalid) {
+        int endIndex = Math.min(to, size());
+        List<TimeRecord> result = new ArrayList<>(Math.max(endIndex - from, 0));
+        for (int i = from; i < endIndex; i++) {
+            if (i >= count) {
+                TimeRecord record = provisionalRecords.get(i - count);
+                if (includeInvalid || record.isValid()) {
+                    result.add(record);
+                }
+            } else if (includeInvalid || valid.get(i)) {
+                result.add(TimeRecord.fromEpochMillis(starts[i], ends[i], emailMissing.get(i) ? null : email));
+            }
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, starts.length * 2));
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+        }
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    public void setEndReached(boolean endReached) {
+        if (endReached) {
+            endCheckedNanos = System.nanoTime();
+        }
+        this.endReached = endReached;
+    }
+
+    /**
+     * Checks whether a fetch reached the end of the history recently, so that no newer records are expected yet.
+     * @param maxAgeNanos How long ago the end may have been reached.
+     * @return True if the end was reached within maxAgeNanos.
+     */
+    public boolean isEndReachedWithin(long maxAgeNanos) {
+        return endReached && System.nanoTime() - endCheckedNanos < maxAgeNanos;
+    }
+
+    /**
+     * Returns a version of the cached records that changes whenever records are added.
+     * Derived from the content rather than counted, so that it stays the same when the entry is
+     * evicted and restored with the same records.
+     * @return The version.
+     */
+    public synchronized String version() {
+        return count + "." + Integer.toHexString(provisionalRecords.hashCode());
+    }
+
+    public boolean isOutdated() {
+        return outdated;
+    }
+
+    public void setOutdated(boolean outdated) {
+        this.outdated = outdated;
+    }
+
+    /**
+     * Checks whether the entry is past its write deadline.
+     * @return True if the entry is stale.
+     */
+    public boolean isStale() {
+        return System.nanoTime() - writeDeadlineNanos > 0;
+    }
+
+    /**
+     * Renews a stale entry with a new write deadline, keeping its records but checking the end of
+     * the history again on the next fetch, as if the entry had been restored from the record store.
+     * The next fetch from the end also refetches the last cached entry to verify the kept records.
+     * @param writeDeadlineNanos The new write deadline.
+     * @return True if the entry was stale and is renewed, false if another caller renewed it already.
+     */
+    public synchronized boolean renew(long writeDeadlineNanos) {
+        if (!isStale()) {
+            return false;
+        }
+        this.writeDeadlineNanos = writeDeadlineNanos;
+        endReached = false;
+        tailUnverified = nextOffset() > 0;
+        return true;
+    }
+
+    /**
+     * Checks whether the last cached entry must be fetched again and compared before records are
+     * appended after it, because the entry was renewed or restored from the record store since.
+     * @return True if the tail is not verified against the legacy service yet.
+     */
+    public boolean isTailUnverified() {
+        return tailUnverified;
+    }
+
+    public void setTailUnverified(boolean tailUnverified) {
+        this.tailUnverified = tailUnverified;
+    }
+
+    /**
+     * Pushes back the write deadline of an entry whose end was just synced, so that it does not become stale.
+     * @param writeDeadlineNanos The new write deadline; an earlier deadline than the current one is ignored.
+     */
+    public synchronized void extend(long writeDeadlineNanos) {
+        if (writeDeadlineNanos - this.writeDeadlineNanos > 0) {
+            this.writeDeadlineNanos = writeDeadlineNanos;
+        }
+    }
+
+    public long getWriteDeadlineNanos() {
+        return writeDeadlineNanos;
+    }
+}
@@ -0,0 +1,260 @@
+package com.timetracker.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.store.RecordStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of employee records keyed by email.
+ * Entries expire individually after write and after access, with the write time-to-live
+ * spread by a random jitter so that entries loaded together do not expire together.
+ * An entry past its write time-to-live is stale: it is kept for a grace period, so that it can
+ * be served while the legacy service is degraded, and renewed when it is next looked up.
+ * An entry whose tail is synced in the background gets a new write deadline with every successful sync instead.
+ * Eviction is size-based (W-TinyLFU) on the total number of cached records.
+ * Fetched records are also written to the record store, and an employee's entry is
+ * restored from the store when it is created, so records outlive eviction and restarts.
+ * Only records the entry caches exactly are stored. The store bounds its logs by age and count
+ * on its own; a restored or renewed entry refetches its last entry first, and its records, cached
+ * and stored, are dropped only if the legacy history no longer matches them.
+ */
+@Component
+public class RecordsCache implements MeterBinder {
+
+    private final Cache<String, EmployeeRecords> cache;
+
+    private final long timeToLiveNanos;
+    private final long staleGraceNanos;
+    private final int jitterPercent;
+
+    private final RecordStore store;
+
+    // Default Constructor
+    public RecordsCache() {
+        this(5, 3, 20, 1000, 5000000, 30, new RecordStore());
+    }
+
+    @Autowired
+    public RecordsCache(
+            @Value("${timetracker.cache.max_time_to_live_min:5}") int timeToLiveMin,
+            @Value("${timetracker.cache.max_idle_min:3}") int maxIdleMin,
+            @Value("${timetracker.cache.ttl_jitter_percent:20}") int jitterPercent,
+            @Value("${timetracker.cache.max_entries:1000}") int maxEntries,
+            @Value("${timetracker.cache.max_records:5000000}") int maxRecords,
+            @Value("${timetracker.cache.stale_grace_min:30}") int staleGraceMin,
+            RecordStore store) {
+
+        this.store = store;
+        this.timeToLiveNanos = TimeUnit.MINUTES.toNanos(timeToLiveMin);
+        this.staleGraceNanos = TimeUnit.MINUTES.toNanos(staleGraceMin);
+        this.jitterPercent = Math.max(0, Math.min(jitterPercent, 100));
+        long maxIdleNanos = TimeUnit.MINUTES.toNanos(maxIdleMin);
+
+        // Caffeine cannot bound both entry count and weight, so every entry weighs at least
+        // maxRecords / maxEntries, which caps the entry count through the weight bound
+        int minEntryWeight = Math.max(1, maxRecords / Math.max(1, maxEntries));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRecords)
+                .weigher((String email, EmployeeRecords records) -> Math.max(records.size(), minEntryWeight))
+                .expireAfter(new Expiry<String, EmployeeRecords>() {
+                    @Override
+                    public long expireAfterCreate(String email, EmployeeRecords records, long currentTime) {
+                        return remainingTime(records, currentTime, maxIdleNanos, staleGraceNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String email, EmployeeRecords records, long currentTime, long currentDuration) {
+                        return remainingTime(records, currentTime, maxIdleNanos, staleGraceNanos);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String email, EmployeeRecords records, long currentTime, long currentDuration) {
+                        return remainingTime(records, currentTime, maxIdleNanos, staleGraceNanos);
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Checks whether entries are restored from and written to the record store, so that creating
+     * entries and adding records may block on disk I/O.
+     * @return True if the record store is enabled.
+     */
+    public boolean isStoreEnabled() {
+        return store.isEnabled();
+    }
+
+    /**
+     * Returns the cached records for an email.
+     * @param email The email to look up.
+     * @return The cached records, or null if not cached.
+     */
+    public EmployeeRecords get(String email) {
+        return cache.getIfPresent(email);
+    }
+
+    /**
+     * Returns the cached records for an email, creating an entry with the stored records if none is cached.
+     * A stale entry is renewed, so that the end of the history is checked again on the next fetch.
+     * The tail of restored and renewed records is verified against the legacy service on the next fetch.
+     * @param email The email to look up.
+     * @return The cached records.
+     */
+    public EmployeeRecords getOrCreate(String email) {
+        EmployeeRecords records = cache.get(email, key -> {
+            EmployeeRecords created = new EmployeeRecords(key, System.nanoTime() + jitteredTimeToLive());
+            created.appendAt(0, store.load(key));
+            created.setTailUnverified(created.nextOffset() > 0);
+            return created;
+        });
+        if (records.isStale()) {
+            records.renew(System.nanoTime() + jitteredTimeToLive());
+        }
+        return records;
+    }
+
+    /**
+     * Drops the fetched records of an email, cached and stored, because the legacy history no longer
+     * matches them, so that they are fetched again from the first offset. Provisional records are kept.
+     * @param email The email whose history changed.
+     * @param records The cached records of the email.
+     */
+    public void resetHistory(String email, EmployeeRecords records) {
+        store.delete(email);
+        records.clear();
+        cache.asMap().computeIfPresent(email, (key, value) -> value);
+    }
+
+    /**
+     * Returns the number of cached records for an email.
+     * @param email The email to look up.
+     * @return The number of cached records, 0 if not cached.
+     */
+    public int size(String email) {
+        EmployeeRecords records = cache.getIfPresent(email);
+        return records == null ? 0 : records.size();
+    }
+
+    /**
+     * Checks whether an email has records, cached or stored.
+     * @param email The email to look up.
+     * @return True if any records of the email are cached or stored.
+     */
+    public boolean hasRecords(String email) {
+        return size(email) > 0 || store.storedCount(email) > 0;
+    }
+
+    /**
+     * Stores the records fetched since the last call and re-weighs the entry,
+     * so that eviction sees its new size.
+     * @param email The email whose entry changed.
+     */
+    public void recordsAdded(String email) {
+        EmployeeRecords records = cache.asMap().computeIfPresent(email, (key, value) -> value);
+        if (records == null || !store.isEnabled()) {
+            return;
+        }
+        int storedCount = store.storedCount(email);
+        int storableOffset = records.storableOffset();
+        if (storedCount < storableOffset) {
+            store.appendAt(email, storedCount, records.copyFetchedEntries(storedCount, storableOffset));
+        }
+    }
+
+    /**
+     * Renews the entry of an email whose end of history was just synced with the legacy service,
+     * pushing back its write deadline so that it is not renewed and refetched, and stores the synced records.
+     * @param email The email whose tail was synced.
+     */
+    public void tailSynced(String email) {
+        cache.asMap().computeIfPresent(email, (key, records) -> {
+            records.extend(System.nanoTime() + jitteredTimeToLive());
+            return records;
+        });
+        recordsAdded(email);
+    }
+
+    /**
+     * Adds a record submitted to the legacy service to the cached records of its email as a provisional
+     * record, if the cache holds the end of the employee's history. Otherwise the record is fetched with
+     * the rest when the viewer pages to the end.
+     * @param email The email the record was submitted for.
+     * @param record The submitted record.
+     */
+    public void addSubmitted(String email, TimeRecord record) {
+        EmployeeRecords records = cache.getIfPresent(email);
+        if (records != null && records.isEndReached()) {
+            records.addProvisional(record);
+            recordsAdded(email);
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the approximate number of cached employees.
+     * @return The number of entries.
+     */
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Returns the total number of cached records across all employees.
+     * @return The number of records.
+     */
+    public long totalRecords() {
+        long total = 0;
+        for (EmployeeRecords records : cache.asMap().values()) {
+            total += records.size();
+        }
+        return total;
+    }
+
+    /**
+     * Registers hit, miss, eviction and size metrics of the cache.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "records");
+        Gauge.builder("timetracker.cache.records", this, RecordsCache::totalRecords)
+                .description("Records held in the records cache")
+                .register(registry);
+    }
+
+    /**
+     * Returns the time until an entry expires: its idle timeout, but never past the stale grace period after its write deadline.
+     */
+    private static long remainingTime(EmployeeRecords records, long currentTime, long maxIdleNanos, long staleGraceNanos) {
+        return Math.max(0, Math.min(records.getWriteDeadlineNanos() + staleGraceNanos - currentTime, maxIdleNanos));
+    }
+
+    private long jitteredTimeToLive() {
+        if (jitterPercent == 0) {
+            return timeToLiveNanos;
+        }
+        long maxJitter = timeToLiveNanos * jitterPercent / 100;
+        return timeToLiveNanos - ThreadLocalRandom.current().nextLong(maxJitter + 1);
+    }
+}
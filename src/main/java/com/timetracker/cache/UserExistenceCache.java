@@ -0,0 +1,86 @@
+package com.timetracker.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers whether an email belongs to an employee known to the legacy service.
+ * Known employees are kept much longer than unknown ones, so a new employee's first
+ * record shows up soon while existing employees are not re-checked on every page view.
+ */
+@Component
+public class UserExistenceCache implements MeterBinder {
+
+    private final Cache<String, Boolean> cache;
+
+    // Default Constructor
+    public UserExistenceCache() {
+        this(30, 60, 10000);
+    }
+
+    @Autowired
+    public UserExistenceCache(
+            @Value("${timetracker.cache.known_user_ttl_min:30}") int knownUserTtlMin,
+            @Value("${timetracker.cache.unknown_user_ttl_sec:60}") int unknownUserTtlSec,
+            @Value("${timetracker.cache.max_users:10000}") int maxUsers) {
+
+        long knownUserTtlNanos = TimeUnit.MINUTES.toNanos(knownUserTtlMin);
+        long unknownUserTtlNanos = TimeUnit.SECONDS.toNanos(unknownUserTtlSec);
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfter(new Expiry<String, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(String email, Boolean exists, long currentTime) {
+                        return exists ? knownUserTtlNanos : unknownUserTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String email, Boolean exists, long currentTime, long currentDuration) {
+                        return exists ? knownUserTtlNanos : unknownUserTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String email, Boolean exists, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns whether an email is known to exist.
+     * @param email The email to look up.
+     * @return True or false if known, null if the email has not been checked recently.
+     */
+    public Boolean get(String email) {
+        return cache.getIfPresent(email);
+    }
+
+    /**
+     * Records whether an email exists.
+     * @param email The email to record.
+     * @param exists Whether the employee exists in the legacy service.
+     */
+    public void put(String email, boolean exists) {
+        cache.put(email, exists);
+    }
+
+    /**
+     * Registers hit, miss, eviction and size metrics of the cache.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "user_existence");
+    }
+}
@@ -0,0 +1,306 @@
+package com.timetracker.client;
+
+import com.timetracker.metrics.TimeTrackerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for calls to the legacy service.
+ * The outcomes of the last window_size calls are kept in a ring. Once minimum_calls are recorded,
+ * the circuit opens when the share of failed calls or of calls slower than slow_call_ms reaches
+ * its threshold. While open, calls fail fast with a LegacyServiceUnavailableException instead of
+ * adding load to the legacy service. After open_sec the circuit is half-open and lets half_open_calls
+ * probe calls through: it closes if they all succeed in time, and opens again otherwise.
+ * Only errors that reflect on the health of the legacy service count as failures: 5xx responses,
+ * I/O errors and timeouts. A 4xx response is an answer to a bad request and counts as a success.
+ * This breaker guards user requests; calls that must not share its state, such as background
+ * polls, go through a breaker with the same settings created by named().
+ */
+@Component
+@Primary
+public class LegacyCircuitBreaker implements MeterBinder {
+
+    private final static Logger LOG = LoggerFactory.getLogger(LegacyCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    // Tag of the breaker's metrics
+    private final String name;
+
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long slowCallNanos;
+    private final int slowCallRatePercent;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Failure counts, injected lazily since the meter registry binds the meters of this breaker while it is created
+    private final TimeTrackerMetrics metrics;
+
+    // Outcomes of the last calls while closed, as a ring
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedNanos;
+
+    // Probe calls left to permit and probe calls succeeded while half-open
+    private int halfOpenPermits;
+    private int halfOpenSucceeded;
+
+    private long rejectedCalls;
+
+    // Default Constructor
+    public LegacyCircuitBreaker() {
+        this(true, 50, 10, 50, 5000, 80, 30, 3, new TimeTrackerMetrics());
+    }
+
+    @Autowired
+    public LegacyCircuitBreaker(
+            @Value("${timetracker.circuit_breaker.enabled:true}") boolean enabled,
+            @Value("${timetracker.circuit_breaker.window_size:50}") int windowSize,
+            @Value("${timetracker.circuit_breaker.minimum_calls:10}") int minimumCalls,
+            @Value("${timetracker.circuit_breaker.failure_rate_percent:50}") int failureRatePercent,
+            @Value("${timetracker.circuit_breaker.slow_call_ms:5000}") int slowCallMs,
+            @Value("${timetracker.circuit_breaker.slow_call_rate_percent:80}") int slowCallRatePercent,
+            @Value("${timetracker.circuit_breaker.open_sec:30}") int openSec,
+            @Value("${timetracker.circuit_breaker.half_open_calls:3}") int halfOpenCalls,
+            @Lazy TimeTrackerMetrics metrics) {
+
+        this.name = "user";
+        this.enabled = enabled;
+        this.failed = new boolean[Math.max(1, windowSize)];
+        this.slow = new boolean[failed.length];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, failed.length));
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.slowCallRatePercent = slowCallRatePercent;
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSec);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.metrics = metrics;
+    }
+
+    private LegacyCircuitBreaker(String name, LegacyCircuitBreaker settings) {
+        this.name = name;
+        this.enabled = settings.enabled;
+        this.failed = new boolean[settings.failed.length];
+        this.slow = new boolean[failed.length];
+        this.minimumCalls = settings.minimumCalls;
+        this.failureRatePercent = settings.failureRatePercent;
+        this.slowCallNanos = settings.slowCallNanos;
+        this.slowCallRatePercent = settings.slowCallRatePercent;
+        this.openNanos = settings.openNanos;
+        this.halfOpenCalls = settings.halfOpenCalls;
+        this.metrics = settings.metrics;
+    }
+
+    /**
+     * Creates a breaker with the settings of this one and a state of its own.
+     * @param name The name its metrics are tagged with.
+     * @return The new breaker, closed.
+     */
+    public LegacyCircuitBreaker named(String name) {
+        return new LegacyCircuitBreaker(name, this);
+    }
+
+    /**
+     * Runs a blocking call to the legacy service if the circuit permits it, and records its outcome.
+     * Exceptions other than failures of the legacy service, such as those thrown by a consumer of
+     * streamed records, are rethrown without counting as failures.
+     * @param call The call.
+     * @return The result of the call.
+     * @throws LegacyServiceUnavailableException If the circuit is open.
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!tryAcquire()) {
+            throw new LegacyServiceUnavailableException("Legacy service circuit is open");
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } catch (RuntimeException e) {
+            success = !isLegacyFailure(e);
+            throw e;
+        } finally {
+            onResult(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Guards a non-blocking call to the legacy service, checking the circuit on subscription.
+     * A call cancelled after it started, or failing with an error that is not a failure of the
+     * legacy service, counts as successful.
+     * @param call The call.
+     * @return The call, failing with a LegacyServiceUnavailableException if the circuit is open.
+     */
+    public <T> Flux<T> call(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(new LegacyServiceUnavailableException("Legacy service circuit is open"));
+            }
+            long start = System.nanoTime();
+            boolean[] failed = {false};
+            return call.doOnError(e -> failed[0] = isLegacyFailure(e))
+                    .doFinally(signal -> onResult(System.nanoTime() - start, !failed[0]));
+        });
+    }
+
+    /**
+     * Guards a non-blocking call to the legacy service, checking the circuit on subscription.
+     * @param call The call.
+     * @return The call, failing with a LegacyServiceUnavailableException if the circuit is open.
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        return call(call.flux()).next();
+    }
+
+    /**
+     * Checks whether an error of a call reflects on the health of the legacy service: a 5xx response,
+     * an I/O error, including connect, read and pool acquire timeouts, or a timeout.
+     */
+    static boolean isLegacyFailure(Throwable e) {
+        if (e instanceof HttpServerErrorException || e instanceof ResourceAccessException
+                || e instanceof WebClientRequestException || e instanceof TimeoutException || e instanceof IOException) {
+            return true;
+        }
+        return e instanceof WebClientResponseException && ((WebClientResponseException) e).getRawStatusCode() >= 500;
+    }
+
+    /**
+     * Returns the state of the circuit, moving it from open to half-open when the open time is over.
+     * @return The state.
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedNanos >= openNanos) {
+            halfOpen();
+        }
+        return state;
+    }
+
+    /**
+     * Checks whether calls are currently rejected without reaching the legacy service.
+     * @return True if the circuit is open.
+     */
+    public boolean isOpen() {
+        return enabled && getState() == State.OPEN;
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        State current = getState();
+        if (current == State.OPEN || (current == State.HALF_OPEN && halfOpenPermits == 0)) {
+            rejectedCalls++;
+            return false;
+        }
+        if (current == State.HALF_OPEN) {
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    private synchronized void onResult(long durationNanos, boolean success) {
+        if (!enabled) {
+            return;
+        }
+        boolean isSlow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (!success || isSlow) {
+                open();
+            } else if (++halfOpenSucceeded == halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(!success, isSlow);
+            if (recorded >= minimumCalls
+                    && (failures * 100 >= failureRatePercent * recorded || slowCalls * 100 >= slowCallRatePercent * recorded)) {
+                open();
+            }
+        }
+        // Calls permitted before the circuit opened do not count once it is open
+    }
+
+    private void record(boolean isFailure, boolean isSlow) {
+        if (recorded == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = isFailure;
+        slow[next] = isSlow;
+        failures += isFailure ? 1 : 0;
+        slowCalls += isSlow ? 1 : 0;
+        next = (next + 1) % failed.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedNanos = System.nanoTime();
+        LOG.warn("Legacy service circuit opened: {}", name);
+        metrics.recordFailure("circuit_breaker");
+    }
+
+    private void halfOpen() {
+        state = State.HALF_OPEN;
+        halfOpenPermits = halfOpenCalls;
+        halfOpenSucceeded = 0;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    /**
+     * Registers the state of the circuit, 0 closed, 1 half-open and 2 open, and the number of rejected calls,
+     * tagged with the name of the breaker.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("timetracker.legacy.circuit_state", this, breaker -> breaker.getState().ordinal())
+                .description("State of the legacy service circuit: 0 closed, 1 half-open, 2 open")
+                .tag("breaker", name)
+                .register(registry);
+        FunctionCounter.builder("timetracker.legacy.rejected_calls", this, LegacyCircuitBreaker::getRejectedCalls)
+                .description("Legacy service calls rejected by the open circuit")
+                .tag("breaker", name)
+                .register(registry);
+    }
+}
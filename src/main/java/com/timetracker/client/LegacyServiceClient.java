@@ -0,0 +1,243 @@
+package com.timetracker.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.timetracker.model.TimeRecord;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * HTTP client for the legacy TimeTracker service.
+ * Owns a pooled, keep-alive connection manager so that requests reuse connections,
+ * and bounds every request by connect, read and pool-acquire timeouts.
+ */
+@Component
+public class LegacyServiceClient {
+
+    // Number of decoded records handed to the consumer at once
+    private final static int BATCH_SIZE = 64;
+
+    private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String baseUrl;
+
+    private final CloseableHttpClient httpClient;
+
+    // Fails calls fast while the legacy service is degraded
+    private final LegacyCircuitBreaker circuitBreaker;
+
+    // RestTemplate for HTTP requests
+    private RestTemplate restTemplate;
+
+    // Default Constructor
+    public LegacyServiceClient() {
+        this("http://timetracker-legacy:8080", 50, 20, 2000, 10000, 1000, 30, 30, new LegacyCircuitBreaker());
+    }
+
+    @Autowired
+    public LegacyServiceClient(
+            @Value("${timetracker.legacy_service.base_url:http://timetracker-legacy:8080}") String baseUrl,
+            @Value("${timetracker.legacy_service.max_connections:50}") int maxConnections,
+            @Value("${timetracker.legacy_service.max_connections_per_route:20}") int maxConnectionsPerRoute,
+            @Value("${timetracker.legacy_service.connect_timeout_ms:2000}") int connectTimeoutMs,
+            @Value("${timetracker.legacy_service.read_timeout_ms:10000}") int readTimeoutMs,
+            @Value("${timetracker.legacy_service.pool_acquire_timeout_ms:1000}") int poolAcquireTimeoutMs,
+            @Value("${timetracker.legacy_service.keep_alive_sec:30}") int keepAliveSec,
+            @Value("${timetracker.legacy_service.idle_eviction_sec:30}") int idleEvictionSec,
+            LegacyCircuitBreaker circuitBreaker) {
+
+        this.baseUrl = baseUrl;
+        this.circuitBreaker = circuitBreaker;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMs)
+                .build();
+
+        long keepAliveMs = TimeUnit.SECONDS.toMillis(keepAliveSec);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // Use the server's Keep-Alive timeout when it sends one, otherwise keepAliveSec
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictionSec, TimeUnit.SECONDS)
+                .build();
+
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    // For testing purposes
+    public void setRestTemplate(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Queries a range of records of an email and decodes the response while it is being read.
+     * Records are handed to the consumer in batches as soon as a batch is decoded, so the
+     * response is never held in memory as a whole. Null and non-object entries are handed over as
+     * null elements, so that every element keeps its legacy offset.
+     * @param email The email to query records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param batchConsumer Receives the decoded records in response order, with null for null or malformed
+     *                      entries. The batch list is reused after the consumer returns, so the consumer
+     *                      must copy what it keeps.
+     * @return The number of array entries read, including null and malformed ones, for offsets and end detection.
+     * @throws LegacyServiceUnavailableException If the circuit breaker is open.
+     */
+    public int streamRecords(String email, int offset, int length, Consumer<List<TimeRecord>> batchConsumer) {
+        return streamRecords(email, offset, length, batchConsumer, circuitBreaker);
+    }
+
+    /**
+     * Queries a range of records of an email like streamRecords, through another circuit breaker than
+     * the one of user requests, e.g. for background work.
+     * @param breaker The circuit breaker to go through.
+     * @throws LegacyServiceUnavailableException If the given circuit breaker is open.
+     */
+    public int streamRecords(String email, int offset, int length, Consumer<List<TimeRecord>> batchConsumer, LegacyCircuitBreaker breaker) {
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .path("/records")
+                .queryParam("email", email)
+                .queryParam("offset", offset)
+                .queryParam("length", length)
+                .toUriString();
+
+        Integer count = breaker.call(() -> restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON)),
+                response -> decodeRecords(response.getBody(), batchConsumer)));
+
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Decodes a JSON array of records token by token.
+     * @param body The response body.
+     * @param batchConsumer Receives the decoded records in batches, with null for null or malformed entries.
+     * @return The number of array entries read.
+     */
+    private static int decodeRecords(InputStream body, Consumer<List<TimeRecord>> batchConsumer) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RestClientException("Expected a JSON array of records");
+            }
+
+            List<TimeRecord> batch = new ArrayList<>(BATCH_SIZE);
+            int count = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new RestClientException("Unexpected end of records response");
+                }
+                if (token == JsonToken.START_OBJECT) {
+                    batch.add(readRecord(parser));
+                } else {
+                    // Null or malformed entry
+                    parser.skipChildren();
+                    batch.add(null);
+                }
+                count++;
+                if (batch.size() == BATCH_SIZE) {
+                    batchConsumer.accept(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Reads the fields of one record object, ignoring unknown fields and non-scalar values.
+     */
+    private static TimeRecord readRecord(JsonParser parser) throws IOException {
+        TimeRecord record = new TimeRecord();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            String text = null;
+            if (value.isScalarValue()) {
+                text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+
+            switch (field) {
+                case "start":
+                    record.setStart(text);
+                    break;
+                case "end":
+                    record.setEnd(text);
+                    break;
+                case "email":
+                    record.setEmail(text);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Submits a record.
+     * @param email The email to record time for.
+     * @param start The start time in legacy request format.
+     * @param end The end time in legacy request format.
+     * @return The response of the legacy service.
+     * @throws LegacyServiceUnavailableException If the circuit breaker is open.
+     */
+    public ResponseEntity<String> postRecord(String email, String start, String end) {
+        String url = baseUrl + "/records";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+        // URL-encoded by the FormHttpMessageConverter of the RestTemplate
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("email", email);
+        form.add("start", start);
+        form.add("end", end);
+
+        HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(form, headers);
+        return circuitBreaker.call(() -> restTemplate.exchange(url, HttpMethod.POST, entity, String.class));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,13 @@
+package com.timetracker.client;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling the legacy service while its circuit breaker is open.
+ */
+public class LegacyServiceUnavailableException extends RestClientException {
+
+    public LegacyServiceUnavailableException(String message) {
+        super(message);
+    }
+}
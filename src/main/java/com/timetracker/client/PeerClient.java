@@ -0,0 +1,282 @@
+package com.timetracker.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.timetracker.cache.ConsistentHashRing;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.PeerPage;
+import com.timetracker.model.TimeRecord;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * HTTP client for the other frontend replicas when the records cache is sharded across them.
+ * The replicas listed in timetracker.peers.urls form a consistent-hash ring on email; each email's records
+ * are fetched from the legacy service and cached only by the replica owning it, and the other replicas
+ * read them from the owner through its internal peer endpoints.
+ * Records submitted through any replica are added to the owner's cache as provisional records, so that
+ * they show up in the pages read from the owner right away.
+ * A peer that fails a call is considered down for down_sec, during which its emails are served as if
+ * sharding was disabled: from the local cache and the legacy service.
+ * Every call carries the shared secret in the X-Peer-Secret header, and the internal peer endpoints
+ * answer only calls carrying it; sharding is disabled if no secret is set.
+ */
+@Component
+public class PeerClient {
+
+    private final static Logger LOG = LoggerFactory.getLogger(PeerClient.class);
+
+    private final static String RECORDS_PATH = "/internal/peer/records";
+    private final static String USERS_PATH = "/internal/peer/users";
+    private final static String SUBMITTED_PATH = "/internal/peer/submitted";
+
+    public final static String SECRET_HEADER = "X-Peer-Secret";
+
+    private final boolean enabled;
+    private final String self;
+    private final String secret;
+    private final ConsistentHashRing ring;
+    private final long downMillis;
+    private final TimeTrackerMetrics metrics;
+
+    // Peers that failed recently, with the time until which they are skipped
+    private final ConcurrentMap<String, Long> downUntil = new ConcurrentHashMap<>();
+
+    // Cached sizes and outdated flags of the last pages read from owners, for pagination
+    private final Cache<String, PeerPage> remotePages = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    private final CloseableHttpClient httpClient;
+
+    // RestTemplate for HTTP requests
+    private RestTemplate restTemplate;
+
+    // Default Constructor
+    public PeerClient() {
+        this(false, "", "", "", 100, 500, 12000, 10, new TimeTrackerMetrics());
+    }
+
+    @Autowired
+    public PeerClient(
+            @Value("${timetracker.peers.enabled:false}") boolean enabled,
+            @Value("${timetracker.peers.self:}") String self,
+            @Value("${timetracker.peers.urls:}") String urls,
+            @Value("${timetracker.peers.secret:}") String secret,
+            @Value("${timetracker.peers.virtual_nodes:100}") int virtualNodes,
+            @Value("${timetracker.peers.connect_timeout_ms:500}") int connectTimeoutMs,
+            @Value("${timetracker.peers.read_timeout_ms:12000}") int readTimeoutMs,
+            @Value("${timetracker.peers.down_sec:10}") int downSec,
+            TimeTrackerMetrics metrics) {
+
+        List<String> peers = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            if (!url.isBlank()) {
+                peers.add(normalize(url));
+            }
+        }
+        this.self = normalize(self);
+        if (enabled && !peers.contains(this.self)) {
+            LOG.warn("timetracker.peers.self {} is not listed in timetracker.peers.urls, cache sharding is disabled", self);
+            enabled = false;
+        }
+        if (enabled && secret.isBlank()) {
+            LOG.warn("timetracker.peers.secret is not set, cache sharding is disabled");
+            enabled = false;
+        }
+        this.enabled = enabled;
+        this.secret = secret;
+        this.ring = new ConsistentHashRing(enabled ? peers : List.of(), virtualNodes);
+        this.downMillis = TimeUnit.SECONDS.toMillis(downSec);
+        this.metrics = metrics;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(100);
+        connectionManager.setDefaultMaxPerRoute(50);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMs)
+                        .setSocketTimeout(readTimeoutMs)
+                        .setConnectionRequestTimeout(connectTimeoutMs)
+                        .build())
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    // For testing purposes
+    public void setRestTemplate(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks whether a call to an internal peer endpoint comes from a replica.
+     * @param secret The value of the call's X-Peer-Secret header, or null if missing.
+     * @return True if sharding is enabled and the secret matches the shared secret.
+     */
+    public boolean isAuthorized(String secret) {
+        return enabled && secret != null
+                && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), this.secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the replica to read an email's records from.
+     * @param email The email.
+     * @return The base URL of the owning replica, or null if this replica owns the email, the owner is
+     *         down, or sharding is disabled, i.e. if the email is served locally.
+     */
+    public String ownerOf(String email) {
+        if (!enabled) {
+            return null;
+        }
+        String owner = ring.nodeFor(email);
+        if (owner == null || owner.equals(self)) {
+            return null;
+        }
+        Long until = downUntil.get(owner);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                return null;
+            }
+            downUntil.remove(owner, until);
+        }
+        return owner;
+    }
+
+    /**
+     * Reads a range of an email's records, sorted by start time, from the replica owning it.
+     * @param peer The base URL of the owner.
+     * @param email The email to retrieve records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param considerNullField Whether to include records with null fields.
+     * @param bulkFetch Whether the owner should perform a bulk fetch.
+     * @return The records, with the owner's cached size and outdated flag.
+     * @throws RestClientException If the owner could not be reached; it is then considered down.
+     */
+    public PeerPage fetchRecords(String peer, String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(peer)
+                .path(RECORDS_PATH)
+                .queryParam("email", "{email}")
+                .queryParam("offset", offset)
+                .queryParam("length", length)
+                .queryParam("considerNullField", considerNullField)
+                .queryParam("bulkFetch", bulkFetch)
+                .encode()
+                .buildAndExpand(email)
+                .toUri();
+
+        PeerPage page = call(peer, () -> restTemplate.exchange(uri, HttpMethod.GET, request(null), PeerPage.class).getBody());
+        if (page == null || page.getRecords() == null) {
+            throw new RestClientException("Empty response from peer " + peer);
+        }
+        remotePages.put(email, new PeerPage(List.of(), page.getCachedSize(), page.isOutdated()));
+        return page;
+    }
+
+    /**
+     * Checks on the replica owning an email whether the user exists.
+     * @param peer The base URL of the owner.
+     * @param email The email to check.
+     * @return The owner's response key, e.g. USER_EXISTS or INVALID_USER.
+     * @throws RestClientException If the owner could not be reached; it is then considered down.
+     */
+    public String checkExistingUser(String peer, String email) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(peer)
+                .path(USERS_PATH)
+                .queryParam("email", "{email}")
+                .encode()
+                .buildAndExpand(email)
+                .toUri();
+
+        Map<?, ?> response = call(peer, () -> restTemplate.exchange(uri, HttpMethod.GET, request(null), Map.class).getBody());
+        if (response == null || !(response.get("status") instanceof String)) {
+            throw new RestClientException("Empty response from peer " + peer);
+        }
+        return (String) response.get("status");
+    }
+
+    /**
+     * Adds a record submitted through this replica to the cache of the replica owning its email.
+     * @param peer The base URL of the owner.
+     * @param record The submitted record.
+     * @throws RestClientException If the owner could not be reached; it is then considered down.
+     */
+    public void addSubmitted(String peer, TimeRecord record) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(peer).path(SUBMITTED_PATH).build().toUri();
+        call(peer, () -> restTemplate.exchange(uri, HttpMethod.POST, request(record), Void.class));
+    }
+
+    /**
+     * Returns what the owner last reported about an email's cached records.
+     * @param email The email.
+     * @return The owner's cached size and outdated flag, without records, or null if none was read recently.
+     */
+    public PeerPage getLastRemotePage(String email) {
+        return remotePages.getIfPresent(email);
+    }
+
+    private HttpEntity<Object> request(Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SECRET_HEADER, secret);
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        return new HttpEntity<>(body, headers);
+    }
+
+    private <T> T call(String peer, Supplier<T> request) {
+        try {
+            return request.get();
+        } catch (RestClientException e) {
+            downUntil.put(peer, System.currentTimeMillis() + downMillis);
+            LOG.warn("Peer {} is unavailable, serving its emails locally", peer, e);
+            metrics.recordFailure("peers");
+            throw e;
+        }
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.timetracker.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.timetracker.model.TimeRecord;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Non-blocking HTTP client for the legacy TimeTracker service, used in the reactive mode.
+ * Requests share a bounded pool of keep-alive connections and are bounded by connect,
+ * response and pool-acquire timeouts, configured like those of LegacyServiceClient.
+ * No thread waits for the legacy service while a request is in flight.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLegacyServiceClient {
+
+    private final ConnectionProvider connectionProvider;
+
+    private final WebClient webClient;
+
+    // Fails calls fast while the legacy service is degraded
+    private final LegacyCircuitBreaker circuitBreaker;
+
+    // Default Constructor
+    public ReactiveLegacyServiceClient() {
+        this("http://timetracker-legacy:8080", 50, 2000, 10000, 1000, 30, 30, new LegacyCircuitBreaker());
+    }
+
+    @Autowired
+    public ReactiveLegacyServiceClient(
+            @Value("${timetracker.legacy_service.base_url:http://timetracker-legacy:8080}") String baseUrl,
+            @Value("${timetracker.legacy_service.max_connections:50}") int maxConnections,
+            @Value("${timetracker.legacy_service.connect_timeout_ms:2000}") int connectTimeoutMs,
+            @Value("${timetracker.legacy_service.read_timeout_ms:10000}") int readTimeoutMs,
+            @Value("${timetracker.legacy_service.pool_acquire_timeout_ms:1000}") int poolAcquireTimeoutMs,
+            @Value("${timetracker.legacy_service.keep_alive_sec:30}") int keepAliveSec,
+            @Value("${timetracker.legacy_service.idle_eviction_sec:30}") int idleEvictionSec,
+            LegacyCircuitBreaker circuitBreaker) {
+
+        this.circuitBreaker = circuitBreaker;
+
+        this.connectionProvider = ConnectionProvider.builder("legacy-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(poolAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(keepAliveSec))
+                .evictInBackground(Duration.ofSeconds(idleEvictionSec))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Queries a range of records of an email.
+     * The response array is decoded element by element while it is being read, and records are
+     * emitted as soon as they are decoded. Null and non-object entries are emitted as empty, so that
+     * every element keeps its legacy offset and the number of elements tells whether the end was reached.
+     * @param email The email to query records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @return The records in response order, empty for null or malformed entries; fails with a WebClientException
+     *         if the request fails, or with a LegacyServiceUnavailableException if the circuit breaker is open.
+     */
+    public Flux<Optional<TimeRecord>> streamRecords(String email, int offset, int length) {
+        return circuitBreaker.call(webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/records")
+                        .queryParam("email", email)
+                        .queryParam("offset", offset)
+                        .queryParam("length", length)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(JsonNode.class)
+                .map(node -> node.isObject()
+                        ? Optional.of(new TimeRecord(text(node, "start"), text(node, "end"), text(node, "email")))
+                        : Optional.<TimeRecord>empty()));
+    }
+
+    /**
+     * Returns the text of a scalar field, or null if the field is missing, null or not a scalar.
+     */
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isValueNode() && !value.isNull() ? value.asText() : null;
+    }
+
+    /**
+     * Submits a record.
+     * @param email The email to record time for.
+     * @param start The start time in legacy request format.
+     * @param end The end time in legacy request format.
+     * @return The response of the legacy service; fails with a WebClientException on an error status,
+     *         or with a LegacyServiceUnavailableException if the circuit breaker is open.
+     */
+    public Mono<ResponseEntity<String>> postRecord(String email, String start, String end) {
+        return circuitBreaker.call(webClient.post()
+                .uri("/records")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData("email", email).with("start", start).with("end", end))
+                .retrieve()
+                .toEntity(String.class));
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,19 @@
+package com.timetracker.config;
+
+import com.timetracker.client.LegacyCircuitBreaker;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Circuit breakers of legacy service calls besides the one of user requests.
+ * They are configured by the same timetracker.circuit_breaker.* properties, but keep their own
+ * state and metrics, so background traffic neither opens nor is rejected by the circuit of user requests.
+ */
+@Configuration
+public class CircuitBreakerConfiguration {
+
+    @Bean
+    public LegacyCircuitBreaker tailSyncCircuitBreaker(LegacyCircuitBreaker legacyCircuitBreaker) {
+        return legacyCircuitBreaker.named("tail_sync");
+    }
+}
@@ -0,0 +1,22 @@
+package com.timetracker.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Server of the reactive mode.
+ * Spring Boot would serve the reactive mode from Tomcat too, since Tomcat is on the classpath for
+ * the default MVC mode; Netty serves all connections from a few event loop threads instead.
+ * The server.* properties apply to it as to Tomcat.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
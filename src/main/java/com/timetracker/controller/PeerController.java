@@ -0,0 +1,91 @@
+package com.timetracker.controller;
+
+import com.timetracker.client.PeerClient;
+import com.timetracker.model.PeerPage;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.service.TimeTrackerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Internal endpoints through which frontend replicas read the records of the emails they own from
+ * each other when the records cache is sharded. They always answer from the local cache and never
+ * forward to another replica, so replicas with different peer lists cannot send requests in circles.
+ * They answer 403 Forbidden unless sharding is enabled and the call carries the shared secret in the
+ * X-Peer-Secret header; they should not be routed by the load balancer either.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/internal/peer")
+public class PeerController {
+
+    @Autowired
+    public TimeTrackerService timeTrackerService;
+
+    @Autowired
+    public PeerClient peerClient;
+
+    /**
+     * Handles requests to the "/internal/peer/records" URL.
+     * Returns a range of records of an email from the local cache, sorted by start time, with the number of cached records.
+     */
+    @GetMapping("/records")
+    public ResponseEntity<PeerPage> getRecords(
+            @RequestHeader(value = PeerClient.SECRET_HEADER, required = false) String secret,
+            @RequestParam String email,
+            @RequestParam int offset,
+            @RequestParam int length,
+            @RequestParam(defaultValue = "true") boolean considerNullField,
+            @RequestParam(defaultValue = "false") boolean bulkFetch) {
+
+        if (!peerClient.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(timeTrackerService.getPeerPage(email, offset, length, considerNullField, bulkFetch));
+    }
+
+    /**
+     * Handles requests to the "/internal/peer/users" URL.
+     * Returns whether a user exists as a response key, checked with the local caches.
+     */
+    @GetMapping("/users")
+    public ResponseEntity<Map<String, Object>> checkUser(
+            @RequestHeader(value = PeerClient.SECRET_HEADER, required = false) String secret,
+            @RequestParam String email) {
+
+        if (!peerClient.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(Map.of("status", timeTrackerService.checkLocalUser(email)));
+    }
+
+    /**
+     * Handles POST requests to the "/internal/peer/submitted" URL.
+     * Adds a record submitted through another replica to the local cache as a provisional record.
+     */
+    @PostMapping("/submitted")
+    public ResponseEntity<Void> addSubmitted(
+            @RequestHeader(value = PeerClient.SECRET_HEADER, required = false) String secret,
+            @RequestBody TimeRecord record) {
+
+        if (!peerClient.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (record.getEmail() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        timeTrackerService.addPeerSubmitted(record);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.timetracker.controller;
+
+import com.timetracker.client.PeerClient;
+import com.timetracker.model.PeerPage;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.service.ReactiveTimeTrackerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Reactive variant of PeerController, with the same internal endpoints, shared secret check and responses.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/internal/peer")
+public class ReactivePeerController {
+
+    @Autowired
+    public ReactiveTimeTrackerService reactiveTimeTrackerService;
+
+    @Autowired
+    public PeerClient peerClient;
+
+    /**
+     * Handles requests to the "/internal/peer/records" URL.
+     * Returns a range of records of an email from the local cache, sorted by start time, with the number of cached records.
+     */
+    @GetMapping("/records")
+    public Mono<ResponseEntity<PeerPage>> getRecords(
+            @RequestHeader(value = PeerClient.SECRET_HEADER, required = false) String secret,
+            @RequestParam String email,
+            @RequestParam int offset,
+            @RequestParam int length,
+            @RequestParam(defaultValue = "true") boolean considerNullField,
+            @RequestParam(defaultValue = "false") boolean bulkFetch) {
+
+        if (!peerClient.isAuthorized(secret)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+        return reactiveTimeTrackerService.getPeerPage(email, offset, length, considerNullField, bulkFetch).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Handles requests to the "/internal/peer/users" URL.
+     * Returns whether a user exists as a response key, checked with the local caches.
+     */
+    @GetMapping("/users")
+    public Mono<ResponseEntity<Map<String, Object>>> checkUser(
+            @RequestHeader(value = PeerClient.SECRET_HEADER, required = false) String secret,
+            @RequestParam String email) {
+
+        if (!peerClient.isAuthorized(secret)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+        return reactiveTimeTrackerService.checkLocalUser(email).map(status -> ResponseEntity.ok(Map.of("status", status)));
+    }
+
+    /**
+     * Handles POST requests to the "/internal/peer/submitted" URL.
+     * Adds a record submitted through another replica to the local cache as a provisional record.
+     */
+    @PostMapping("/submitted")
+    public Mono<ResponseEntity<Void>> addSubmitted(
+            @RequestHeader(value = PeerClient.SECRET_HEADER, required = false) String secret,
+            @RequestBody TimeRecord record) {
+
+        if (!peerClient.isAuthorized(secret)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+        if (record.getEmail() == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return reactiveTimeTrackerService.addPeerSubmitted(record).thenReturn(ResponseEntity.noContent().build());
+    }
+}
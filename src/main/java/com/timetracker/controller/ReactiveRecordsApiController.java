@@ -0,0 +1,96 @@
+package com.timetracker.controller;
+
+import com.timetracker.service.ReactiveTimeTrackerService;
+import com.timetracker.service.TimeTrackerService;
+import com.timetracker.utils.ResponseMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reactive variant of RecordsApiController, with the same cursors, ETags and responses.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/api/records")
+public class ReactiveRecordsApiController {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ReactiveRecordsApiController.class);
+
+    @Autowired
+    public ReactiveTimeTrackerService reactiveTimeTrackerService;
+
+    @Autowired
+    public TimeTrackerService timeTrackerService;
+
+    /**
+     * Handles requests to the "/api/records" URL.
+     * Returns a page of time records for a given email with the cursor of the next page.
+     */
+    @GetMapping
+    public Mono<ResponseEntity<Object>> getRecords(
+            @RequestParam String email,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int limit,
+            ServerWebExchange exchange) {
+
+        int offset;
+        try {
+            offset = RecordsApiController.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(errorResponse(HttpStatus.BAD_REQUEST, "INVALID_CURSOR"));
+        }
+        int length = limit <= 0 ? timeTrackerService.getRecordsPerPage() : Math.min(limit, RecordsApiController.MAX_LIMIT);
+
+        // Answers an unchanged page from the cache alone; the lookup neither creates entries nor reads the record store
+        String cachedVersion = timeTrackerService.getCachedRecordsVersion(email, offset, length);
+        if (cachedVersion != null && exchange.checkNotModified(RecordsApiController.eTag(cachedVersion, offset, length))) {
+            return Mono.empty();
+        }
+
+        // Checks if the user exists
+        return reactiveTimeTrackerService.checkExistingUser(email).flatMap(userCheckResponse -> {
+            if (!userCheckResponse.equals("USER_EXISTS")) {
+                HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+                return Mono.just(errorResponse(status, userCheckResponse));
+            }
+
+            return reactiveTimeTrackerService.getRecordsPage(email, offset, length).map(page -> {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("email", email);
+                body.put("records", page.getRecords());
+                body.put("nextCursor", RecordsApiController.encodeCursor(page.getNextOffset()));
+                body.put("hasMore", page.isHasMore());
+
+                // Spring answers 304 itself if the fetched page turned out unchanged
+                return ResponseEntity.ok()
+                        .eTag(RecordsApiController.eTag(page.getVersion(), offset, length))
+                        .cacheControl(CacheControl.noCache())
+                        .<Object>body(body);
+
+            }).onErrorResume(e -> e instanceof WebClientException || e instanceof RestClientException || e instanceof IllegalArgumentException, e -> {
+                LOG.warn("Retrieving a page of the records of {} failed", email, e);
+                return Mono.just(errorResponse(HttpStatus.BAD_GATEWAY, "CONNECTION_ERROR"));
+            });
+        });
+    }
+
+    private static ResponseEntity<Object> errorResponse(HttpStatus status, String response) {
+        return ResponseEntity.status(status).body(ResponseMapping.getResponseBody(response));
+    }
+}
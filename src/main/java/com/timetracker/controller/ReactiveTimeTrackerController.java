@@ -0,0 +1,377 @@
+package com.timetracker.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timetracker.model.ImportReport;
+import com.timetracker.model.Submission;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.service.ReactiveTimeTrackerService;
+import com.timetracker.service.RecordExporter;
+import com.timetracker.service.TeamFetcher;
+import com.timetracker.service.TimeTrackerService;
+import com.timetracker.utils.ResponseMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive variant of TimeTrackerController, with the same pages, endpoints and responses.
+ * Requests wait for the legacy service without holding a thread.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Controller
+public class ReactiveTimeTrackerController {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ReactiveTimeTrackerController.class);
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    public ReactiveTimeTrackerService reactiveTimeTrackerService;
+
+    @Autowired
+    public TimeTrackerService timeTrackerService;
+
+    /**
+     * Handles requests to the root URL ("/").
+     * Adds the record response message and email to the model to be displayed in the view.
+     */
+    @GetMapping("/")
+    public String index(
+            @RequestParam(required = false, defaultValue = "") String recordResponse,
+            @RequestParam(required = false, defaultValue = "") String email,
+            @RequestParam(required = false, defaultValue = "") String submissionId,
+            Model model) {
+
+        // Maps the record response to a user-friendly message
+        String processedRecordResponse = recordResponse.isEmpty() ? "" : ResponseMapping.getMappedResponse(recordResponse);
+
+        // Adds attributes to the model to be used in the view
+        model.addAttribute("recordResponse", processedRecordResponse);
+        model.addAttribute("email", email);
+        model.addAttribute("submissionId", submissionId);
+
+        return "index";
+    }
+
+    /**
+     * Handles requests to the "/records" URL.
+     * Fetches time records for a given email and adds them to the model,
+     * either a page of them or, if from or to is given, those starting within the date range.
+     */
+    @GetMapping("/records")
+    public Mono<String> getTimeRecords(
+            @RequestParam String email,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false, defaultValue = "false") boolean fetchMorePages,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Model model) {
+
+        // Checks if the user exists
+        return reactiveTimeTrackerService.checkExistingUser(email).flatMap(userCheckResponse -> {
+            if (!userCheckResponse.equals("USER_EXISTS")) {
+                return Mono.just("redirect:/?recordResponse=" + userCheckResponse + "&email=" + email);
+            }
+
+            // Fetches records by email, by date range or by page
+            boolean rangeQuery = from != null || to != null;
+            Mono<List<TimeRecord>> records = rangeQuery
+                    ? reactiveTimeTrackerService.getRecordsBetween(email, from, to)
+                    : reactiveTimeTrackerService.getRecordsByEmail(email, page, fetchMorePages);
+
+            // Adds attributes to the model to be used in the view
+            return records.map(fetchedRecords -> {
+                model.addAttribute("records", fetchedRecords);
+                model.addAttribute("email", email);
+                model.addAttribute("rangeQuery", rangeQuery);
+                model.addAttribute("from", from);
+                model.addAttribute("to", to);
+                model.addAttribute("page", page);
+                model.addAttribute("availablePages", timeTrackerService.getAvailablePages(email));
+                model.addAttribute("bulkFetchPages", timeTrackerService.getBulkFetchPages());
+                model.addAttribute("outdated", timeTrackerService.isRecordsOutdated(email));
+
+                return "records";
+            }).onErrorResume(e -> e instanceof WebClientException || e instanceof RestClientException, e -> {
+                LOG.warn("Retrieving the records of {} failed", email, e);
+                return Mono.just("redirect:/?recordResponse=CONNECTION_ERROR&email=" + email);
+            });
+        });
+    }
+
+    /**
+     * Handles requests to the "/records/search" URL.
+     * Returns the time records of a given email starting within a date range as JSON, sorted by start time.
+     */
+    @GetMapping("/records/search")
+    @ResponseBody
+    public Mono<ResponseEntity<Object>> searchTimeRecords(
+            @RequestParam String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        // Checks if the user exists
+        return reactiveTimeTrackerService.checkExistingUser(email).flatMap(userCheckResponse -> {
+            if (!userCheckResponse.equals("USER_EXISTS")) {
+                HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+                return Mono.just(errorResponse(status, userCheckResponse));
+            }
+            if (from != null && to != null && from.isAfter(to)) {
+                return Mono.just(errorResponse(HttpStatus.BAD_REQUEST, "INVALID_TIME_RANGE"));
+            }
+
+            return reactiveTimeTrackerService.getRecordsBetween(email, from, to)
+                    .map(ResponseEntity::<Object>ok)
+                    .onErrorResume(e -> e instanceof WebClientException || e instanceof RestClientException, e -> {
+                        LOG.warn("Retrieving the records of {} failed", email, e);
+                        return Mono.just(errorResponse(HttpStatus.BAD_GATEWAY, "CONNECTION_ERROR"));
+                    });
+        });
+    }
+
+    /**
+     * Handles requests to the "/team" URL.
+     * Fetches the time records of several emails concurrently and adds them to the model merged into one
+     * list sorted by start time, either a page of each or, if from or to is given, those starting within
+     * the date range. Emails whose records could not be fetched in time are listed as missing.
+     */
+    @GetMapping("/team")
+    public Mono<String> getTeamRecords(
+            @RequestParam(required = false, defaultValue = "") String emails,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Model model) {
+
+        List<String> teamEmails = TeamFetcher.parseEmails(emails);
+
+        // Adds attributes to the model to be used in the view
+        model.addAttribute("emails", String.join(", ", teamEmails));
+        model.addAttribute("rangeQuery", from != null || to != null);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("page", page);
+
+        // Shows the form only until emails are entered
+        if (teamEmails.isEmpty()) {
+            return Mono.just("team");
+        }
+        String teamCheckResponse = TimeTrackerController.checkTeamRequest(teamEmails, from, to, timeTrackerService.getMaxTeamSize());
+        if (teamCheckResponse != null) {
+            model.addAttribute("errorMessage", ResponseMapping.getMappedResponse(teamCheckResponse));
+            return Mono.just("team");
+        }
+
+        return reactiveTimeTrackerService.getTeamRecords(teamEmails, page, from, to).map(team -> {
+            model.addAttribute("team", team);
+            return "team";
+        });
+    }
+
+    /**
+     * Handles requests to the "/team/records" URL.
+     * Returns the time records of several emails as JSON, merged into one list sorted by start time,
+     * with the outcome of each email. The response is partial if some emails could not be fetched in time.
+     */
+    @GetMapping("/team/records")
+    @ResponseBody
+    public Mono<ResponseEntity<Object>> searchTeamRecords(
+            @RequestParam String emails,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        List<String> teamEmails = TeamFetcher.parseEmails(emails);
+        String teamCheckResponse = TimeTrackerController.checkTeamRequest(teamEmails, from, to, timeTrackerService.getMaxTeamSize());
+        if (teamCheckResponse != null) {
+            return Mono.just(errorResponse(HttpStatus.BAD_REQUEST, teamCheckResponse));
+        }
+
+        return reactiveTimeTrackerService.getTeamRecords(teamEmails, page, from, to).map(ResponseEntity::<Object>ok);
+    }
+
+    /**
+     * Handles requests to the "/records/export" URL.
+     * Streams the full history of a given email as a CSV or NDJSON download, written while it is read from the legacy service.
+     */
+    @GetMapping("/records/export")
+    @ResponseBody
+    public Mono<ResponseEntity<Flux<String>>> exportTimeRecords(
+            @RequestParam String email,
+            @RequestParam(defaultValue = RecordExporter.FORMAT_CSV) String format) {
+
+        if (!RecordExporter.isSupportedFormat(format)) {
+            return Mono.just(streamingErrorResponse(HttpStatus.BAD_REQUEST, "INVALID_EXPORT_FORMAT"));
+        }
+
+        // Checks if the user exists
+        return reactiveTimeTrackerService.checkExistingUser(email).map(userCheckResponse -> {
+            if (!userCheckResponse.equals("USER_EXISTS")) {
+                HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+                return streamingErrorResponse(status, userCheckResponse);
+            }
+
+            // A failure past the first rows can only abort the response
+            Flux<String> body = reactiveTimeTrackerService.exportRecords(email, format)
+                    .doOnError(e -> LOG.warn("Exporting the records of {} failed", email, e));
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(RecordExporter.getContentType(format) + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("records." + format)
+                            .build()
+                            .toString())
+                    .body(body);
+        });
+    }
+
+    /**
+     * Handles POST requests to the "/records/import" URL.
+     * Imports time records from an uploaded CSV file and returns the result of each row as JSON,
+     * with status 202 while the valid rows are submitted in the background.
+     * The file is read and validated on the bounded elastic scheduler.
+     */
+    @PostMapping("/records/import")
+    @ResponseBody
+    public Mono<ResponseEntity<Object>> importTimeRecords(@RequestPart("file") FilePart file) {
+        return DataBufferUtils.join(file.content())
+                .publishOn(Schedulers.boundedElastic())
+                .map(buffer -> {
+                    try (InputStream in = buffer.asInputStream(true)) {
+                        return TimeTrackerController.importResponse(timeTrackerService.importRecords(in));
+                    } catch (IOException e) {
+                        LOG.warn("Reading the import file failed", e);
+                        return errorResponse(HttpStatus.BAD_REQUEST, "INVALID_IMPORT_FILE");
+                    }
+                });
+    }
+
+    /**
+     * Handles POST requests to the "/record" URL.
+     * Records time for a given email and redirects to the index with the response message.
+     */
+    @PostMapping("/record")
+    public Mono<String> recordTime(ServerWebExchange exchange) {
+        return exchange.getFormData().flatMap(form -> {
+            String email = form.getFirst("email");
+            String startTime = form.getFirst("startTime");
+            String endTime = form.getFirst("endTime");
+            if (email == null || startTime == null || endTime == null) {
+                return Mono.just("redirect:/?recordResponse=SUBMIT_ERROR");
+            }
+
+            // Queues the record and redirects with the submission id for status polling
+            if (timeTrackerService.isWriteBehindEnabled()) {
+                return Mono.fromCallable(() -> timeTrackerService.queueTime(email, startTime, endTime))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .map(submission -> {
+                            String redirect = "redirect:/?recordResponse=" + submission.getStatus() + "&email=" + email;
+                            return submission.getId() == null ? redirect : redirect + "&submissionId=" + submission.getId();
+                        });
+            }
+
+            // Records time and redirects to the index page with the response message and email
+            return reactiveTimeTrackerService.recordTime(email, startTime, endTime)
+                    .map(response -> "redirect:/?recordResponse=" + response + "&email=" + email);
+        });
+    }
+
+    /**
+     * Handles requests to the "/records/import/status" URL.
+     * Returns the report of a recent import as JSON, to poll until its rows are submitted.
+     */
+    @GetMapping("/records/import/status")
+    @ResponseBody
+    public ResponseEntity<Object> getImportStatus(@RequestParam String id) {
+        ImportReport report = timeTrackerService.getImport(id);
+        return report == null ? errorResponse(HttpStatus.NOT_FOUND, "UNKNOWN_IMPORT") : ResponseEntity.ok(report);
+    }
+
+    /**
+     * Handles requests to the "/record/status" URL.
+     * Returns the status of a queued submission as JSON, for the index page to poll.
+     */
+    @GetMapping("/record/status")
+    @ResponseBody
+    public Map<String, Object> getSubmissionStatus(@RequestParam String id) {
+        Submission submission = timeTrackerService.getSubmission(id);
+        String status = submission == null ? "UNKNOWN_SUBMISSION" : submission.getStatus();
+
+        return Map.of(
+                "status", status,
+                "message", ResponseMapping.getMappedResponse(status),
+                "finished", submission == null || submission.isFinished());
+    }
+
+    /**
+     * Handles requests to the "/summary" URL.
+     * Returns the hours worked by an employee between two dates as JSON, in total and per day, ISO week or month.
+     */
+    @GetMapping("/summary")
+    @ResponseBody
+    public Mono<ResponseEntity<Object>> getHoursSummary(
+            @RequestParam String email,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+
+        // Checks if the user exists
+        return reactiveTimeTrackerService.checkExistingUser(email).flatMap(userCheckResponse -> {
+            if (!userCheckResponse.equals("USER_EXISTS")) {
+                HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+                return Mono.just(errorResponse(status, userCheckResponse));
+            }
+
+            return reactiveTimeTrackerService.getHoursSummary(email, from, to, granularity)
+                    .map(ResponseEntity::<Object>ok)
+                    .onErrorResume(IllegalArgumentException.class, e -> Mono.just(errorResponse(HttpStatus.BAD_REQUEST, "INVALID_TIME_RANGE")))
+                    .onErrorResume(e -> e instanceof WebClientException || e instanceof RestClientException, e -> {
+                        LOG.warn("Summarizing the hours of {} failed", email, e);
+                        return Mono.just(errorResponse(HttpStatus.BAD_GATEWAY, "CONNECTION_ERROR"));
+                    });
+        });
+    }
+
+    private static ResponseEntity<Flux<String>> streamingErrorResponse(HttpStatus status, String response) {
+        String body;
+        try {
+            body = OBJECT_MAPPER.writeValueAsString(ResponseMapping.getResponseBody(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(Flux.just(body));
+    }
+
+    private static ResponseEntity<Object> errorResponse(HttpStatus status, String response) {
+        return ResponseEntity.status(status).body(ResponseMapping.getResponseBody(response));
+    }
+}
@@ -0,0 +1,137 @@
+package com.timetracker.controller;
+
+import com.timetracker.model.RecordsPage;
+import com.timetracker.service.TimeTrackerService;
+import com.timetracker.utils.ResponseMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSON API for reading time records, for tools polling for new records.
+ * Pages are addressed by opaque cursors holding an index into the employee's records in the order they
+ * were recorded: the legacy offset less the null or malformed entries before it, which every replica skips
+ * alike, before and after a restart. The history only grows at the end, so a cursor keeps pointing at the
+ * same records while new ones are recorded.
+ * Responses carry an ETag derived from the version of the employee's cached records; a request whose
+ * If-None-Match matches the cached version is answered with 304 without calling the legacy service.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/api/records")
+public class RecordsApiController {
+
+    private final static Logger LOG = LoggerFactory.getLogger(RecordsApiController.class);
+
+    // Maximum number of records per response
+    final static int MAX_LIMIT = 100;
+
+    private final static String CURSOR_PREFIX = "o:";
+
+    @Autowired
+    public TimeTrackerService timeTrackerService;
+
+    /**
+     * Handles requests to the "/api/records" URL.
+     * Returns a page of time records for a given email with the cursor of the next page.
+     */
+    @GetMapping
+    public ResponseEntity<Object> getRecords(
+            @RequestParam String email,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int limit,
+            WebRequest request) {
+
+        int offset;
+        try {
+            offset = decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(HttpStatus.BAD_REQUEST, "INVALID_CURSOR");
+        }
+        int length = limit <= 0 ? timeTrackerService.getRecordsPerPage() : Math.min(limit, MAX_LIMIT);
+
+        // Answers an unchanged page from the cache alone
+        String cachedVersion = timeTrackerService.getCachedRecordsVersion(email, offset, length);
+        if (cachedVersion != null && request.checkNotModified(eTag(cachedVersion, offset, length))) {
+            return null;
+        }
+
+        // Checks if the user exists
+        String userCheckResponse = timeTrackerService.checkExistingUser(email);
+        if (!userCheckResponse.equals("USER_EXISTS")) {
+            HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+            return errorResponse(status, userCheckResponse);
+        }
+
+        RecordsPage page;
+        try {
+            page = timeTrackerService.getRecordsPage(email, offset, length);
+        } catch (RestClientException | IllegalArgumentException e) {
+            LOG.warn("Retrieving a page of the records of {} failed", email, e);
+            return errorResponse(HttpStatus.BAD_GATEWAY, "CONNECTION_ERROR");
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("email", email);
+        body.put("records", page.getRecords());
+        body.put("nextCursor", encodeCursor(page.getNextOffset()));
+        body.put("hasMore", page.isHasMore());
+
+        // Spring answers 304 itself if the fetched page turned out unchanged
+        return ResponseEntity.ok()
+                .eTag(eTag(page.getVersion(), offset, length))
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    /**
+     * Returns a weak ETag, since the same page may be sent gzip-compressed or not.
+     */
+    static String eTag(String version, int offset, int length) {
+        return "W/\"" + version + "-" + offset + "-" + length + "\"";
+    }
+
+    static String encodeCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((CURSOR_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into an index of the employee's records, which skips null and malformed legacy entries.
+     * @param cursor The cursor, or null for the first page.
+     * @return The index.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int offset = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return offset;
+    }
+
+    private static ResponseEntity<Object> errorResponse(HttpStatus status, String response) {
+        return ResponseEntity.status(status).body(ResponseMapping.getResponseBody(response));
+    }
+}
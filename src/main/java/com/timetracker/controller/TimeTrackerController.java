@@ -1,20 +1,50 @@
 package com.timetracker.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timetracker.model.HoursSummary;
+import com.timetracker.model.ImportReport;
+import com.timetracker.model.Submission;
+import com.timetracker.model.TeamRecords;
 import com.timetracker.model.TimeRecord;
+import com.timetracker.service.RecordExporter;
+import com.timetracker.service.TeamFetcher;
 import com.timetracker.service.TimeTrackerService;
 import com.timetracker.utils.ResponseMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Controller
 public class TimeTrackerController {
 
+    private final static Logger LOG = LoggerFactory.getLogger(TimeTrackerController.class);
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     @Autowired
     public TimeTrackerService timeTrackerService;
 
@@ -26,6 +56,7 @@ public class TimeTrackerController {
     public String index(
             @RequestParam(required = false, defaultValue = "") String recordResponse,
             @RequestParam(required = false, defaultValue = "") String email,
+            @RequestParam(required = false, defaultValue = "") String submissionId,
             Model model) {
 
         // Maps the record response to a user-friendly message
@@ -34,19 +65,23 @@ public class TimeTrackerController {
         // Adds attributes to the model to be used in the view
         model.addAttribute("recordResponse", processedRecordResponse);
         model.addAttribute("email", email);
+        model.addAttribute("submissionId", submissionId);
 
         return "index";
     }
 
     /**
      * Handles requests to the "/records" URL.
-     * Fetches time records for a given email and adds them to the model.
+     * Fetches time records for a given email and adds them to the model,
+     * either a page of them or, if from or to is given, those starting within the date range.
      */
     @GetMapping("/records")
     public String getTimeRecords(
             @RequestParam String email,
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(required = false, defaultValue = "false") boolean fetchMorePages,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             Model model) {
 
         // Checks if the user exists
@@ -55,29 +90,296 @@ public class TimeTrackerController {
             return "redirect:/?recordResponse=" + userCheckResponse + "&email=" + email;
         }
 
-        // Fetches records by email
-        List<TimeRecord> records = timeTrackerService.getRecordsByEmail(email, page, fetchMorePages);
+        // Fetches records by email, by date range or by page
+        boolean rangeQuery = from != null || to != null;
+        List<TimeRecord> records;
+        try {
+            records = rangeQuery
+                    ? timeTrackerService.getRecordsBetween(email, from, to)
+                    : timeTrackerService.getRecordsByEmail(email, page, fetchMorePages);
+        } catch (RestClientException e) {
+            LOG.warn("Retrieving the records of {} failed", email, e);
+            return "redirect:/?recordResponse=CONNECTION_ERROR&email=" + email;
+        }
 
         // Adds attributes to the model to be used in the view
         model.addAttribute("records", records);
         model.addAttribute("email", email);
+        model.addAttribute("rangeQuery", rangeQuery);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
         model.addAttribute("page", page);
         model.addAttribute("availablePages", timeTrackerService.getAvailablePages(email));
         model.addAttribute("bulkFetchPages", timeTrackerService.getBulkFetchPages());
+        model.addAttribute("outdated", timeTrackerService.isRecordsOutdated(email));
 
         return "records";
     }
 
+    /**
+     * Handles requests to the "/records/search" URL.
+     * Returns the time records of a given email starting within a date range as JSON, sorted by start time.
+     */
+    @GetMapping("/records/search")
+    @ResponseBody
+    public ResponseEntity<Object> searchTimeRecords(
+            @RequestParam String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        // Checks if the user exists
+        String userCheckResponse = timeTrackerService.checkExistingUser(email);
+        if (!userCheckResponse.equals("USER_EXISTS")) {
+            HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+            return errorResponse(status, userCheckResponse);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return errorResponse(HttpStatus.BAD_REQUEST, "INVALID_TIME_RANGE");
+        }
+
+        try {
+            return ResponseEntity.ok(timeTrackerService.getRecordsBetween(email, from, to));
+
+        } catch (RestClientException e) {
+            LOG.warn("Retrieving the records of {} failed", email, e);
+            return errorResponse(HttpStatus.BAD_GATEWAY, "CONNECTION_ERROR");
+        }
+    }
+
+    /**
+     * Handles requests to the "/team" URL.
+     * Fetches the time records of several emails concurrently and adds them to the model merged into one
+     * list sorted by start time, either a page of each or, if from or to is given, those starting within
+     * the date range. Emails whose records could not be fetched in time are listed as missing.
+     */
+    @GetMapping("/team")
+    public String getTeamRecords(
+            @RequestParam(required = false, defaultValue = "") String emails,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Model model) {
+
+        List<String> teamEmails = TeamFetcher.parseEmails(emails);
+        boolean rangeQuery = from != null || to != null;
+
+        // Adds attributes to the model to be used in the view
+        model.addAttribute("emails", String.join(", ", teamEmails));
+        model.addAttribute("rangeQuery", rangeQuery);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("page", page);
+
+        // Shows the form only until emails are entered
+        if (teamEmails.isEmpty()) {
+            return "team";
+        }
+        String teamCheckResponse = checkTeamRequest(teamEmails, from, to, timeTrackerService.getMaxTeamSize());
+        if (teamCheckResponse != null) {
+            model.addAttribute("errorMessage", ResponseMapping.getMappedResponse(teamCheckResponse));
+            return "team";
+        }
+
+        model.addAttribute("team", timeTrackerService.getTeamRecords(teamEmails, page, from, to));
+        return "team";
+    }
+
+    /**
+     * Handles requests to the "/team/records" URL.
+     * Returns the time records of several emails as JSON, merged into one list sorted by start time,
+     * with the outcome of each email. The response is partial if some emails could not be fetched in time.
+     */
+    @GetMapping("/team/records")
+    @ResponseBody
+    public ResponseEntity<Object> searchTeamRecords(
+            @RequestParam String emails,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        List<String> teamEmails = TeamFetcher.parseEmails(emails);
+        String teamCheckResponse = checkTeamRequest(teamEmails, from, to, timeTrackerService.getMaxTeamSize());
+        if (teamCheckResponse != null) {
+            return errorResponse(HttpStatus.BAD_REQUEST, teamCheckResponse);
+        }
+
+        TeamRecords team = timeTrackerService.getTeamRecords(teamEmails, page, from, to);
+        return ResponseEntity.ok(team);
+    }
+
+    /**
+     * Handles requests to the "/records/export" URL.
+     * Streams the full history of a given email as a CSV or NDJSON download, written while it is read from the legacy service.
+     */
+    @GetMapping("/records/export")
+    public ResponseEntity<StreamingResponseBody> exportTimeRecords(
+            @RequestParam String email,
+            @RequestParam(defaultValue = RecordExporter.FORMAT_CSV) String format) {
+
+        if (!RecordExporter.isSupportedFormat(format)) {
+            return streamingErrorResponse(HttpStatus.BAD_REQUEST, "INVALID_EXPORT_FORMAT");
+        }
+
+        // Checks if the user exists
+        String userCheckResponse = timeTrackerService.checkExistingUser(email);
+        if (!userCheckResponse.equals("USER_EXISTS")) {
+            HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+            return streamingErrorResponse(status, userCheckResponse);
+        }
+
+        // Rows are written on an async request thread; a failure past the first rows can only abort the response
+        StreamingResponseBody body = out -> {
+            try {
+                timeTrackerService.exportRecords(email, format, out);
+            } catch (RestClientException e) {
+                LOG.warn("Exporting the records of {} failed", email, e);
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(RecordExporter.getContentType(format) + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("records." + format)
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Handles POST requests to the "/records/import" URL.
+     * Imports time records from an uploaded CSV file and returns the result of each row as JSON,
+     * with status 202 while the valid rows are submitted in the background.
+     */
+    @PostMapping("/records/import")
+    @ResponseBody
+    public ResponseEntity<Object> importTimeRecords(@RequestParam MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return importResponse(timeTrackerService.importRecords(in));
+
+        } catch (IOException e) {
+            LOG.warn("Reading the import file failed", e);
+            return errorResponse(HttpStatus.BAD_REQUEST, "INVALID_IMPORT_FILE");
+        }
+    }
+
     /**
      * Handles POST requests to the "/record" URL.
      * Records time for a given email and redirects to the index with the response message.
      */
     @PostMapping("/record")
     public String recordTime(@RequestParam String email, @RequestParam String startTime, @RequestParam String endTime, Model model) {
+        // Queues the record and redirects with the submission id for status polling
+        if (timeTrackerService.isWriteBehindEnabled()) {
+            Submission submission = timeTrackerService.queueTime(email, startTime, endTime);
+            String redirect = "redirect:/?recordResponse=" + submission.getStatus() + "&email=" + email;
+            return submission.getId() == null ? redirect : redirect + "&submissionId=" + submission.getId();
+        }
+
         // Records time and gets the response message
         String response = timeTrackerService.recordTime(email, startTime, endTime);
 
         // Redirects to the index page with the response message and email
         return "redirect:/?recordResponse=" + response + "&email=" + email;
     }
+
+    /**
+     * Handles requests to the "/records/import/status" URL.
+     * Returns the report of a recent import as JSON, to poll until its rows are submitted.
+     */
+    @GetMapping("/records/import/status")
+    @ResponseBody
+    public ResponseEntity<Object> getImportStatus(@RequestParam String id) {
+        ImportReport report = timeTrackerService.getImport(id);
+        return report == null ? errorResponse(HttpStatus.NOT_FOUND, "UNKNOWN_IMPORT") : ResponseEntity.ok(report);
+    }
+
+    /**
+     * Handles requests to the "/record/status" URL.
+     * Returns the status of a queued submission as JSON, for the index page to poll.
+     */
+    @GetMapping("/record/status")
+    @ResponseBody
+    public Map<String, Object> getSubmissionStatus(@RequestParam String id) {
+        Submission submission = timeTrackerService.getSubmission(id);
+        String status = submission == null ? "UNKNOWN_SUBMISSION" : submission.getStatus();
+
+        return Map.of(
+                "status", status,
+                "message", ResponseMapping.getMappedResponse(status),
+                "finished", submission == null || submission.isFinished());
+    }
+
+    /**
+     * Handles requests to the "/summary" URL.
+     * Returns the hours worked by an employee between two dates as JSON, in total and per day, ISO week or month.
+     */
+    @GetMapping("/summary")
+    @ResponseBody
+    public ResponseEntity<Object> getHoursSummary(
+            @RequestParam String email,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+
+        // Checks if the user exists
+        String userCheckResponse = timeTrackerService.checkExistingUser(email);
+        if (!userCheckResponse.equals("USER_EXISTS")) {
+            HttpStatus status = userCheckResponse.equals("INVALID_USER") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY;
+            return errorResponse(status, userCheckResponse);
+        }
+
+        try {
+            HoursSummary summary = timeTrackerService.getHoursSummary(email, from, to, granularity);
+            return ResponseEntity.ok(summary);
+
+        } catch (IllegalArgumentException e) {
+            return errorResponse(HttpStatus.BAD_REQUEST, "INVALID_TIME_RANGE");
+        } catch (RestClientException e) {
+            LOG.warn("Summarizing the hours of {} failed", email, e);
+            return errorResponse(HttpStatus.BAD_GATEWAY, "CONNECTION_ERROR");
+        }
+    }
+
+    /**
+     * Checks the parameters of a team request.
+     * @return The response key of the first problem found, or null if the request is valid.
+     */
+    static String checkTeamRequest(List<String> teamEmails, LocalDate from, LocalDate to, int maxTeamSize) {
+        if (teamEmails.isEmpty()) {
+            return "INVALID_TEAM";
+        }
+        if (teamEmails.size() > maxTeamSize) {
+            return "TEAM_TOO_LARGE";
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return "INVALID_TIME_RANGE";
+        }
+        return null;
+    }
+
+    static ResponseEntity<Object> importResponse(ImportReport report) {
+        switch (report.getStatus()) {
+            case "IMPORT_COMPLETED":
+                return ResponseEntity.ok(report);
+            case "IMPORT_RUNNING":
+                return ResponseEntity.accepted()
+                        .location(URI.create("/records/import/status?id=" + report.getId()))
+                        .body(report);
+            case "IMPORT_TOO_LARGE":
+                return errorResponse(HttpStatus.PAYLOAD_TOO_LARGE, report.getStatus());
+            default:
+                return errorResponse(HttpStatus.BAD_REQUEST, report.getStatus());
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> streamingErrorResponse(HttpStatus status, String response) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> OBJECT_MAPPER.writeValue(out, ResponseMapping.getResponseBody(response)));
+    }
+
+    private static ResponseEntity<Object> errorResponse(HttpStatus status, String response) {
+        return ResponseEntity.status(status).body(ResponseMapping.getResponseBody(response));
+    }
 }
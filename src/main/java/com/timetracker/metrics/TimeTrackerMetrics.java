@@ -0,0 +1,162 @@
+package com.timetracker.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of the records cache and of calls to the legacy service.
+ * - timetracker.cache.requests: retrieveRecords lookups, tagged result=hit|partial|miss
+ * - timetracker.legacy.requests: legacy call latency histogram, tagged operation and outcome=success|error
+ * - timetracker.legacy.in_flight: legacy calls in progress, tagged operation
+ * - timetracker.failures: errors handled without failing the caller, tagged component
+ */
+@Component
+public class TimeTrackerMetrics {
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentMap<String, Timer> legacyTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> legacyInFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> cacheCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> failureCounters = new ConcurrentHashMap<>();
+
+    // Default Constructor
+    public TimeTrackerMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public TimeTrackerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Counts a records cache lookup.
+     * @param result hit if the cache held the whole page, partial if it held part of it, miss otherwise.
+     */
+    public void recordCacheLookup(String result) {
+        cacheCounters.computeIfAbsent(result, key -> Counter.builder("timetracker.cache.requests")
+                .description("Records cache lookups")
+                .tag("result", key)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Counts a lookup of a range of records as a hit if the cache holds the whole range, partial if it
+     * holds part of it, and a miss otherwise. Bulk fetches always go to the external service and count as misses.
+     * @param cachedSize The number of cached records before the lookup.
+     * @param offset The offset of the range.
+     * @param length The length of the range.
+     * @param bulkFetch Whether the lookup is a bulk fetch.
+     */
+    public void recordCacheLookup(int cachedSize, int offset, int length, boolean bulkFetch) {
+        if (!bulkFetch && cachedSize >= offset + length) {
+            recordCacheLookup("hit");
+        } else if (!bulkFetch && cachedSize > offset) {
+            recordCacheLookup("partial");
+        } else {
+            recordCacheLookup("miss");
+        }
+    }
+
+    /**
+     * Counts an error a component handled without failing its caller, e.g. by serving cached records,
+     * retrying later or falling back to the local cache. The error itself is logged by the component.
+     * @param component The component, e.g. record_store.
+     */
+    public void recordFailure(String component) {
+        failureCounters.computeIfAbsent(component, key -> Counter.builder("timetracker.failures")
+                .description("Errors handled without failing the caller")
+                .tag("component", key)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Times a call to the legacy service and tracks it as in flight while it runs.
+     * @param operation The operation, e.g. queryRecords.
+     * @param call The call to run.
+     * @return The result of the call.
+     */
+    public <T> T recordLegacyCall(String operation, Supplier<T> call) {
+        AtomicInteger inFlight = legacyInFlight(operation);
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            legacyTimer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Times a non-blocking call to the legacy service from subscription to termination
+     * and tracks it as in flight meanwhile. Cancelled calls are counted as errors.
+     * @param operation The operation, e.g. queryRecords.
+     * @param call The call to run.
+     * @return The call, timed.
+     */
+    public <T> Mono<T> recordLegacyCall(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            AtomicInteger inFlight = legacyInFlight(operation);
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            return call.doFinally(signal -> {
+                String outcome = signal == SignalType.ON_COMPLETE ? "success" : "error";
+                legacyTimer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                inFlight.decrementAndGet();
+            });
+        });
+    }
+
+    /**
+     * Times a non-blocking streamed call to the legacy service from subscription to termination
+     * and tracks it as in flight meanwhile. Cancelled calls are counted as errors.
+     * @param operation The operation, e.g. exportRecords.
+     * @param call The call to run.
+     * @return The call, timed.
+     */
+    public <T> Flux<T> recordLegacyCall(String operation, Flux<T> call) {
+        return Flux.defer(() -> {
+            AtomicInteger inFlight = legacyInFlight(operation);
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            return call.doFinally(signal -> {
+                String outcome = signal == SignalType.ON_COMPLETE ? "success" : "error";
+                legacyTimer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                inFlight.decrementAndGet();
+            });
+        });
+    }
+
+    private AtomicInteger legacyInFlight(String operation) {
+        return legacyInFlight.computeIfAbsent(operation, key -> registry.gauge(
+                "timetracker.legacy.in_flight", Tags.of("operation", key), new AtomicInteger()));
+    }
+
+    private Timer legacyTimer(String operation, String outcome) {
+        return legacyTimers.computeIfAbsent(operation + ":" + outcome, key -> Timer.builder("timetracker.legacy.requests")
+                .description("Calls to the legacy TimeTracker service")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
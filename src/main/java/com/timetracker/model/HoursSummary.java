@@ -0,0 +1,90 @@
+package com.timetracker.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Hours worked by an employee over a date range, in total and per day, ISO week or month.
+ * A partial summary covers only the part of the history loaded before the history load timeout.
+ */
+public class HoursSummary {
+    private String email;
+    private String granularity;
+    private LocalDate from;
+    private LocalDate to;
+    private double totalHours;
+    private List<PeriodTotal> periods;
+    private boolean partial;
+
+    // Constructor to initialize HoursSummary
+    public HoursSummary(String email, String granularity, LocalDate from, LocalDate to, double totalHours, List<PeriodTotal> periods, boolean partial) {
+        this.email = email;
+        this.granularity = granularity;
+        this.from = from;
+        this.to = to;
+        this.totalHours = totalHours;
+        this.periods = periods;
+        this.partial = partial;
+    }
+
+    // Default Constructor
+    public HoursSummary() {
+    }
+
+    // Getters and Setters
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public void setTotalHours(double totalHours) {
+        this.totalHours = totalHours;
+    }
+
+    public void setPeriods(List<PeriodTotal> periods) {
+        this.periods = periods;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public double getTotalHours() {
+        return totalHours;
+    }
+
+    public List<PeriodTotal> getPeriods() {
+        return periods;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+}
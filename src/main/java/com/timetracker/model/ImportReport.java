@@ -0,0 +1,140 @@
+package com.timetracker.model;
+
+import java.util.List;
+
+/**
+ * The report of a bulk import: the status of the import as a whole, the number of rows
+ * submitted, still queued for submission, rejected by validation and failed on submission,
+ * and the result of each row in file order.
+ * The status is IMPORT_RUNNING while rows are submitted in the background, IMPORT_COMPLETED once
+ * all rows were processed, or a response key of ResponseMapping explaining why the file was not
+ * processed at all.
+ */
+public class ImportReport {
+    private String id;
+    private volatile String status;
+    private int rows;
+    private volatile int submitted;
+    private volatile int queued;
+    private int rejected;
+    private volatile int failed;
+    private List<ImportResult> results;
+
+    // Constructor to initialize ImportReport, counting the row outcomes
+    public ImportReport(String id, String status, List<ImportResult> results) {
+        this.id = id;
+        this.status = status;
+        this.results = results;
+        this.rows = results.size();
+        for (ImportResult result : results) {
+            if ("SUBMIT_SUCCESS".equals(result.getStatus())) {
+                submitted++;
+            } else if ("SUBMIT_QUEUED".equals(result.getStatus())) {
+                queued++;
+            } else if ("SUBMIT_ERROR".equals(result.getStatus()) || "CONNECTION_ERROR".equals(result.getStatus())) {
+                failed++;
+            } else {
+                rejected++;
+            }
+        }
+    }
+
+    // Constructor for an import that was not processed
+    public ImportReport(String status, List<ImportResult> results) {
+        this(null, status, results);
+    }
+
+    // Default Constructor
+    public ImportReport() {
+    }
+
+    /**
+     * Records the outcome of submitting a queued row, completing the import with its last row.
+     * @param result The row.
+     * @param status The status of the submission.
+     */
+    public synchronized void submitted(ImportResult result, String status) {
+        result.setStatus(status);
+        if ("SUBMIT_SUCCESS".equals(status)) {
+            submitted++;
+        } else {
+            failed++;
+        }
+        if (--queued == 0) {
+            this.status = "IMPORT_COMPLETED";
+        }
+    }
+
+    /**
+     * Checks whether the import has reached a final status.
+     * @return True unless rows are still being submitted.
+     */
+    public boolean isFinished() {
+        return !"IMPORT_RUNNING".equals(status);
+    }
+
+    // Getters and Setters
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    public void setSubmitted(int submitted) {
+        this.submitted = submitted;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public void setResults(List<ImportResult> results) {
+        this.results = results;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<ImportResult> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,76 @@
+package com.timetracker.model;
+
+import com.timetracker.utils.ResponseMapping;
+
+/**
+ * The outcome of one row of a bulk import.
+ * The status is one of the response keys of ResponseMapping.
+ */
+public class ImportResult {
+    private int line;
+    private String email;
+    private String startTime;
+    private String endTime;
+    private volatile String status;
+
+    // Constructor to initialize ImportResult
+    public ImportResult(int line, String email, String startTime, String endTime) {
+        this.line = line;
+        this.email = email;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    // Default Constructor
+    public ImportResult() {
+    }
+
+    /**
+     * Returns the user-friendly message of the status.
+     * @return The message.
+     */
+    public String getMessage() {
+        return ResponseMapping.getMappedResponse(status);
+    }
+
+    // Getters and Setters
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,49 @@
+package com.timetracker.model;
+
+import java.util.List;
+
+/**
+ * A page of records served by the replica owning an email to another replica, with the number of
+ * records the owner has cached for the email, for pagination, and whether they may be outdated.
+ */
+public class PeerPage {
+    private List<TimeRecord> records;
+    private int cachedSize;
+    private boolean outdated;
+
+    // Constructor to initialize PeerPage
+    public PeerPage(List<TimeRecord> records, int cachedSize, boolean outdated) {
+        this.records = records;
+        this.cachedSize = cachedSize;
+        this.outdated = outdated;
+    }
+
+    // Default Constructor
+    public PeerPage() {
+    }
+
+    // Getters and Setters
+    public void setRecords(List<TimeRecord> records) {
+        this.records = records;
+    }
+
+    public void setCachedSize(int cachedSize) {
+        this.cachedSize = cachedSize;
+    }
+
+    public void setOutdated(boolean outdated) {
+        this.outdated = outdated;
+    }
+
+    public List<TimeRecord> getRecords() {
+        return records;
+    }
+
+    public int getCachedSize() {
+        return cachedSize;
+    }
+
+    public boolean isOutdated() {
+        return outdated;
+    }
+}
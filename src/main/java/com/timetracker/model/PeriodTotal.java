@@ -0,0 +1,58 @@
+package com.timetracker.model;
+
+import java.time.LocalDate;
+
+/**
+ * Hours worked in one day, ISO week or month of an hours summary.
+ */
+public class PeriodTotal {
+    private String period;
+    private LocalDate from;
+    private LocalDate to;
+    private double hours;
+
+    // Constructor to initialize PeriodTotal
+    public PeriodTotal(String period, LocalDate from, LocalDate to, double hours) {
+        this.period = period;
+        this.from = from;
+        this.to = to;
+        this.hours = hours;
+    }
+
+    // Default Constructor
+    public PeriodTotal() {
+    }
+
+    // Getters and Setters
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public void setHours(double hours) {
+        this.hours = hours;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public double getHours() {
+        return hours;
+    }
+}
@@ -0,0 +1,60 @@
+package com.timetracker.model;
+
+import java.util.List;
+
+/**
+ * A range of an employee's records in legacy offset order, with the version of the cached records it was read from.
+ * The next offset is the index of the record following the range, counting the records without the null
+ * or malformed legacy entries.
+ */
+public class RecordsPage {
+    private List<TimeRecord> records;
+    private String version;
+    private int nextOffset;
+    private boolean hasMore;
+
+    // Constructor to initialize RecordsPage
+    public RecordsPage(List<TimeRecord> records, String version, int nextOffset, boolean hasMore) {
+        this.records = records;
+        this.version = version;
+        this.nextOffset = nextOffset;
+        this.hasMore = hasMore;
+    }
+
+    // Default Constructor
+    public RecordsPage() {
+    }
+
+    // Getters and Setters
+    public void setRecords(List<TimeRecord> records) {
+        this.records = records;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public void setNextOffset(int nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<TimeRecord> getRecords() {
+        return records;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getNextOffset() {
+        return nextOffset;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,84 @@
+package com.timetracker.model;
+
+/**
+ * A time record submission accepted by the write-behind queue, with its current status.
+ * The status is one of the response keys of ResponseMapping.
+ */
+public class Submission {
+    private String id;
+    private String email;
+    private String startTime;
+    private String endTime;
+    private volatile String status;
+    private volatile int attempts;
+
+    // Constructor to initialize Submission
+    public Submission(String id, String email, String startTime, String endTime, String status) {
+        this.id = id;
+        this.email = email;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.status = status;
+    }
+
+    // Default Constructor
+    public Submission() {
+    }
+
+    /**
+     * Checks whether the submission has reached a final status.
+     * @return True if the submission succeeded or was given up, false while it is queued or retrying.
+     */
+    public boolean isFinished() {
+        return !"SUBMIT_QUEUED".equals(status) && !"SUBMIT_RETRYING".equals(status);
+    }
+
+    // Getters and Setters
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,73 @@
+package com.timetracker.model;
+
+import com.timetracker.utils.ResponseMapping;
+
+/**
+ * The outcome of fetching one employee's records for a team view.
+ * The status is RECORDS_LOADED if the records were retrieved, or a response key of ResponseMapping
+ * explaining why they were not, e.g. FETCH_TIMEOUT if they did not arrive before the member's deadline.
+ */
+public class TeamMember {
+    private String email;
+    private String status;
+    private int records;
+    private boolean outdated;
+
+    // Constructor to initialize TeamMember
+    public TeamMember(String email, String status, int records, boolean outdated) {
+        this.email = email;
+        this.status = status;
+        this.records = records;
+        this.outdated = outdated;
+    }
+
+    // Default Constructor
+    public TeamMember() {
+    }
+
+    // Getters and Setters
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setRecords(int records) {
+        this.records = records;
+    }
+
+    public void setOutdated(boolean outdated) {
+        this.outdated = outdated;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    public boolean isOutdated() {
+        return outdated;
+    }
+
+    public String getMessage() {
+        return ResponseMapping.getMappedResponse(status);
+    }
+
+    /**
+     * Checks whether the member's records are missing from the team view because fetching them failed,
+     * as opposed to being loaded or the email not being a user.
+     * @return True if the records could not be fetched.
+     */
+    public boolean isFailed() {
+        return !"RECORDS_LOADED".equals(status) && !"INVALID_USER".equals(status);
+    }
+}
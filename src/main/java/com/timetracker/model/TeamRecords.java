@@ -0,0 +1,50 @@
+package com.timetracker.model;
+
+import java.util.List;
+
+/**
+ * The records of a team: the outcome for each member in the order the emails were given, and the
+ * records of all members merged into one list sorted by start time.
+ * The view is partial if the records of some members could not be fetched in time.
+ */
+public class TeamRecords {
+    private List<TeamMember> members;
+    private List<TimeRecord> records;
+    private boolean partial;
+
+    // Constructor to initialize TeamRecords, checking for failed members
+    public TeamRecords(List<TeamMember> members, List<TimeRecord> records) {
+        this.members = members;
+        this.records = records;
+        this.partial = members.stream().anyMatch(TeamMember::isFailed);
+    }
+
+    // Default Constructor
+    public TeamRecords() {
+    }
+
+    // Getters and Setters
+    public void setMembers(List<TeamMember> members) {
+        this.members = members;
+    }
+
+    public void setRecords(List<TimeRecord> records) {
+        this.records = records;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    public List<TeamMember> getMembers() {
+        return members;
+    }
+
+    public List<TimeRecord> getRecords() {
+        return records;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+}
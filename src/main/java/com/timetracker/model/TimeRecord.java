@@ -1,18 +1,31 @@
 package com.timetracker.model;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.timetracker.utils.Utils;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
 
+// Serialized to JSON with the fields of the legacy service only
+@JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
 public class TimeRecord {
+    // Null for a record created from epoch milliseconds until the time is first read as a string
     private String start;
     private String end;
     private String email;
 
+    // Values decoded once from start/end when they are set
+    private long startEpochMillis = Utils.INVALID_TIME;
+    private long endEpochMillis = Utils.INVALID_TIME;
+    private LocalDateTime startDateTime;
+    private LocalDateTime endDateTime;
+
     // Constructor to initialize TimeRecord
     public TimeRecord(String start, String end, String email) {
-        this.start = start;
-        this.end = end;
+        setStart(start);
+        setEnd(end);
         this.email = email;
     }
 
@@ -20,12 +33,31 @@ public class TimeRecord {
     public TimeRecord() {
     }
 
+    /**
+     * Creates a record from epoch milliseconds. The times are formatted in legacy response format
+     * only when first read as strings, so records that are only summed or filtered by time are never formatted.
+     * @param startEpochMillis The start time, or Utils.INVALID_TIME if missing.
+     * @param endEpochMillis The end time, or Utils.INVALID_TIME if missing.
+     * @param email The email of the record.
+     * @return The record.
+     */
+    public static TimeRecord fromEpochMillis(long startEpochMillis, long endEpochMillis, String email) {
+        TimeRecord record = new TimeRecord();
+        record.startEpochMillis = startEpochMillis;
+        record.startDateTime = toMinuteDateTime(startEpochMillis);
+        record.endEpochMillis = endEpochMillis;
+        record.endDateTime = toMinuteDateTime(endEpochMillis);
+        record.email = email;
+        return record;
+    }
+
     /**
      * Checks if any field (start, end, or email) is null.
      * @return True if any field is null, false otherwise.
      */
     public boolean anyFieldNull() {
-        return start == null || end == null || email == null;
+        return (start == null && startEpochMillis == Utils.INVALID_TIME)
+                || (end == null && endEpochMillis == Utils.INVALID_TIME) || email == null;
     }
 
     /**
@@ -41,39 +73,56 @@ public class TimeRecord {
      * @return True if the start time is before the end time, false otherwise.
      */
     public boolean validateStartEndTime() {
-        return Utils.validateLegacyStartEndTime(start, end);
+        return startEpochMillis != Utils.INVALID_TIME && endEpochMillis != Utils.INVALID_TIME
+                && startEpochMillis < endEpochMillis;
     }
 
     /**
-     * Converts the start time to ISO format.
-     * @return The start time in ISO format.
+     * Returns the start time in ISO format.
+     * @return The start time in ISO format, or null if it could not be parsed.
      */
     public String getFormattedStart() {
-        return Utils.toIsoTimeFormat(start);
+        return startDateTime == null ? null : getStart().substring(0, 16);
     }
 
     /**
-     * Converts the end time to ISO format.
-     * @return The end time in ISO format.
+     * Returns the end time in ISO format.
+     * @return The end time in ISO format, or null if it could not be parsed.
      */
     public String getFormattedEnd() {
-        return Utils.toIsoTimeFormat(end);
+        return endDateTime == null ? null : getEnd().substring(0, 16);
     }
 
     /**
-     * Parses and returns the start time as a LocalDateTime object.
-     * @return The start time as LocalDateTime.
+     * Returns the start time as a LocalDateTime object, truncated to minutes like the ISO format.
+     * @return The start time as LocalDateTime, or null if it could not be parsed.
      */
     public LocalDateTime getStartDateTime() {
-        return LocalDateTime.parse(getFormattedStart());
+        return startDateTime;
     }
 
     /**
-     * Parses and returns the end time as a LocalDateTime object.
-     * @return The end time as LocalDateTime.
+     * Returns the end time as a LocalDateTime object, truncated to minutes like the ISO format.
+     * @return The end time as LocalDateTime, or null if it could not be parsed.
      */
     public LocalDateTime getEndDateTime() {
-        return LocalDateTime.parse(getFormattedEnd());
+        return endDateTime;
+    }
+
+    /**
+     * Returns the start time in epoch milliseconds (UTC).
+     * @return The start time, or Utils.INVALID_TIME if it could not be parsed.
+     */
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * Returns the end time in epoch milliseconds (UTC).
+     * @return The end time, or Utils.INVALID_TIME if it could not be parsed.
+     */
+    public long getEndEpochMillis() {
+        return endEpochMillis;
     }
 
     /**
@@ -81,7 +130,7 @@ public class TimeRecord {
      * @return The start date as a string.
      */
     public String getStartDate() {
-        return getFormattedStart().split("T")[0];
+        return startDateTime == null ? null : getStart().substring(0, 10);
     }
 
     /**
@@ -89,7 +138,7 @@ public class TimeRecord {
      * @return The start time as a string.
      */
     public String getStartTime() {
-        return getFormattedStart().split("T")[1];
+        return startDateTime == null ? null : getStart().substring(11, 16);
     }
 
     /**
@@ -97,7 +146,7 @@ public class TimeRecord {
      * @return The end date as a string.
      */
     public String getEndDate() {
-        return getFormattedEnd().split("T")[0];
+        return endDateTime == null ? null : getEnd().substring(0, 10);
     }
 
     /**
@@ -105,31 +154,72 @@ public class TimeRecord {
      * @return The end time as a string.
      */
     public String getEndTime() {
-        return getFormattedEnd().split("T")[1];
+        return endDateTime == null ? null : getEnd().substring(11, 16);
+    }
+
+    /**
+     * Converts epoch milliseconds to a LocalDateTime truncated to minutes.
+     * @return The LocalDateTime, or null for Utils.INVALID_TIME.
+     */
+    private static LocalDateTime toMinuteDateTime(long epochMillis) {
+        if (epochMillis == Utils.INVALID_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 60000L) * 60L, 0, ZoneOffset.UTC);
     }
 
     // Getters and Setters
     public void setStart(String start) {
         this.start = start;
+        this.startEpochMillis = Utils.parseLegacyEpochMillis(start);
+        this.startDateTime = toMinuteDateTime(startEpochMillis);
     }
 
     public void setEnd(String end) {
         this.end = end;
+        this.endEpochMillis = Utils.parseLegacyEpochMillis(end);
+        this.endDateTime = toMinuteDateTime(endEpochMillis);
     }
 
     public void setEmail(String email) {
         this.email = email;
     }
 
+    @JsonProperty
     public String getStart() {
+        if (start == null && startEpochMillis != Utils.INVALID_TIME) {
+            start = Utils.formatLegacyEpochMillis(startEpochMillis);
+        }
         return start;
     }
 
+    @JsonProperty
     public String getEnd() {
+        if (end == null && endEpochMillis != Utils.INVALID_TIME) {
+            end = Utils.formatLegacyEpochMillis(endEpochMillis);
+        }
         return end;
     }
 
+    @JsonProperty
     public String getEmail() {
         return email;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimeRecord)) {
+            return false;
+        }
+        TimeRecord other = (TimeRecord) o;
+        return Objects.equals(getStart(), other.getStart()) && Objects.equals(getEnd(), other.getEnd()) && Objects.equals(email, other.email);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getStart(), getEnd(), email);
+    }
 }
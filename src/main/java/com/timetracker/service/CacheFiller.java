@@ -0,0 +1,341 @@
+package com.timetracker.service;
+
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.cache.UserExistenceCache;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.RecordsPage;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.utils.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides what the records cache fetches for a view and keeps the books of each fetch, for both
+ * TimeTrackerService and ReactiveTimeTrackerService, which only differ in how they call the legacy service.
+ * Holds the paging settings, the checks of whether a range is answered from the cache, the read-ahead
+ * decision and the bookkeeping of a fetch: appending its batches, verifying the tail of a renewed or
+ * restored entry, and recording what the fetch revealed about the employee.
+ */
+@Component
+public class CacheFiller {
+
+    private int recordsPerPage;
+
+    private int bulkFetchPages;
+
+    // How long a fetch that reached the end of a history vouches for a page at the end
+    private int tailRefreshSec;
+
+    // How long a request loads an employee's history before it is served from the part loaded so far
+    private int historyLoadTimeoutMs;
+
+    private final RecordsCache recordsByEmail;
+
+    private final UserExistenceCache userExistence;
+
+    private final ReadAheadPrefetcher prefetcher;
+
+    private final TailSyncer tailSyncer;
+
+    private final TimeTrackerMetrics metrics;
+
+    @Autowired
+    public CacheFiller(
+            @Value("${timetracker.records_per_page:10}") int recordsPerPage,
+            @Value("${timetracker.bulk_fetch_pages:5}") int bulkFetchPages,
+            @Value("${timetracker.api.tail_refresh_sec:5}") int tailRefreshSec,
+            @Value("${timetracker.history.load_timeout_ms:10000}") int historyLoadTimeoutMs,
+            RecordsCache recordsByEmail,
+            UserExistenceCache userExistence,
+            ReadAheadPrefetcher prefetcher,
+            TailSyncer tailSyncer,
+            TimeTrackerMetrics metrics) {
+
+        this.recordsPerPage = recordsPerPage;
+        this.bulkFetchPages = bulkFetchPages;
+        this.tailRefreshSec = tailRefreshSec;
+        this.historyLoadTimeoutMs = historyLoadTimeoutMs;
+        this.recordsByEmail = recordsByEmail;
+        this.userExistence = userExistence;
+        this.prefetcher = prefetcher;
+        this.tailSyncer = tailSyncer;
+        this.metrics = metrics;
+    }
+
+    public int getRecordsPerPage() {
+        return recordsPerPage;
+    }
+
+    public int getBulkFetchPages() {
+        return bulkFetchPages;
+    }
+
+    /**
+     * Returns the number of records a bulk fetch adds to the cache, at least one.
+     * @return The bulk size.
+     */
+    public int bulkSize() {
+        return Math.max(1, bulkFetchPages * recordsPerPage);
+    }
+
+    /**
+     * Returns the System.nanoTime() until which a history is loaded for a request started now.
+     * @return The deadline.
+     */
+    public long historyLoadDeadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(historyLoadTimeoutMs);
+    }
+
+    /**
+     * Looks up a range of records for a view, recording the lookup and the view of the email.
+     * A range the cache lacks is fetched unless it lies at the end of a history the tail syncer keeps up to date.
+     * @param email The email being viewed.
+     * @param cached The cached records of the email.
+     * @param offset The offset of the range.
+     * @param length The length of the range.
+     * @param bulkFetch Whether a bulk fetch is requested.
+     * @return True if records must be fetched first.
+     */
+    public boolean needsFetch(String email, EmployeeRecords cached, int offset, int length, boolean bulkFetch) {
+        int cachedSize = cached.size();
+        metrics.recordCacheLookup(cachedSize, offset, length, bulkFetch);
+        tailSyncer.touch(email);
+        return bulkFetch || (cachedSize < offset + length && !tailSyncer.isTailFresh(email, cached));
+    }
+
+    /**
+     * Looks up a range of records for the records API, recording the lookup and the view of the email.
+     * @param email The email being viewed.
+     * @param cached The cached records of the email.
+     * @param offset The index of the first record of the range, in the order the records were recorded.
+     * @param length The length of the range.
+     * @return True if the range is not answered from the cache and must be fetched first.
+     */
+    public boolean pageNeedsFetch(String email, EmployeeRecords cached, int offset, int length) {
+        tailSyncer.touch(email);
+        if (isAnsweredFromCache(email, cached, offset, length)) {
+            metrics.recordCacheLookup("hit");
+            return false;
+        }
+        metrics.recordCacheLookup(cached.size(), offset, length, false);
+        return true;
+    }
+
+    /**
+     * Checks whether a range is fetched already, or lies at the end of a history whose end was reached
+     * recently or is kept up to date by the tail syncer.
+     * @param email The email of the records.
+     * @param cached The cached records of the email.
+     * @param offset The index of the first record of the range, in the order the records were recorded.
+     * @param length The length of the range.
+     * @return True if the range is answered without the legacy service.
+     */
+    public boolean isAnsweredFromCache(String email, EmployeeRecords cached, int offset, int length) {
+        return cached.fetchedSize() >= offset + length
+                || cached.isEndReachedWithin(TimeUnit.SECONDS.toNanos(tailRefreshSec))
+                || tailSyncer.isTailFresh(email, cached);
+    }
+
+    /**
+     * Returns the number of records the cache should hold after the next bulk fetch.
+     * @param cachedSize The number of records cached now.
+     * @return The target size.
+     */
+    public int bulkTarget(int cachedSize) {
+        return cachedSize + bulkFetchPages * recordsPerPage;
+    }
+
+    /**
+     * Decides whether to fetch the next bulk of records in the background, which is when the viewed
+     * position is within the read-ahead depth of the end of the cached records.
+     * @param cached The cached records of the email.
+     * @param viewedEnd The offset after the last record being viewed.
+     * @return The number of records the cache should hold after reading ahead, or -1 not to read ahead.
+     */
+    public int readAheadTarget(EmployeeRecords cached, int viewedEnd) {
+        if (cached.isEndReached() || !prefetcher.isWithinReadAheadWindow(cached.size() - viewedEnd, recordsPerPage)) {
+            return -1;
+        }
+        return bulkTarget(cached.size());
+    }
+
+    /**
+     * Copies a range of cached records sorted by start time.
+     * @param cached The cached records.
+     * @param offset The offset of the range.
+     * @param length The length of the range.
+     * @param considerNullField Whether to include records with missing fields or an end not after the start.
+     * @return A new list with the records in range.
+     */
+    public List<TimeRecord> copySorted(EmployeeRecords cached, int offset, int length, boolean considerNullField) {
+        List<TimeRecord> result = cached.copyRange(offset, offset + length, considerNullField);
+        result.sort(Comparator.comparingLong(TimeRecord::getStartEpochMillis));
+        return result;
+    }
+
+    /**
+     * Reads a range of cached records in legacy offset order for the records API.
+     * @param cached The cached records.
+     * @param offset The index of the first record of the range, in the order the records were recorded.
+
+     * @param length The length of the range.
+     * @return The records with the version of the cached records they were read from.
+     */
+    public RecordsPage page(EmployeeRecords cached, int offset, int length) {
+        // Read the version first, so that it is never newer than the records
+        String version = cached.version();
+        List<TimeRecord> records = cached.copyRange(offset, offset + length);
+        return new RecordsPage(records, version, pageEnd(cached, offset, records), !isLastPage(cached, offset, records));
+    }
+
+    /**
+     * Returns the index following a page. Provisional records do not have a legacy offset yet, so the
+     * next page starts after the last fetched record of the page and serves them again until they are
+     * fetched back.
+     */
+    static int pageEnd(EmployeeRecords cached, int offset, List<TimeRecord> records) {
+        return Math.max(offset, Math.min(offset + records.size(), cached.fetchedSize()));
+    }
+
+    /**
+     * Checks whether a page holds the end of the history: the end was reached and no fetched record follows.
+     */
+    static boolean isLastPage(EmployeeRecords cached, int offset, List<TimeRecord> records) {
+        return cached.isEndReached() && pageEnd(cached, offset, records) >= cached.fetchedSize();
+    }
+
+    /**
+     * Starts the bookkeeping of a fetch of a range of records into the cache.
+     * @param email The email the records are fetched for.
+     * @param cached The cached records of the email.
+     * @param offset The legacy offset of the range.
+     * @param length The length of the range.
+     * @return The fetch, which tells the range to request from the legacy service.
+     */
+    public Fetch startFetch(String email, EmployeeRecords cached, int offset, int length) {
+        return new Fetch(email, cached, offset, length);
+    }
+
+    /**
+     * Records what a fetch appended to the cache revealed about the employee.
+     * @param received The number of records the legacy service returned.
+     * @return True if fewer records than requested were returned, i.e. the end of the history was reached.
+     */
+    public boolean completeFetch(String email, EmployeeRecords cached, int offset, int length, int received) {
+        boolean exhausted = received < length;
+        cached.setEndReached(exhausted);
+        cached.setOutdated(false);
+        if (received > 0 || offset == 0) {
+            userExistence.put(email, received > 0);
+        }
+        return exhausted;
+    }
+
+    /**
+     * Returns whether an email is known to have records, from a recent check or fetch.
+     * @param email The email to look up.
+     * @return True or false if known, null if the email must be checked with the legacy service.
+     */
+    public Boolean knownExistence(String email) {
+        return userExistence.get(email);
+    }
+
+    /**
+     * Records the result of a user check.
+     * @param email The email checked.
+     * @param exists Whether the email has records.
+     */
+    public void userChecked(String email, boolean exists) {
+        userExistence.put(email, exists);
+    }
+
+    /**
+     * Records that the legacy service accepted a record, so that its employee exists.
+     * @param email The email the record was submitted for.
+     * @param startTime The start time in ISO format.
+     * @param endTime The end time in ISO format.
+     * @return The submitted record, to add to the cached records of the email.
+     */
+    public TimeRecord submitted(String email, String startTime, String endTime) {
+        userExistence.put(email, true);
+        return new TimeRecord(Utils.toLegacyResponseTimeFormat(startTime), Utils.toLegacyResponseTimeFormat(endTime), email);
+    }
+
+    /**
+     * A fetch of a range of records into the cache, appended batch by batch while the response is decoded.
+     * If the cached tail is not verified since the entry was renewed or restored, the last cached entry
+     * is requested with the range and compared first, and nothing is appended if it no longer matches.
+     */
+    public class Fetch {
+
+        private final String email;
+        private final EmployeeRecords cached;
+        private final int offset;
+        private final int length;
+        private final boolean verify;
+
+        private int received;
+        private boolean changed;
+
+        private Fetch(String email, EmployeeRecords cached, int offset, int length) {
+            this.email = email;
+            this.cached = cached;
+            this.verify = offset > 0 && offset == cached.nextOffset() && cached.isTailUnverified();
+            this.offset = verify ? offset - 1 : offset;
+            this.length = verify ? length + 1 : length;
+        }
+
+        /**
+         * Returns the legacy offset to request.
+         * @return The offset.
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the number of records to request.
+         * @return The length.
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Appends the next batch of the response to the cache.
+         * @param batch The records, with null for null or malformed entries, which hold their offsets.
+         */
+        public void append(List<TimeRecord> batch) {
+            if (verify && received == 0 && !batch.isEmpty() && !cached.matchesEntryAt(offset, batch.get(0))) {
+                changed = true;
+            }
+            if (!changed) {
+                cached.appendAt(offset + received, batch);
+            }
+            received += batch.size();
+        }
+
+        /**
+         * Records what the fetch revealed once the response is read. If the verified tail changed, the
+         * records of the email are dropped, cached and stored, so that the next fetch starts over from
+         * the first offset.
+         * @return True if the employee has no records past the range.
+         */
+        public boolean complete() {
+            if (verify) {
+                if (changed || received == 0) {
+                    recordsByEmail.resetHistory(email, cached);
+                    return false;
+                }
+                cached.setTailUnverified(false);
+            }
+            return completeFetch(email, cached, offset, length, received);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.timetracker.service;
+
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.model.HoursSummary;
+import com.timetracker.model.PeriodTotal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Summarizes the hours worked by an employee over a date range, in total and per day, ISO week or month,
+ * and loads employees' whole histories into the records cache for the summaries and date range queries.
+ * The totals are read from the per-day prefix sums the cache keeps, without scanning records.
+ * Days are UTC days. Records spanning midnight count towards each day they cover, and periods
+ * at the edges of the range are cut to the range.
+ */
+@Component
+public class HoursSummarizer {
+
+    // Granularities of hours summaries
+    private final static Set<String> SUMMARY_GRANULARITIES = Set.of("day", "week", "month");
+
+    // Maximum number of periods in an hours summary
+    private final static int MAX_SUMMARY_PERIODS = 1000;
+
+    /**
+     * Fetches the records of an email until the cache holds a number of records or the end of the history.
+     */
+    public interface CacheFill {
+        void fill(String email, EmployeeRecords cached, int targetSize);
+    }
+
+    private final RecordsCache recordsByEmail;
+
+    private final CacheFiller cacheFiller;
+
+    @Autowired
+    public HoursSummarizer(RecordsCache recordsByEmail, CacheFiller cacheFiller) {
+        this.recordsByEmail = recordsByEmail;
+        this.cacheFiller = cacheFiller;
+    }
+
+    /**
+     * Summarizes the hours worked by an employee, loading the employee's whole history into the cache
+     * first, for at most the history load timeout.
+     * @param email The email to summarize hours for.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @param granularity The period length: "day", "week" or "month".
+     * @param fill Fetches records into the cache.
+     * @return The hours summary, partial if the history could not be loaded within the timeout.
+     * @throws IllegalArgumentException If the granularity is unknown, from is after to, or the range has too many periods.
+     */
+    public HoursSummary summarize(String email, LocalDate from, LocalDate to, String granularity, CacheFill fill) {
+        List<LocalDate> periodStarts = periodStarts(from, to, granularity);
+        return summarize(loadHistory(email, fill), email, from, to, granularity, periodStarts);
+    }
+
+    /**
+     * Summarizes the hours worked by an employee from the cached records, without fetching any.
+     * @param email The email to summarize hours for.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @param granularity The period length: "day", "week" or "month".
+     * @return The hours summary, partial unless the cache holds the end of the employee's history.
+     * @throws IllegalArgumentException If the granularity is unknown, from is after to, or the range has too many periods.
+     */
+    public HoursSummary summarizeCached(String email, LocalDate from, LocalDate to, String granularity) {
+        List<LocalDate> periodStarts = periodStarts(from, to, granularity);
+        return summarize(recordsByEmail.getOrCreate(email), email, from, to, granularity, periodStarts);
+    }
+
+    /**
+     * Fetches the records of an email until the cache holds the end of the employee's history, or
+     * until the history load timeout, fetching at least one bulk. A history not loaded by then is flagged as outdated, and the
+     * next request continues loading it from the last fetched record.
+     * @param email The email to load records for.
+     * @param fill Fetches records into the cache.
+     * @return The cached records.
+     */
+    public EmployeeRecords loadHistory(String email, CacheFill fill) {
+        EmployeeRecords cached = recordsByEmail.getOrCreate(email);
+        int cachedSize = cached.size();
+        int bulkSize = cacheFiller.bulkSize();
+        long deadline = cacheFiller.historyLoadDeadline();
+        if (!cached.isEndReached()) {
+            do {
+                fill.fill(email, cached, cached.size() + bulkSize);
+            } while (!cached.isEndReached() && System.nanoTime() - deadline < 0);
+        }
+        if (cached.size() != cachedSize) {
+            recordsByEmail.recordsAdded(email);
+        }
+        if (!cached.isEndReached()) {
+            cached.setOutdated(true);
+        }
+        return cached;
+    }
+
+    /**
+     * Returns the first days of the periods of a summary range.
+     * @throws IllegalArgumentException If the granularity is unknown, from is after to, or the range has too many periods.
+     */
+    static List<LocalDate> periodStarts(LocalDate from, LocalDate to, String granularity) {
+        if (!SUMMARY_GRANULARITIES.contains(granularity) || from.isAfter(to)) {
+            throw new IllegalArgumentException("Invalid summary range or granularity");
+        }
+
+        List<LocalDate> periodStarts = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = periodEnd(day, granularity).plusDays(1)) {
+            if (periodStarts.size() == MAX_SUMMARY_PERIODS) {
+                throw new IllegalArgumentException("Summary range has more than " + MAX_SUMMARY_PERIODS + " periods");
+            }
+            periodStarts.add(day);
+        }
+        return periodStarts;
+    }
+
+    private static HoursSummary summarize(EmployeeRecords cached, String email, LocalDate from, LocalDate to, String granularity, List<LocalDate> periodStarts) {
+        List<PeriodTotal> periods = new ArrayList<>(periodStarts.size());
+        for (LocalDate periodStart : periodStarts) {
+            LocalDate periodEnd = periodEnd(periodStart, granularity);
+            if (periodEnd.isAfter(to)) {
+                periodEnd = to;
+            }
+            long millis = cached.millisWorked(periodStart.toEpochDay(), periodEnd.toEpochDay());
+            periods.add(new PeriodTotal(periodLabel(periodStart, granularity), periodStart, periodEnd, toHours(millis)));
+        }
+
+        double totalHours = toHours(cached.millisWorked(from.toEpochDay(), to.toEpochDay()));
+        return new HoursSummary(email, granularity, from, to, totalHours, periods, !cached.isEndReached());
+    }
+
+    /**
+     * Returns the last day of the day, ISO week or month starting with or containing a day.
+     */
+    static LocalDate periodEnd(LocalDate day, String granularity) {
+        switch (granularity) {
+            case "week":
+                return day.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            case "month":
+                return day.with(TemporalAdjusters.lastDayOfMonth());
+            default:
+                return day;
+        }
+    }
+
+    /**
+     * Returns the name of the day, ISO week or month containing a day, e.g. "2023-01-02", "2023-W01" or "2023-01".
+     */
+    static String periodLabel(LocalDate day, String granularity) {
+        switch (granularity) {
+            case "week":
+                return String.format("%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case "month":
+                return YearMonth.from(day).toString();
+            default:
+                return day.toString();
+        }
+    }
+
+    /**
+     * Converts milliseconds to hours, rounded to two decimals.
+     */
+    private static double toHours(long millis) {
+        return Math.round(millis / 36000.0) / 100.0;
+    }
+}
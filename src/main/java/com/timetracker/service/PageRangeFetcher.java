@@ -0,0 +1,92 @@
+package com.timetracker.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a large offset range into slices and fetches them concurrently on a bounded pool.
+ * At most queue_size slices wait for a thread; past that, the caller fetches the slice itself,
+ * which slows down callers instead of queuing without bound. Slices cancelled before they
+ * start are not fetched.
+ */
+@Component
+public class PageRangeFetcher {
+
+    /**
+     * Fetches the records of one slice.
+     */
+    public interface SliceQuery<T> {
+        List<T> query(int offset, int length);
+    }
+
+    private final int parallelism;
+
+    private final ExecutorService executor;
+
+    // Default Constructor
+    public PageRangeFetcher() {
+        this(4, 100);
+    }
+
+    @Autowired
+    public PageRangeFetcher(
+            @Value("${timetracker.bulk_fetch_parallelism:4}") int parallelism,
+            @Value("${timetracker.bulk_fetch_queue_size:100}") int queueSize) {
+
+        this.parallelism = Math.max(1, parallelism);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(this.parallelism, this.parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "bulk-fetch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Checks whether a range is worth splitting into concurrent slices.
+     * @param length The number of records in the range.
+     * @param sliceSize The number of records per slice.
+     * @return True if the range spans more than one slice and parallel fetching is enabled.
+     */
+    public boolean isParallel(int length, int sliceSize) {
+        return parallelism > 1 && sliceSize > 0 && length > sliceSize;
+    }
+
+    /**
+     * Starts fetching all slices of a range.
+     * @param offset The offset of the first record.
+     * @param length The number of records in the range.
+     * @param sliceSize The number of records per slice.
+     * @param query The query fetching one slice.
+     * @return The pending slices, in offset order. Callers cancel the slices they no longer need.
+     */
+    public <T> List<CompletableFuture<List<T>>> fetchSlices(int offset, int length, int sliceSize, SliceQuery<T> query) {
+        List<CompletableFuture<List<T>>> slices = new ArrayList<>();
+        for (int sliceOffset = offset; sliceOffset < offset + length; sliceOffset += sliceSize) {
+            int from = sliceOffset;
+            int sliceLength = Math.min(sliceSize, offset + length - sliceOffset);
+            slices.add(CompletableFuture.supplyAsync(() -> query.query(from, sliceLength), executor));
+        }
+        return slices;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,43 @@
+package com.timetracker.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one loader per key at a time, without blocking, like RequestCoalescer.
+ * The first subscriber for a key starts the loader; subscribers arriving while it is in flight
+ * share its result instead of starting the loader again. A loader that was started keeps running
+ * even if its subscribers cancel, so its result still reaches later subscribers and the cache.
+ */
+public class ReactiveRequestCoalescer<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of the in-flight load for a key, or starts the loader if none is in flight.
+     * @param key The key identifying the load.
+     * @param loader Creates the load to run if none is in flight.
+     * @return The loaded value, once subscribed to.
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> {
+            AtomicReference<Mono<V>> shared = new AtomicReference<>();
+            shared.set(loader.get()
+                    .doFinally(signal -> inFlight.remove(k, shared.get()))
+                    .cache());
+            return shared.get();
+        }));
+    }
+
+    /**
+     * Returns the number of loads currently in flight.
+     * @return The number of in-flight loads.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,593 @@
+package com.timetracker.service;
+
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.client.PeerClient;
+import com.timetracker.client.ReactiveLegacyServiceClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.HoursSummary;
+import com.timetracker.model.PeerPage;
+import com.timetracker.model.RecordsPage;
+import com.timetracker.model.TeamRecords;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Non-blocking variant of TimeTrackerService for the reactive mode.
+ * Reads and submits records through ReactiveLegacyServiceClient and shares the records cache, the
+ * cache filler, read-ahead and metrics with TimeTrackerService, so both modes cache alike: what to
+ * fetch and how fetched records are appended is decided by the cache filler, and this class only
+ * chains the legacy calls. Methods that only read the cache are left to TimeTrackerService.
+ * Cache updates that may read or write the record store run on the bounded elastic scheduler,
+ * never on event loop threads.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTimeTrackerService {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ReactiveTimeTrackerService.class);
+
+    // Number of decoded records appended to the cache at once
+    private final static int BATCH_SIZE = 64;
+
+    // Cache to store records by email
+    private final RecordsCache recordsByEmail;
+
+    // Fetch decisions and bookkeeping shared with the blocking service
+    private final CacheFiller cacheFiller;
+
+    // Background read-ahead of upcoming pages
+    private final ReadAheadPrefetcher prefetcher;
+
+    // Cache and legacy call metrics
+    private final TimeTrackerMetrics metrics;
+
+    // Bounded waits for fetches that can fall back to cached records
+    private final Revalidator revalidator;
+
+    // Date ranges of histories loaded into the cache
+    private final TimeTrackerService timeTrackerService;
+
+    // Hours summaries of histories loaded into the cache
+    private final HoursSummarizer hoursSummarizer;
+
+    // Shares one legacy fetch between concurrent requests for the same email and offset
+    private final ReactiveRequestCoalescer<Map.Entry<String, Integer>, Boolean> fetchCoalescer = new ReactiveRequestCoalescer<>();
+
+    // Export formats and chunk size
+    private final RecordExporter recordExporter;
+
+    // Parallelism, deadline and merging of team fetches
+    private final TeamFetcher teamFetcher;
+
+    // Replicas owning the emails of a sharded records cache
+    private final PeerClient peerClient;
+
+    // Non-blocking HTTP client for the legacy service
+    private final ReactiveLegacyServiceClient legacyClient;
+
+    @Autowired
+    public ReactiveTimeTrackerService(
+            RecordsCache recordsByEmail,
+            CacheFiller cacheFiller,
+            ReadAheadPrefetcher prefetcher,
+            TimeTrackerMetrics metrics,
+            Revalidator revalidator,
+            TimeTrackerService timeTrackerService,
+            RecordExporter recordExporter,
+            TeamFetcher teamFetcher,
+            HoursSummarizer hoursSummarizer,
+            PeerClient peerClient,
+            ReactiveLegacyServiceClient legacyClient) {
+
+        this.recordsByEmail = recordsByEmail;
+        this.cacheFiller = cacheFiller;
+        this.prefetcher = prefetcher;
+        this.metrics = metrics;
+        this.revalidator = revalidator;
+        this.timeTrackerService = timeTrackerService;
+        this.recordExporter = recordExporter;
+        this.teamFetcher = teamFetcher;
+        this.hoursSummarizer = hoursSummarizer;
+        this.peerClient = peerClient;
+        this.legacyClient = legacyClient;
+    }
+
+    /**
+     * Retrieves records by email with pagination.
+     * @param email The email to retrieve records for.
+     * @param page The page number to retrieve.
+     * @param fullSearch Whether to perform a full search.
+     * @return The list of time records.
+     */
+    public Mono<List<TimeRecord>> getRecordsByEmail(String email, int page, boolean fullSearch) {
+        int recordsPerPage = cacheFiller.getRecordsPerPage();
+        int offset = (page - 1) * recordsPerPage;
+        return retrieveRecords(email, offset, recordsPerPage, true, fullSearch);
+    }
+
+    /**
+     * Retrieves records, from the replica owning the email if the records cache is sharded and
+     * another replica owns it, and from the local cache otherwise or if the owner is down.
+     * Replicas are called with the blocking PeerClient on the bounded elastic scheduler.
+     * @param email The email to retrieve records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param considerNullField Whether to consider null fields.
+     * @param bulkFetch Whether to perform bulk fetch.
+     * @return The list of retrieved time records, empty if they could not be retrieved.
+     */
+    public Mono<List<TimeRecord>> retrieveRecords(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+        return Mono.defer(() -> {
+            String owner = peerClient.ownerOf(email);
+            if (owner == null) {
+                return retrieveLocalRecords(email, offset, length, considerNullField, bulkFetch);
+            }
+            return Mono.fromCallable(() -> peerClient.fetchRecords(owner, email, offset, length, considerNullField, bulkFetch).getRecords())
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .onErrorResume(RestClientException.class, e -> retrieveLocalRecords(email, offset, length, considerNullField, bulkFetch));
+        });
+    }
+
+    /**
+     * Retrieves a page of records for another replica, from the local cache, which this replica keeps for the emails it owns.
+     * @param email The email to retrieve records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param considerNullField Whether to consider null fields.
+     * @param bulkFetch Whether to perform bulk fetch.
+     * @return The records with the number of cached records and whether they may be outdated.
+     */
+    public Mono<PeerPage> getPeerPage(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+        return retrieveLocalRecords(email, offset, length, considerNullField, bulkFetch).map(records -> {
+            EmployeeRecords cached = recordsByEmail.get(email);
+            return new PeerPage(records, recordsByEmail.size(email), cached != null && cached.isOutdated());
+        });
+    }
+
+    /**
+     * Retrieves records and handles cache logic.
+     * Records already cached are served as they are, and the email's records flagged as outdated,
+     * if the legacy service fails or does not answer within the revalidator's wait.
+     * @param email The email to retrieve records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param considerNullField Whether to consider null fields.
+     * @param bulkFetch Whether to perform bulk fetch.
+     * @return The list of retrieved time records, empty if they could not be retrieved.
+     */
+    private Mono<List<TimeRecord>> retrieveLocalRecords(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+        return cachedRecords(email).flatMap(cached -> {
+            int cachedSize = cached.size();
+
+            // Perform a full search if required, then fetch what the cache lacks, unless the tail syncer keeps the end up to date
+            Mono<Boolean> fetched = Mono.just(true);
+            if (cacheFiller.needsFetch(email, cached, offset, length, bulkFetch)) {
+                Mono<Void> bulk = bulkFetch ? fillCache(email, cached, cacheFiller.bulkTarget(cachedSize)) : Mono.empty();
+                fetched = fetchOrServeStale(cached, cachedSize > offset, bulk.then(fillCache(email, cached, offset + length)));
+            }
+            return fetched.map(completed -> {
+                if (completed) {
+                    readAhead(email, cached, offset + length);
+                }
+
+                // Get records from cache, sorted by start date time
+                return cacheFiller.copySorted(cached, offset, length, considerNullField);
+            });
+
+        // Return an empty list on any error
+        }).onErrorResume(e -> {
+            LOG.warn("Retrieving the records of {} failed", email, e);
+            metrics.recordFailure("records");
+            return Mono.just(new ArrayList<>());
+        });
+    }
+
+    /**
+     * Retrieves a range of records in legacy offset order, the order they were recorded in.
+     * A range at the end of the history is fetched again only if the end was not reached recently.
+     * @param email The email to retrieve records for.
+     * @param offset The index of the first record of the range, in the order the records were recorded.
+     * @param length The length of the range.
+     * @return The records with the version of the cached records they were read from;
+     *         fails with a WebClientException or RestClientException if the records could not be fetched.
+     */
+    public Mono<RecordsPage> getRecordsPage(String email, int offset, int length) {
+        return cachedRecords(email).flatMap(cached -> {
+            Mono<Void> fill = cacheFiller.pageNeedsFetch(email, cached, offset, length)
+                    ? fillCache(email, cached, offset + length)
+                    : Mono.empty();
+            return fill.then(Mono.fromSupplier(() -> {
+                readAhead(email, cached, offset + length);
+                return cacheFiller.page(cached, offset, length);
+            }));
+        });
+    }
+
+    /**
+     * Retrieves the records of an email starting within a date range, sorted by start time.
+     * The history is loaded into the cache without blocking; the range is then looked up in the cache.
+     * The cached records are served as they are if the legacy service fails or is slow.
+     * @param email The email to retrieve records for.
+     * @param from The first day, inclusive, or null for no lower bound.
+     * @param to The last day, inclusive, or null for no upper bound.
+     * @return The list of time records; fails with a WebClientException or RestClientException if the
+     *         legacy service failed and no records of the email are cached.
+     */
+    public Mono<List<TimeRecord>> getRecordsBetween(String email, LocalDate from, LocalDate to) {
+        return cachedRecords(email).flatMap(cached ->
+                fetchOrServeStale(cached, cached.size() > 0, fillUntilEnd(email, cached, cacheFiller.bulkSize(), cacheFiller.historyLoadDeadline())))
+                .then(Mono.fromSupplier(() -> timeTrackerService.getCachedRecordsBetween(email, from, to)));
+    }
+
+    /**
+     * Retrieves the records of the members of a team concurrently and merges them into one list sorted
+     * by start time, as TimeTrackerService.getTeamRecords does. At most the team fetcher's parallelism of
+     * members are fetched at once; a member not fetched by the deadline is cancelled and reported.
+     * @param emails The distinct emails of the members.
+     * @param page The page number to retrieve of each member.
+     * @param from The first day, inclusive, or null for no lower bound.
+     * @param to The last day, inclusive, or null for no upper bound.
+     * @return The outcome of each member and their merged records.
+     */
+    public Mono<TeamRecords> getTeamRecords(List<String> emails, int page, LocalDate from, LocalDate to) {
+        boolean rangeQuery = from != null || to != null;
+        return Mono.defer(() -> {
+            long deadline = System.nanoTime() + teamFetcher.getFetchTimeout().toNanos();
+            return Flux.fromIterable(emails)
+                    .flatMapSequential(email -> Mono.defer(() -> {
+                        Mono<List<TimeRecord>> records = rangeQuery ? getRecordsBetween(email, from, to) : getRecordsByEmail(email, page, false);
+                        Mono<TeamFetcher.MemberRecords> member = records.flatMap(fetchedRecords -> (fetchedRecords.isEmpty() ? checkExistingUser(email) : Mono.just("USER_EXISTS"))
+                                .map(status -> new TeamFetcher.MemberRecords(status.equals("USER_EXISTS") ? "RECORDS_LOADED" : status,
+                                        fetchedRecords, timeTrackerService.isRecordsOutdated(email))))
+                                .onErrorResume(e -> {
+                                    LOG.warn("Retrieving the records of team member {} failed", email, e);
+                                    metrics.recordFailure("records");
+                                    return Mono.just(new TeamFetcher.MemberRecords(isLegacyError(e) ? "CONNECTION_ERROR" : "UNKNOWN_ERROR", List.of(), false));
+                                });
+
+                        // The deadline counts from the start of the team fetch, including the wait for a free slot
+                        return member.timeout(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())),
+                                Mono.just(new TeamFetcher.MemberRecords("FETCH_TIMEOUT", List.of(), false)));
+                    }), teamFetcher.getParallelism())
+                    .collectList()
+                    .map(results -> TeamFetcher.teamRecords(emails, results));
+        });
+    }
+
+    /**
+     * Summarizes the hours worked by an employee over a date range, in total and per day, ISO week or month.
+     * The history is loaded into the cache without blocking; the totals are then read by the hours summarizer.
+     * @param email The email to summarize hours for.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @param granularity The period length: "day", "week" or "month".
+     * @return The hours summary; fails with an IllegalArgumentException if the range or granularity is
+     *         invalid, or with a WebClientException if the records could not be fetched.
+     */
+    public Mono<HoursSummary> getHoursSummary(String email, LocalDate from, LocalDate to, String granularity) {
+        return loadHistory(email)
+                .then(Mono.fromCallable(() -> hoursSummarizer.summarizeCached(email, from, to, granularity)));
+    }
+
+    /**
+     * Streams the full history of an employee as CSV or NDJSON, chunk by chunk as it is read from the
+     * legacy service. Each chunk is read fully before it is emitted, so a slow client never holds a
+     * legacy connection or counts as a slow legacy call, and the next chunk is requested once the
+     * client has taken the previous one, so records do not pile up in memory. The records cache is
+     * neither read nor filled.
+     * @param email The email to export records for.
+     * @param format The export format, csv or ndjson.
+     * @return The export as text, a batch of lines per element; fails with a WebClientException
+     *         if the legacy service fails.
+     */
+    public Flux<String> exportRecords(String email, String format) {
+        String header = RecordExporter.header(format);
+        Flux<String> records = exportFrom(email, format, 0);
+        return header.isEmpty() ? records : records.startWith(header);
+    }
+
+    private Flux<String> exportFrom(String email, String format, int offset) {
+        int chunkSize = recordExporter.getChunkSize();
+        return metrics.recordLegacyCall("exportRecords", legacyClient.streamRecords(email, offset, chunkSize).collectList())
+                .flatMapMany(chunk -> {
+                    Flux<String> lines = Flux.fromIterable(chunk)
+                            .flatMap(Mono::justOrEmpty)
+                            .buffer(BATCH_SIZE)
+                            .map(batch -> {
+                                StringBuilder text = new StringBuilder();
+                                batch.forEach(record -> text.append(RecordExporter.formatRecord(record, format)));
+                                return text.toString();
+                            });
+
+                    // The end of the history is reached when the legacy service returns fewer entries than requested
+                    return chunk.size() < chunkSize
+                            ? lines
+                            : lines.concatWith(Flux.defer(() -> exportFrom(email, format, offset + chunkSize)));
+                });
+    }
+
+    /**
+     * Fetches the records of an email until the cache holds the end of the employee's history, or
+     * until the history load timeout. Continues on the bounded elastic scheduler, since the cache
+     * may then be read with blocking calls that restore an entry from the record store.
+     */
+    private Mono<Void> loadHistory(String email) {
+        return cachedRecords(email)
+                .flatMap(cached -> fillUntilEnd(email, cached, cacheFiller.bulkSize(), cacheFiller.historyLoadDeadline()))
+                .publishOn(Schedulers.boundedElastic()).then();
+    }
+
+    /**
+     * Returns the cached records of an email. An entry that must be created, and may be restored from
+     * the record store, or renewed is looked up on the bounded elastic scheduler.
+     */
+    private Mono<EmployeeRecords> cachedRecords(String email) {
+        return Mono.defer(() -> {
+            EmployeeRecords cached = recordsByEmail.get(email);
+            if (cached != null && !cached.isStale()) {
+                return Mono.just(cached);
+            }
+            return Mono.fromCallable(() -> recordsByEmail.getOrCreate(email)).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Runs a cache update that may write to the record store, on the bounded elastic scheduler if the store is enabled.
+     */
+    private Mono<Void> updateCache(Runnable update) {
+        Mono<Void> run = Mono.fromRunnable(update);
+        return recordsByEmail.isStoreEnabled() ? run.subscribeOn(Schedulers.boundedElastic()) : run;
+    }
+
+    /**
+     * Fetches the records of an email until the cache holds the end of the employee's history, or until
+     * a deadline, fetching at least one bulk. A history not loaded by then is flagged as outdated, and the next request continues
+     * loading it from the last fetched record.
+     */
+    private Mono<Void> fillUntilEnd(String email, EmployeeRecords cached, int bulkSize, long deadline) {
+        return Mono.defer(() -> cached.isEndReached()
+                ? Mono.empty()
+                : fillCache(email, cached, cached.size() + bulkSize).then(Mono.defer(() -> {
+                    if (!cached.isEndReached() && System.nanoTime() - deadline >= 0) {
+                        cached.setOutdated(true);
+                        return Mono.empty();
+                    }
+                    return fillUntilEnd(email, cached, bulkSize, deadline);
+                })));
+    }
+
+    /**
+     * Runs a fetch for a request. If the request can be served from the cached records as they are,
+     * they are served, flagged as outdated, when the fetch fails or is still running after the
+     * revalidator's wait; the legacy request in flight then completes in the background.
+     * @param cached The cached records of the email.
+     * @param servable Whether the cached records can serve the request without the fetch.
+     * @param fetch The fetch.
+     * @return True if the fetch completed, false if stale records are served.
+     */
+    private Mono<Boolean> fetchOrServeStale(EmployeeRecords cached, boolean servable, Mono<Void> fetch) {
+        Mono<Boolean> completed = fetch.thenReturn(true);
+        if (!servable) {
+            return completed.doOnError(e -> cached.setOutdated(true));
+        }
+        if (revalidator.isEnabled()) {
+            completed = completed.timeout(revalidator.getServeAfter(), Mono.just(false));
+        }
+        return completed.onErrorResume(ReactiveTimeTrackerService::isLegacyError, e -> {
+            LOG.warn("Fetching records failed, serving the cached records", e);
+            metrics.recordFailure("records");
+            return Mono.just(false);
+        }).doOnNext(done -> {
+            if (!done) {
+                cached.setOutdated(true);
+            }
+        });
+    }
+
+    private static boolean isLegacyError(Throwable e) {
+        return e instanceof WebClientException || e instanceof RestClientException;
+    }
+
+    /**
+     * Fetches records from the external service until the cache holds the target number of records
+     * or the employee has no more records.
+     * Concurrent callers fetching from the same offset share one request, and its records are appended once.
+     * @param email The email to fetch records for.
+     * @param cached The cached records of the email.
+     * @param targetSize The number of records the cache should hold.
+     */
+    private Mono<Void> fillCache(String email, EmployeeRecords cached, int targetSize) {
+        return Mono.defer(() -> {
+            if (cached.size() >= targetSize) {
+                return Mono.empty();
+            }
+            int lastOffset = cached.nextOffset();
+            int length = targetSize - cached.size();
+            return fetchCoalescer.execute(Map.entry(email, lastOffset), () -> fetchIntoCache(email, cached, lastOffset, length))
+                    .flatMap(exhausted -> exhausted ? Mono.<Void>empty() : fillCache(email, cached, targetSize));
+        });
+    }
+
+    /**
+     * Fetches a range of records with one request and appends it to the cache batch by batch while it is decoded.
+     * The records are stored once the request completes, even if the request that started it no longer waits for it.
+     * @return True if the employee has no records past the range.
+     */
+    private Mono<Boolean> fetchIntoCache(String email, EmployeeRecords cached, int offset, int length) {
+        return Mono.defer(() -> {
+            CacheFiller.Fetch fetch = cacheFiller.startFetch(email, cached, offset, length);
+            Mono<Void> response = legacyClient.streamRecords(email, fetch.getOffset(), fetch.getLength())
+                    .buffer(BATCH_SIZE)
+                    .doOnNext(batch -> {
+                        // Null or malformed entries are appended as null, which holds their offsets
+                        List<TimeRecord> records = new ArrayList<>(batch.size());
+                        batch.forEach(record -> records.add(record.orElse(null)));
+                        fetch.append(records);
+                    })
+                    .then();
+
+            // Completing may drop a changed history from the record store, so it runs like the store update
+            boolean[] exhausted = {false};
+            return metrics.recordLegacyCall("queryRecords", response)
+                    .then(updateCache(() -> {
+                        exhausted[0] = fetch.complete();
+                        recordsByEmail.recordsAdded(email);
+                    }))
+                    .then(Mono.fromSupplier(() -> exhausted[0]));
+        });
+    }
+
+    /**
+     * Fetches the next bulk of records in the background when the viewed position is
+     * within the read-ahead depth of the end of the cached records.
+     * @param email The email being viewed.
+     * @param cached The cached records of the email.
+     * @param viewedEnd The offset after the last record being viewed.
+     */
+    private void readAhead(String email, EmployeeRecords cached, int viewedEnd) {
+        int targetSize = cacheFiller.readAheadTarget(cached, viewedEnd);
+        if (targetSize < 0) {
+            return;
+        }
+        prefetcher.submit(email, fillCache(email, cached, targetSize));
+    }
+
+    /**
+     * Checks if user exists, on the replica owning the email if the records cache is sharded and
+     * another replica owns it, and locally otherwise or if the owner is down.
+     * @param email The email to check.
+     * @return the response message.
+     */
+    public Mono<String> checkExistingUser(String email) {
+        return Mono.defer(() -> {
+            String owner = peerClient.ownerOf(email);
+            if (owner == null || cacheFiller.knownExistence(email) != null) {
+                return checkLocalUser(email);
+            }
+            return Mono.fromCallable(() -> peerClient.checkExistingUser(owner, email))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnNext(response -> {
+                        if (response.equals("USER_EXISTS") || response.equals("INVALID_USER")) {
+                            cacheFiller.userChecked(email, response.equals("USER_EXISTS"));
+                        }
+                    })
+                    .onErrorResume(RestClientException.class, e -> checkLocalUser(email));
+        });
+    }
+
+    /**
+     * Checks if user exists, using cached or stored records or a recent check when available,
+     * and otherwise by querying one record.
+     * @param email The email to check.
+     * @return the response message.
+     */
+    public Mono<String> checkLocalUser(String email) {
+        return hasRecords(email).flatMap(hasRecords -> {
+            Boolean exists = hasRecords ? Boolean.TRUE : cacheFiller.knownExistence(email);
+            if (exists != null) {
+                return Mono.just(exists);
+            }
+            return metrics.recordLegacyCall("checkExistingUser", legacyClient.streamRecords(email, 0, 1).any(Optional::isPresent))
+                    .doOnNext(found -> cacheFiller.userChecked(email, found));
+        }).map(exists -> exists ? "USER_EXISTS" : "INVALID_USER").onErrorResume(e -> {
+            LOG.warn("Checking user {} failed", email, e);
+            metrics.recordFailure("user_check");
+            return Mono.just(isLegacyError(e) || e instanceof IllegalArgumentException ? "CONNECTION_ERROR" : "UNKNOWN_ERROR");
+        });
+    }
+
+    /**
+     * Checks whether an email has cached or stored records, reading the record store on the bounded elastic scheduler.
+     */
+    private Mono<Boolean> hasRecords(String email) {
+        if (recordsByEmail.size(email) > 0 || !recordsByEmail.isStoreEnabled()) {
+            return Mono.fromSupplier(() -> recordsByEmail.size(email) > 0);
+        }
+        return Mono.fromCallable(() -> recordsByEmail.hasRecords(email)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Records time with start and end times, and submits it to the external service.
+     * @param email The email to record time for.
+     * @param startTime The start time to record.
+     * @param endTime The end time to record.
+     * @return The response message.
+     */
+    public Mono<String> recordTime(String email, String startTime, String endTime) {
+        return Mono.defer(() -> {
+            if (!Utils.validateStartEndTime(startTime, endTime)) {
+                return Mono.just("INVALID_TIME_RANGE");
+            }
+            return submitRecord(email, startTime, endTime).map(accepted -> accepted ? "SUBMIT_SUCCESS" : "SUBMIT_ERROR");
+
+        }).onErrorResume(e -> {
+            LOG.warn("Submitting a record of {} failed", email, e);
+            metrics.recordFailure("submit");
+            return Mono.just(isLegacyError(e) || e instanceof IllegalArgumentException ? "CONNECTION_ERROR" : "SUBMIT_ERROR");
+        });
+    }
+
+    /**
+     * Posts a record to the external service.
+     * @param email The email to record time for.
+     * @param startTime The start time in ISO format.
+     * @param endTime The end time in ISO format.
+     * @return True if the external service accepted the record.
+     */
+    private Mono<Boolean> submitRecord(String email, String startTime, String endTime) {
+        return metrics.recordLegacyCall("recordTime", legacyClient.postRecord(email,
+                Utils.toLegacyRequestTimeFormat(startTime), Utils.toLegacyRequestTimeFormat(endTime))).flatMap(response -> {
+            if (response.getStatusCode() != HttpStatus.OK) {
+                return Mono.just(false);
+            }
+
+            // Show the record right away if the employee's records are cached, by the replica serving them
+            return addSubmitted(cacheFiller.submitted(email, startTime, endTime)).thenReturn(true);
+        });
+    }
+
+    /**
+     * Adds a submitted record to the cached records of its email, on the replica owning the email if
+     * the records cache is sharded and another replica owns it, and locally otherwise or if the owner is down.
+     * The owner is called with the blocking PeerClient on the bounded elastic scheduler.
+     */
+    private Mono<Void> addSubmitted(TimeRecord record) {
+        return Mono.defer(() -> {
+            String owner = peerClient.ownerOf(record.getEmail());
+            if (owner == null) {
+                return addPeerSubmitted(record);
+            }
+            return Mono.<Void>fromRunnable(() -> peerClient.addSubmitted(owner, record))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .onErrorResume(RestClientException.class, e -> addPeerSubmitted(record));
+        });
+    }
+
+    /**
+     * Adds a record submitted through another replica to the local cache, which this replica keeps for the emails it owns.
+     * @param record The submitted record.
+     * @return Completes once the record is added.
+     */
+    public Mono<Void> addPeerSubmitted(TimeRecord record) {
+        return updateCache(() -> recordsByEmail.addSubmitted(record.getEmail(), record));
+    }
+}
@@ -0,0 +1,155 @@
+package com.timetracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs read-ahead fetches of upcoming pages in the background.
+ * Work runs on a bounded pool with a bounded queue; a task is dropped rather than queued when the
+ * pool is saturated or the employee already has the maximum number of read-aheads in flight.
+ * Non-blocking fetches are subscribed to directly instead of occupying a pool thread, and are
+ * dropped when max_concurrency of them are in flight.
+ */
+@Component
+public class ReadAheadPrefetcher {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ReadAheadPrefetcher.class);
+
+    private final boolean enabled;
+    private final int depthPages;
+    private final int maxPerEmployee;
+
+    private final int maxConcurrency;
+
+    private final ThreadPoolExecutor executor;
+
+    // Number of non-blocking read-aheads in flight
+    private final AtomicInteger reactiveInFlight = new AtomicInteger();
+
+    // Number of read-aheads queued or running per email
+    private final ConcurrentMap<String, Integer> inFlightByEmail = new ConcurrentHashMap<>();
+
+    // Default Constructor
+    public ReadAheadPrefetcher() {
+        this(true, 2, 1, 4, 100);
+    }
+
+    @Autowired
+    public ReadAheadPrefetcher(
+            @Value("${timetracker.prefetch.enabled:true}") boolean enabled,
+            @Value("${timetracker.prefetch.depth_pages:2}") int depthPages,
+            @Value("${timetracker.prefetch.max_per_employee:1}") int maxPerEmployee,
+            @Value("${timetracker.prefetch.max_concurrency:4}") int maxConcurrency,
+            @Value("${timetracker.prefetch.queue_size:100}") int queueSize) {
+
+        this.enabled = enabled;
+        this.depthPages = depthPages;
+        this.maxPerEmployee = maxPerEmployee;
+        this.maxConcurrency = maxConcurrency;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "read-ahead-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Checks whether a read-ahead should start for a viewer close to the end of the cached records.
+     * @param remainingRecords The number of cached records after the page being viewed.
+     * @param recordsPerPage The number of records per page.
+     * @return True if the viewer is within the read-ahead depth of the end of the cache.
+     */
+    public boolean isWithinReadAheadWindow(int remainingRecords, int recordsPerPage) {
+        return enabled && recordsPerPage > 0 && remainingRecords <= depthPages * recordsPerPage;
+    }
+
+    /**
+     * Submits a read-ahead task for an email.
+     * @param email The email the task fetches records for.
+     * @param task The fetch to run.
+     * @return True if the task was accepted, false if it was dropped.
+     */
+    public boolean submit(String email, Runnable task) {
+        if (!acquire(email)) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    LOG.warn("Reading ahead the records of {} failed", email, e);
+                } finally {
+                    release(email);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            release(email);
+            return false;
+        }
+    }
+
+    /**
+     * Starts a non-blocking read-ahead fetch for an email.
+     * @param email The email the fetch is for.
+     * @param fetch The fetch to subscribe to; it should defer its work until subscribed.
+     * @return True if the fetch was started, false if it was dropped.
+     */
+    public boolean submit(String email, Mono<?> fetch) {
+        if (!acquire(email)) {
+            return false;
+        }
+        if (reactiveInFlight.incrementAndGet() > maxConcurrency) {
+            reactiveInFlight.decrementAndGet();
+            release(email);
+            return false;
+        }
+
+        fetch.doFinally(signal -> {
+            reactiveInFlight.decrementAndGet();
+            release(email);
+        }).subscribe(null, e -> LOG.warn("Reading ahead the records of {} failed", email, e));
+        return true;
+    }
+
+    private boolean acquire(String email) {
+        boolean[] acquired = {false};
+        inFlightByEmail.compute(email, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxPerEmployee) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(String email) {
+        inFlightByEmail.computeIfPresent(email, (key, count) -> count <= 1 ? null : count - 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
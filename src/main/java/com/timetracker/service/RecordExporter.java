@@ -0,0 +1,157 @@
+package com.timetracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.TimeRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the full history of an employee as CSV or NDJSON.
+ * The history is walked straight from the legacy service in chunks of chunk_size records, bypassing
+ * the records cache. Each chunk is read fully before it is written and flushed to the output, so a
+ * slow client never holds a pooled legacy connection or counts as a slow legacy call. Memory use is
+ * bounded by one chunk, and a slow client holds back the reads of later chunks since writing blocks.
+ */
+@Component
+public class RecordExporter {
+
+    public final static String FORMAT_CSV = "csv";
+    public final static String FORMAT_NDJSON = "ndjson";
+
+    private final static Map<String, String> CONTENT_TYPES = Map.of(
+            FORMAT_CSV, "text/csv",
+            FORMAT_NDJSON, "application/x-ndjson");
+
+    private final static String CSV_HEADER = "start,end,email\n";
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final int chunkSize;
+
+    private final LegacyServiceClient legacyClient;
+
+    private final TimeTrackerMetrics metrics;
+
+    @Autowired
+    public RecordExporter(
+            @Value("${timetracker.export.chunk_size:1000}") int chunkSize,
+            LegacyServiceClient legacyClient,
+            TimeTrackerMetrics metrics) {
+
+        this.chunkSize = Math.max(1, chunkSize);
+        this.legacyClient = legacyClient;
+        this.metrics = metrics;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return CONTENT_TYPES.containsKey(format);
+    }
+
+    public static String getContentType(String format) {
+        return CONTENT_TYPES.get(format);
+    }
+
+    /**
+     * Returns the line preceding the records of an export.
+     * @param format The export format.
+     * @return The header line, or an empty string if the format has none.
+     */
+    public static String header(String format) {
+        return FORMAT_CSV.equals(format) ? CSV_HEADER : "";
+    }
+
+    /**
+     * Formats a record as one line of an export.
+     * @param record The record.
+     * @param format The export format.
+     * @return The line, ending with a newline.
+     */
+    public static String formatRecord(TimeRecord record, String format) {
+        if (FORMAT_NDJSON.equals(format)) {
+            try {
+                return OBJECT_MAPPER.writeValueAsString(record) + "\n";
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return csvField(record.getStart()) + "," + csvField(record.getEnd()) + "," + csvField(record.getEmail()) + "\n";
+    }
+
+    /**
+     * Quotes a CSV field if it contains a separator, quote or line break. Null fields are left empty.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Writes the full history of an employee to an output stream.
+     * @param email The email to export records for.
+     * @param format The export format, csv or ndjson.
+     * @param out The output stream, left open.
+     * @return The number of records exported.
+     * @throws IOException If writing to the output fails, e.g. because the client went away.
+     * @throws org.springframework.web.client.RestClientException If querying the legacy service fails.
+     */
+    public long export(String email, String format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(header(format));
+
+        long exported = 0;
+        for (int offset = 0; ; offset += chunkSize) {
+            int chunkOffset = offset;
+            List<TimeRecord> chunk = new ArrayList<>();
+            int received = metrics.recordLegacyCall("exportRecords", () ->
+                    legacyClient.streamRecords(email, chunkOffset, chunkSize, chunk::addAll));
+            exported += writeChunk(writer, chunk, format);
+
+            // The end of the history is reached when the legacy service returns fewer entries than requested
+            if (received < chunkSize) {
+                break;
+            }
+        }
+
+        writer.flush();
+        return exported;
+    }
+
+    /**
+     * Writes a chunk and flushes it, so that it reaches the client before the next chunk is read.
+     * @return The number of records written, leaving out null entries.
+     */
+    private static int writeChunk(Writer writer, List<TimeRecord> chunk, String format) throws IOException {
+        int written = 0;
+        for (TimeRecord record : chunk) {
+            if (record != null) {
+                writer.write(formatRecord(record, format));
+                written++;
+            }
+        }
+        writer.flush();
+        return written;
+    }
+}
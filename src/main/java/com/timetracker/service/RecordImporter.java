@@ -0,0 +1,327 @@
+package com.timetracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.timetracker.model.ImportReport;
+import com.timetracker.model.ImportResult;
+import com.timetracker.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Imports time records in bulk from a CSV file with a header row naming the email, start and end columns.
+ * Times are in the ISO format of the record form, e.g. 2023-01-02T09:00, or in legacy response format,
+ * so that an export can be imported again. All rows of the file, at most max_rows, are read into memory
+ * and validated per employee, rejecting rows that overlap a cached record of the employee or an earlier
+ * row of the same import, since both checks and the submission order need every row of the employee.
+ * The valid rows are then submitted to the legacy service in the background, in start time order, by a
+ * bounded pool of submit_concurrency threads shared by all imports, at most submit_rate_per_sec per second;
+ * the import is tracked by id so that its report can be polled until the last row is submitted.
+ * Rows still queued at shutdown are not submitted, unlike the submissions of the write-behind queue.
+ */
+@Component
+public class RecordImporter {
+
+    private final static Logger LOG = LoggerFactory.getLogger(RecordImporter.class);
+
+    /**
+     * Checks whether a record would overlap one already known for the employee.
+     */
+    public interface OverlapCheck {
+        boolean overlaps(String email, long startEpochMillis, long endEpochMillis);
+    }
+
+    /**
+     * Submits one valid record to the legacy service.
+     */
+    public interface RecordSubmitter {
+        boolean submit(String email, String startTime, String endTime);
+    }
+
+    // A parsed row with its result
+    private static class Row {
+        final ImportResult result;
+        long startEpochMillis = Utils.INVALID_TIME;
+        long endEpochMillis = Utils.INVALID_TIME;
+
+        Row(ImportResult result) {
+            this.result = result;
+        }
+    }
+
+    private final int maxRows;
+
+    // Minimum time between two submissions, 0 for no rate cap
+    private final long submitIntervalNanos;
+
+    // System.nanoTime() at which the next submission may start
+    private final AtomicLong nextSubmitNanos = new AtomicLong(System.nanoTime());
+
+    private final ThreadPoolExecutor executor;
+
+    // Recent imports by id, for status polling
+    private final Cache<String, ImportReport> importsById;
+
+    // Default Constructor
+    public RecordImporter() {
+        this(50000, 16, 500, 60);
+    }
+
+    @Autowired
+    public RecordImporter(
+            @Value("${timetracker.import.max_rows:50000}") int maxRows,
+            @Value("${timetracker.import.submit_concurrency:16}") int submitConcurrency,
+            @Value("${timetracker.import.submit_rate_per_sec:500}") int submitRatePerSec,
+            @Value("${timetracker.import.status_retention_min:60}") int statusRetentionMin) {
+
+        this.maxRows = maxRows;
+        this.submitIntervalNanos = submitRatePerSec > 0 ? TimeUnit.SECONDS.toNanos(1) / submitRatePerSec : 0;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, submitConcurrency), Math.max(1, submitConcurrency), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "import-submit-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.importsById = Caffeine.newBuilder()
+                .expireAfterWrite(statusRetentionMin, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Reads and validates the records of a CSV file, and starts submitting the valid ones in the background.
+     * @param reader The CSV file.
+     * @param overlapCheck Checks rows against the records known for their employee.
+     * @param submitter Submits valid rows.
+     * @return The report, with status IMPORT_RUNNING while valid rows are queued for submission and
+     *         IMPORT_COMPLETED once none is left, or with status INVALID_IMPORT_FILE if the header is missing
+     *         a column, or IMPORT_TOO_LARGE if the file has more than max_rows rows, in which case nothing is submitted.
+     * @throws IOException If reading the file fails.
+     */
+    public ImportReport importRecords(Reader reader, OverlapCheck overlapCheck, RecordSubmitter submitter) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        String status = readRows(new BufferedReader(reader), rows);
+        if (status != null) {
+            return new ImportReport(status, List.of());
+        }
+
+        // Validates the rows of each employee on its own
+        Map<String, List<Row>> rowsByEmail = rows.stream()
+                .filter(row -> row.result.getEmail() != null && !row.result.getEmail().isEmpty())
+                .collect(Collectors.groupingBy(row -> row.result.getEmail(), HashMap::new, Collectors.toList()));
+        rows.stream()
+                .filter(row -> row.result.getEmail() == null || row.result.getEmail().isEmpty())
+                .forEach(row -> row.result.setStatus("INVALID_ROW"));
+        rowsByEmail.values().forEach(employeeRows -> validate(employeeRows, overlapCheck));
+
+        List<Row> valid = rows.stream()
+                .filter(row -> row.result.getStatus() == null)
+                .sorted(Comparator.comparingLong(row -> row.startEpochMillis))
+                .collect(Collectors.toList());
+        valid.forEach(row -> row.result.setStatus("SUBMIT_QUEUED"));
+
+        List<ImportResult> results = new ArrayList<>(rows.size());
+        rows.forEach(row -> results.add(row.result));
+        ImportReport report = new ImportReport(UUID.randomUUID().toString(), valid.isEmpty() ? "IMPORT_COMPLETED" : "IMPORT_RUNNING", results);
+        importsById.put(report.getId(), report);
+        submit(report, valid, submitter);
+        return report;
+    }
+
+    /**
+     * Returns a recent import.
+     * @param id The import id.
+     * @return The report of the import, or null if unknown.
+     */
+    public ImportReport get(String id) {
+        return importsById.getIfPresent(id);
+    }
+
+    /**
+     * Reads the header and the rows of a CSV file. Blank lines are skipped.
+     * @return Null if the rows were read, otherwise the status of the import.
+     */
+    private String readRows(BufferedReader reader, List<Row> rows) throws IOException {
+        int lineNumber = 1;
+        String header = reader.readLine();
+        while (header != null && header.isBlank()) {
+            header = reader.readLine();
+            lineNumber++;
+        }
+        if (header == null) {
+            return "INVALID_IMPORT_FILE";
+        }
+
+        // Locates the columns by name, ignoring a byte order mark and case
+        List<String> columns = parseCsvLine(header.replace("\uFEFF", "").toLowerCase());
+        int emailColumn = columns.indexOf("email");
+        int startColumn = columns.contains("starttime") ? columns.indexOf("starttime") : columns.indexOf("start");
+        int endColumn = columns.contains("endtime") ? columns.indexOf("endtime") : columns.indexOf("end");
+        if (emailColumn < 0 || startColumn < 0 || endColumn < 0) {
+            return "INVALID_IMPORT_FILE";
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (rows.size() == maxRows) {
+                return "IMPORT_TOO_LARGE";
+            }
+            List<String> fields = parseCsvLine(line);
+            rows.add(new Row(new ImportResult(lineNumber, field(fields, emailColumn), field(fields, startColumn), field(fields, endColumn))));
+        }
+        return null;
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    /**
+     * Splits a CSV line into trimmed fields. Fields may be quoted, with quotes inside doubled.
+     * @param line The line.
+     * @return The fields.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Validates the rows of one employee. Rows with valid times are checked against the employee's known
+     * records, and then in start time order against the rows accepted before them.
+     */
+    private static void validate(List<Row> employeeRows, OverlapCheck overlapCheck) {
+        List<Row> accepted = new ArrayList<>();
+        for (Row row : employeeRows) {
+            ImportResult result = row.result;
+            result.setStartTime(toIsoTime(result.getStartTime()));
+            result.setEndTime(toIsoTime(result.getEndTime()));
+            row.startEpochMillis = Utils.parseIsoEpochMillis(result.getStartTime());
+            row.endEpochMillis = Utils.parseIsoEpochMillis(result.getEndTime());
+
+            if (row.startEpochMillis == Utils.INVALID_TIME || row.endEpochMillis == Utils.INVALID_TIME) {
+                result.setStatus("INVALID_ROW");
+            } else if (row.startEpochMillis >= row.endEpochMillis) {
+                result.setStatus("INVALID_TIME_RANGE");
+            } else if (overlapCheck.overlaps(result.getEmail(), row.startEpochMillis, row.endEpochMillis)) {
+                result.setStatus("OVERLAPPING_RECORD");
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        accepted.sort(Comparator.comparingLong(row -> row.startEpochMillis));
+        long acceptedEnd = Long.MIN_VALUE;
+        for (Row row : accepted) {
+            if (row.startEpochMillis < acceptedEnd) {
+                row.result.setStatus("OVERLAPPING_RECORD");
+            } else {
+                acceptedEnd = row.endEpochMillis;
+            }
+        }
+    }
+
+    /**
+     * Converts a time in legacy response format to ISO format, leaving other times as they are.
+     */
+    private static String toIsoTime(String time) {
+        return Utils.parseLegacyEpochMillis(time) == Utils.INVALID_TIME ? time : Utils.toIsoTimeFormat(time);
+    }
+
+    /**
+     * Queues the valid rows for submission in start time order, recording each outcome in the report.
+     */
+    private void submit(ImportReport report, List<Row> valid, RecordSubmitter submitter) {
+        for (Row row : valid) {
+            executor.execute(() -> report.submitted(row.result, submitRow(row.result, submitter)));
+        }
+    }
+
+    /**
+     * Submits one row once the rate cap permits it.
+     * @return The status of the row.
+     */
+    private String submitRow(ImportResult result, RecordSubmitter submitter) {
+        try {
+            awaitSubmitPermit();
+            return submitter.submit(result.getEmail(), result.getStartTime(), result.getEndTime()) ? "SUBMIT_SUCCESS" : "SUBMIT_ERROR";
+
+        } catch (RestClientException e) {
+            LOG.warn("Submitting the record on line {} of the import failed", result.getLine(), e);
+            return "CONNECTION_ERROR";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "SUBMIT_ERROR";
+        } catch (Exception e) {
+            LOG.warn("Submitting the record on line {} of the import failed", result.getLine(), e);
+            return "SUBMIT_ERROR";
+        }
+    }
+
+    /**
+     * Waits for the next submission slot, spacing submissions across all imports by the rate cap.
+     */
+    private void awaitSubmitPermit() throws InterruptedException {
+        if (submitIntervalNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long slot = Math.max(now, nextSubmitNanos.getAndAccumulate(now, (next, current) -> Math.max(next, current) + submitIntervalNanos));
+        TimeUnit.NANOSECONDS.sleep(slot - now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package com.timetracker.service;
+
+import com.timetracker.metrics.TimeTrackerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs fetches for requests that can fall back to cached records, so that a slow legacy service
+ * delays them by at most serve_after_ms. A fetch still running by then is left to complete in the
+ * background, revalidating the cached records while the viewer is served the stale ones.
+ * Fetches run on a bounded pool with a bounded queue; when it is saturated, the caller runs the
+ * fetch itself and waits for it as if stale serving was disabled.
+ */
+@Component
+public class Revalidator {
+
+    private final static Logger LOG = LoggerFactory.getLogger(Revalidator.class);
+
+    private final boolean enabled;
+    private final long serveAfterMs;
+
+    private final ThreadPoolExecutor executor;
+
+    private final TimeTrackerMetrics metrics;
+
+    // Default Constructor
+    public Revalidator() {
+        this(true, 2000, 8, 100, new TimeTrackerMetrics());
+    }
+
+    @Autowired
+    public Revalidator(
+            @Value("${timetracker.stale.enabled:true}") boolean enabled,
+            @Value("${timetracker.stale.serve_after_ms:2000}") int serveAfterMs,
+            @Value("${timetracker.stale.max_concurrency:8}") int maxConcurrency,
+            @Value("${timetracker.stale.queue_size:100}") int queueSize,
+            TimeTrackerMetrics metrics) {
+
+        this.enabled = enabled;
+        this.serveAfterMs = serveAfterMs;
+        this.metrics = metrics;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "revalidate-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns how long a request waits for a fetch before it is served cached records.
+     * @return The wait.
+     */
+    public Duration getServeAfter() {
+        return Duration.ofMillis(serveAfterMs);
+    }
+
+    /**
+     * Runs a fetch and waits for it at most serve_after_ms.
+     * @param fetch The fetch to run.
+     * @return True if the fetch completed in time, false if it keeps running in the background.
+     * @throws RuntimeException The exception of a fetch that failed in time.
+     */
+    public boolean runWithin(Runnable fetch) {
+        if (!enabled) {
+            fetch.run();
+            return true;
+        }
+
+        CompletableFuture<Void> future;
+        try {
+            future = CompletableFuture.runAsync(fetch, executor);
+        } catch (RejectedExecutionException e) {
+            fetch.run();
+            return true;
+        }
+
+        try {
+            future.get(serveAfterMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    LOG.warn("Background revalidation failed", error);
+                    metrics.recordFailure("revalidator");
+                }
+            });
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,256 @@
+package com.timetracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.client.LegacyCircuitBreaker;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the end of the cached histories of recently viewed employees up to date in the background.
+ * Each tracked employee's tail is polled from the offset after the last fetched record, so a poll only
+ * returns records added since the previous one. The poll interval of an employee adapts to how often
+ * new records appear: it is halved when a poll finds new records and doubled when it finds none,
+ * between min_interval_sec and max_interval_sec. A failed poll leaves the interval as it is.
+ * While a tail was synced within the employee's interval, plus a tick for the next poll to start,
+ * page views trust the cached end of the history instead of fetching it again, and each successful
+ * poll renews the cache entry, so a synced history is not refetched when its time-to-live ends.
+ * Polls go through their own circuit breaker, configured like the one of user requests, so background
+ * traffic neither opens nor is rejected by the circuit of user requests.
+ * Employees are tracked until they are not viewed for idle_min; polls run on a bounded pool and are
+ * skipped when it is saturated.
+ */
+@Component
+public class TailSyncer implements MeterBinder {
+
+    private final static Logger LOG = LoggerFactory.getLogger(TailSyncer.class);
+
+    /**
+     * Fetches the records added to the end of an employee's cached history.
+     */
+    public interface TailPoll {
+        /**
+         * @param email The email to sync.
+         * @return The number of records appended, or -1 if the end of the history is not cached, so there is no tail to sync.
+         */
+        int poll(String email);
+    }
+
+    /**
+     * Polling state of a tracked employee.
+     */
+    static class HotEmployee {
+        private volatile long intervalNanos;
+        private volatile long nextPollNanos;
+        private final AtomicBoolean polling = new AtomicBoolean();
+
+        HotEmployee(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+            this.nextPollNanos = System.nanoTime() + intervalNanos;
+        }
+
+        long getIntervalNanos() {
+            return intervalNanos;
+        }
+    }
+
+    private final boolean enabled;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+
+    // Time a synced tail is trusted past the employee's interval, until the next poll has run
+    private final long tickNanos;
+
+    // Fails polls fast while the legacy service is degraded, separately from user requests
+    private final LegacyCircuitBreaker circuitBreaker;
+
+    // Employees viewed recently, by email
+    private final Cache<String, HotEmployee> hotEmployees;
+
+    private final ThreadPoolExecutor executor;
+
+    // Records appended by polls since the start
+    private final AtomicLong syncedRecords = new AtomicLong();
+
+    // Failure counts, injected lazily since the meter registry binds the meters of this syncer while it is created
+    private final TimeTrackerMetrics metrics;
+
+    private volatile TailPoll tailPoll;
+
+    // Default Constructor
+    public TailSyncer() {
+        this(true, 15, 300, 10, 1000, 2, 100, 1000, new LegacyCircuitBreaker().named("tail_sync"), new TimeTrackerMetrics());
+    }
+
+    @Autowired
+    public TailSyncer(
+            @Value("${timetracker.tail_sync.enabled:true}") boolean enabled,
+            @Value("${timetracker.tail_sync.min_interval_sec:15}") int minIntervalSec,
+            @Value("${timetracker.tail_sync.max_interval_sec:300}") int maxIntervalSec,
+            @Value("${timetracker.tail_sync.idle_min:10}") int idleMin,
+            @Value("${timetracker.tail_sync.max_employees:1000}") int maxEmployees,
+            @Value("${timetracker.tail_sync.max_concurrency:2}") int maxConcurrency,
+            @Value("${timetracker.tail_sync.queue_size:100}") int queueSize,
+            @Value("${timetracker.tail_sync.tick_ms:1000}") long tickMs,
+            @Qualifier("tailSyncCircuitBreaker") LegacyCircuitBreaker circuitBreaker,
+            @Lazy TimeTrackerMetrics metrics) {
+
+        this.enabled = enabled;
+        this.minIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, minIntervalSec));
+        this.maxIntervalNanos = Math.max(minIntervalNanos, TimeUnit.SECONDS.toNanos(maxIntervalSec));
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.circuitBreaker = circuitBreaker;
+        this.metrics = metrics;
+        this.hotEmployees = Caffeine.newBuilder()
+                .maximumSize(maxEmployees)
+                .expireAfterAccess(idleMin, TimeUnit.MINUTES)
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "tail-sync-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the circuit breaker that polls go through instead of the one of user requests.
+     * @return The circuit breaker of background polls.
+     */
+    public LegacyCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets how tails are polled; no employee is polled before.
+     * @param tailPoll The poll fetching the new records of an employee.
+     */
+    public void start(TailPoll tailPoll) {
+        this.tailPoll = tailPoll;
+    }
+
+    /**
+     * Tracks an employee whose records are viewed, so that the end of their history is kept up to date.
+     * @param email The email being viewed.
+     */
+    public void touch(String email) {
+        if (enabled) {
+            hotEmployees.get(email, key -> new HotEmployee(minIntervalNanos));
+        }
+    }
+
+    /**
+     * Checks whether the end of an employee's cached history was synced within the employee's poll
+     * interval and a tick, so that a view can be served from the cache without checking for newer records.
+     * A failed poll does not sync the tail, so the window closes an interval after the last successful one.
+     * @param email The email being viewed.
+     * @param cached The cached records of the email.
+     * @return True if the employee is tracked and the end of the history was reached within the window.
+     */
+    public boolean isTailFresh(String email, EmployeeRecords cached) {
+        HotEmployee employee = enabled ? hotEmployees.getIfPresent(email) : null;
+        return employee != null && cached.isEndReachedWithin(employee.intervalNanos + tickNanos);
+    }
+
+    /**
+     * Submits a poll for every tracked employee whose interval has elapsed and who is not being polled.
+     */
+    @Scheduled(fixedDelayString = "${timetracker.tail_sync.tick_ms:1000}")
+    public void pollDue() {
+        TailPoll poll = tailPoll;
+        if (!enabled || poll == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        hotEmployees.asMap().forEach((email, employee) -> {
+            if (now - employee.nextPollNanos < 0 || !employee.polling.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        sync(email, employee, poll);
+                    } finally {
+                        employee.polling.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                employee.polling.set(false);
+            }
+        });
+    }
+
+    /**
+     * Polls an employee's tail and adapts their interval to whether new records were found.
+     * A failed poll is retried after the same interval, since it says nothing about how often records appear.
+     */
+    void sync(String email, HotEmployee employee, TailPoll poll) {
+        long interval = employee.intervalNanos;
+        try {
+            int appended = poll.poll(email);
+            if (appended > 0) {
+                syncedRecords.addAndGet(appended);
+                interval = Math.max(minIntervalNanos, interval / 2);
+            } else if (appended == 0) {
+                interval = Math.min(maxIntervalNanos, interval * 2);
+            }
+        } catch (Exception e) {
+            LOG.warn("Tail sync of {} failed", email, e);
+            metrics.recordFailure("tail_sync");
+        }
+        employee.intervalNanos = interval;
+        employee.nextPollNanos = System.nanoTime() + interval;
+    }
+
+    /**
+     * Registers the number of tracked employees and of records appended by polls.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("timetracker.tail_sync.employees", hotEmployees, Cache::estimatedSize)
+                .description("Employees whose history tails are synced in the background")
+                .register(registry);
+        FunctionCounter.builder("timetracker.tail_sync.records", syncedRecords, AtomicLong::get)
+                .description("Records appended by background tail syncs")
+                .register(registry);
+    }
+
+    // For testing purposes
+    HotEmployee getHotEmployee(String email) {
+        return hotEmployees.getIfPresent(email);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,226 @@
+package com.timetracker.service;
+
+import com.timetracker.model.TeamMember;
+import com.timetracker.model.TeamRecords;
+import com.timetracker.model.TimeRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the records of the members of a team concurrently on a bounded pool, so that a team loads
+ * in about the time of its slowest member rather than the sum of all members.
+ * Each member has a deadline counted from the start of the team fetch. A member whose records have not
+ * arrived by then is reported as FETCH_TIMEOUT and the others are returned without it; a fetch still
+ * running keeps filling the records cache in the background, while one still queued is skipped.
+ * The members' records, each sorted by start time, are merged into one list with a k-way merge.
+ */
+@Component
+public class TeamFetcher {
+
+    private final static Logger LOG = LoggerFactory.getLogger(TeamFetcher.class);
+
+    /**
+     * Fetches the records of one member, sorted by start time.
+     */
+    public interface MemberQuery {
+        MemberRecords query(String email);
+    }
+
+    /**
+     * The records of one member, with the status and outdated flag to report for the member.
+     */
+    public static class MemberRecords {
+        private final String status;
+        private final List<TimeRecord> records;
+        private final boolean outdated;
+
+        public MemberRecords(String status, List<TimeRecord> records, boolean outdated) {
+            this.status = status;
+            this.records = records;
+            this.outdated = outdated;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public List<TimeRecord> getRecords() {
+            return records;
+        }
+
+        public boolean isOutdated() {
+            return outdated;
+        }
+    }
+
+    private final int parallelism;
+    private final long fetchTimeoutMs;
+    private final int maxSize;
+
+    private final ExecutorService executor;
+
+    // Default Constructor
+    public TeamFetcher() {
+        this(20, 3000, 100);
+    }
+
+    @Autowired
+    public TeamFetcher(
+            @Value("${timetracker.team.parallelism:20}") int parallelism,
+            @Value("${timetracker.team.fetch_timeout_ms:3000}") long fetchTimeoutMs,
+            @Value("${timetracker.team.max_size:100}") int maxSize) {
+
+        this.parallelism = Math.max(1, parallelism);
+        this.fetchTimeoutMs = fetchTimeoutMs;
+        this.maxSize = maxSize;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(this.parallelism, this.parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "team-fetch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Duration getFetchTimeout() {
+        return Duration.ofMillis(fetchTimeoutMs);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Splits a list of emails separated by commas, semicolons or whitespace, dropping blanks and duplicates.
+     * @param emails The emails, e.g. as entered in the team form.
+     * @return The distinct emails in the order given.
+     */
+    public static List<String> parseEmails(String emails) {
+        LinkedHashSet<String> distinct = new LinkedHashSet<>();
+        for (String email : emails.split("[,;\\s]+")) {
+            if (!email.isEmpty()) {
+                distinct.add(email);
+            }
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    /**
+     * Fetches the records of all members of a team and merges them.
+     * @param emails The distinct emails of the members.
+     * @param query The query fetching the records of one member.
+     * @return The outcome of each member and their merged records.
+     */
+    public TeamRecords fetch(List<String> emails, MemberQuery query) {
+        List<CompletableFuture<MemberRecords>> fetches = new ArrayList<>(emails.size());
+        for (String email : emails) {
+            CompletableFuture<MemberRecords> fetch = new CompletableFuture<>();
+            executor.execute(() -> {
+                // Skips members whose deadline passed while they were queued
+                if (fetch.isDone()) {
+                    return;
+                }
+                try {
+                    fetch.complete(query.query(email));
+                } catch (RuntimeException e) {
+                    fetch.completeExceptionally(e);
+                }
+            });
+            fetches.add(fetch.completeOnTimeout(new MemberRecords("FETCH_TIMEOUT", List.of(), false), fetchTimeoutMs, TimeUnit.MILLISECONDS));
+        }
+
+        List<MemberRecords> results = new ArrayList<>(emails.size());
+        for (CompletableFuture<MemberRecords> fetch : fetches) {
+            try {
+                results.add(fetch.join());
+            } catch (CompletionException e) {
+                LOG.warn("Retrieving the records of a team member failed", e.getCause());
+                results.add(new MemberRecords(e.getCause() instanceof RestClientException ? "CONNECTION_ERROR" : "UNKNOWN_ERROR", List.of(), false));
+            }
+        }
+        return teamRecords(emails, results);
+    }
+
+    /**
+     * Builds the records of a team from the results of its members.
+     * @param emails The emails of the members.
+     * @param results The results of the members, in the same order.
+     * @return The outcome of each member and their merged records.
+     */
+    public static TeamRecords teamRecords(List<String> emails, List<MemberRecords> results) {
+        List<TeamMember> members = new ArrayList<>(emails.size());
+        List<List<TimeRecord>> records = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            MemberRecords result = results.get(i);
+            members.add(new TeamMember(emails.get(i), result.getStatus(), result.getRecords().size(), result.isOutdated()));
+            records.add(result.getRecords());
+        }
+        return new TeamRecords(members, mergeByStartTime(records));
+    }
+
+    /**
+     * Merges lists of records, each sorted by start time, into one list sorted by start time.
+     * A heap holds the next record of each list, so merging n records from k lists takes O(n log k)
+     * rather than sorting all of them. Records starting at the same time keep the order of their lists.
+     * @param sortedLists The lists of records, each sorted by start time.
+     * @return The merged records.
+     */
+    public static List<TimeRecord> mergeByStartTime(List<List<TimeRecord>> sortedLists) {
+        int total = 0;
+        for (List<TimeRecord> list : sortedLists) {
+            total += list.size();
+        }
+        List<TimeRecord> merged = new ArrayList<>(total);
+
+        // Heads of the lists, as {list index, position}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                Comparator.<int[]>comparingLong(head -> sortedLists.get(head[0]).get(head[1]).getStartEpochMillis())
+                        .thenComparingInt(head -> head[0]));
+        for (int i = 0; i < sortedLists.size(); i++) {
+            if (!sortedLists.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<TimeRecord> list = sortedLists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
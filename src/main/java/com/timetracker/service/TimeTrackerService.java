@@ -1,48 +1,127 @@
 package com.timetracker.service;
 
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.client.LegacyCircuitBreaker;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.client.PeerClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.HoursSummary;
+import com.timetracker.model.ImportReport;
+import com.timetracker.model.PeerPage;
+import com.timetracker.model.RecordsPage;
+import com.timetracker.model.Submission;
+import com.timetracker.model.TeamRecords;
 import com.timetracker.model.TimeRecord;
 import com.timetracker.utils.Utils;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
-import java.time.LocalDateTime;
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class TimeTrackerService {
 
-    // Configuration properties with default values
-    @Value("${timetracker.records_per_page:10}")
-    private int recordsPerPage;
+    private final static Logger LOG = LoggerFactory.getLogger(TimeTrackerService.class);
 
-    @Value("${timetracker.bulk_fetch_pages:5}")
-    private int bulkFetchPages;
-
-    @Value("${timetracker.cache.max_time_to_live_min:5}")
-    private int cacheTimeToLive;
-
-    @Value("${timetracker.legacy_service.base_url:http://timetracker-legacy:8080}")
-    private String baseUrl = "http://timetracker-legacy:8080";
-
-    // Last cache cleanup time
-    private LocalDateTime lastCacheClean = LocalDateTime.now();
+    private final static long MILLIS_PER_DAY = 86400000L;
 
     // Cache to store records by email
-    private final ConcurrentMap<String, List<TimeRecord>> recordsByEmail = new ConcurrentHashMap<>();
-
-    // RestTemplate for HTTP requests
-    private RestTemplate restTemplate = new RestTemplate();
+    private final RecordsCache recordsByEmail;
+
+    // Fetch decisions and bookkeeping shared with the reactive service
+    private final CacheFiller cacheFiller;
+
+    // Background read-ahead of upcoming pages
+    private final ReadAheadPrefetcher prefetcher;
+
+    // Concurrent slice fetching for bulk loads
+    private final PageRangeFetcher pageRangeFetcher;
+
+    // Bounded waits for fetches that can fall back to cached records
+    private final Revalidator revalidator;
+
+    // Streaming exports of full histories
+    private final RecordExporter recordExporter;
+
+    // Bulk imports of records
+    private final RecordImporter recordImporter;
+
+    // Concurrent fetching of the records of a team
+    private final TeamFetcher teamFetcher;
+
+    // Hours summaries and history loads for date range queries
+    private final HoursSummarizer hoursSummarizer;
+
+    // Background sync of the end of viewed histories
+    private final TailSyncer tailSyncer;
+
+    // Background submission of recorded times
+    private final WriteBehindQueue writeBehind;
+
+    // Cache and legacy call metrics
+    private final TimeTrackerMetrics metrics;
+
+    // Shares one legacy fetch between concurrent requests for the same email and offset
+    private final RequestCoalescer<Map.Entry<String, Integer>, Boolean> fetchCoalescer = new RequestCoalescer<>();
+
+    // Pooled HTTP client for the legacy service
+    private final LegacyServiceClient legacyClient;
+
+    // Replicas owning the emails of a sharded records cache
+    private final PeerClient peerClient;
+
+    @Autowired
+    public TimeTrackerService(
+            RecordsCache recordsByEmail,
+            CacheFiller cacheFiller,
+            ReadAheadPrefetcher prefetcher,
+            PageRangeFetcher pageRangeFetcher,
+            Revalidator revalidator,
+            RecordExporter recordExporter,
+            RecordImporter recordImporter,
+            TeamFetcher teamFetcher,
+            HoursSummarizer hoursSummarizer,
+            TailSyncer tailSyncer,
+            WriteBehindQueue writeBehind,
+            TimeTrackerMetrics metrics,
+            LegacyServiceClient legacyClient,
+            PeerClient peerClient) {
+
+        this.recordsByEmail = recordsByEmail;
+        this.cacheFiller = cacheFiller;
+        this.prefetcher = prefetcher;
+        this.pageRangeFetcher = pageRangeFetcher;
+        this.revalidator = revalidator;
+        this.recordExporter = recordExporter;
+        this.recordImporter = recordImporter;
+        this.teamFetcher = teamFetcher;
+        this.hoursSummarizer = hoursSummarizer;
+        this.tailSyncer = tailSyncer;
+        this.writeBehind = writeBehind;
+        this.metrics = metrics;
+        this.legacyClient = legacyClient;
+        this.peerClient = peerClient;
+    }
 
     // For testing purposes
     public void setRestTemplate(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+        legacyClient.setRestTemplate(restTemplate);
     }
 
     /**
@@ -53,22 +132,11 @@ public class TimeTrackerService {
      * @return The list of time records.
      */
     public List<TimeRecord> getRecordsByEmail(String email, int page, boolean fullSearch) {
+        int recordsPerPage = cacheFiller.getRecordsPerPage();
         int offset = (page - 1) * recordsPerPage;
         return retrieveRecords(email, offset, recordsPerPage, true, fullSearch);
     }
 
-    /**
-     * Scheduled task to clean the cache every fixed rate (e.g., 60 seconds).
-     */
-    @Scheduled(fixedRate = 60000)
-    public void cleanCache() {
-        if (lastCacheClean.plusMinutes(cacheTimeToLive).isBefore(LocalDateTime.now())) {
-            recordsByEmail.clear();
-            lastCacheClean = LocalDateTime.now();
-            System.out.println("Cache cleaned");
-        }
-    }
-
     /**
      * Queries records from the external service.
      * @param email The email to query records for.
@@ -77,30 +145,52 @@ public class TimeTrackerService {
      * @return The list of queried time records.
      */
     private List<TimeRecord> queryRecords(String email, int offset, int length) {
+        List<TimeRecord> records = new ArrayList<>();
+        metrics.recordLegacyCall("queryRecords", () -> legacyClient.streamRecords(email, offset, length, records::addAll));
+        return records;
+    }
 
-            // Constructing the URL for the request
-            String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
-                    .path("/records")
-                    .queryParam("email", email)
-                    .queryParam("offset", offset)
-                    .queryParam("length", length)
-                    .toUriString();
-
-            // Performing the GET request
-            TimeRecord[] records = restTemplate.getForObject(url, TimeRecord[].class);
-
-            assert records != null;
-
-            // Converting the array to a list and removing null values
-            List<TimeRecord> recordsList = new ArrayList<>(Arrays.asList(records));
-            recordsList.removeIf(Objects::isNull);
-
-            return recordsList;
+    /**
+     * Retrieves records, from the replica owning the email if the records cache is sharded and
+     * another replica owns it, and from the local cache otherwise or if the owner is down.
+     * @param email The email to retrieve records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param considerNullField Whether to consider null fields.
+     * @param bulkFetch Whether to perform bulk fetch.
+     * @return The list of retrieved time records.
+     */
+    public List<TimeRecord> retrieveRecords(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+        String owner = peerClient.ownerOf(email);
+        if (owner != null) {
+            try {
+                return peerClient.fetchRecords(owner, email, offset, length, considerNullField, bulkFetch).getRecords();
+            } catch (RestClientException e) {
+                // The owner is considered down now, so the records are fetched and cached here
+            }
+        }
+        return retrieveLocalRecords(email, offset, length, considerNullField, bulkFetch);
+    }
 
+    /**
+     * Retrieves a page of records for another replica, from the local cache, which this replica keeps for the emails it owns.
+     * @param email The email to retrieve records for.
+     * @param offset The offset for pagination.
+     * @param length The number of records to retrieve.
+     * @param considerNullField Whether to consider null fields.
+     * @param bulkFetch Whether to perform bulk fetch.
+     * @return The records with the number of cached records and whether they may be outdated.
+     */
+    public PeerPage getPeerPage(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+        List<TimeRecord> records = retrieveLocalRecords(email, offset, length, considerNullField, bulkFetch);
+        EmployeeRecords cached = recordsByEmail.get(email);
+        return new PeerPage(records, recordsByEmail.size(email), cached != null && cached.isOutdated());
     }
 
     /**
      * Retrieves records and handles cache logic.
+     * Records already cached are served as they are, and the email's records flagged as outdated,
+     * if the legacy service fails or does not answer within the revalidator's wait.
      * @param email The email to retrieve records for.
      * @param offset The offset for pagination.
      * @param length The number of records to retrieve.
@@ -108,87 +198,412 @@ public class TimeTrackerService {
      * @param bulkFetch Whether to perform bulk fetch.
      * @return The list of retrieved time records.
      */
-    public List<TimeRecord> retrieveRecords(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
+    private List<TimeRecord> retrieveLocalRecords(String email, int offset, int length, boolean considerNullField, boolean bulkFetch) {
         try {
-            // Perform a full search if required
-            if (bulkFetch) {
-                int currentOffset = recordsByEmail.getOrDefault(email, new ArrayList<>()).size();
-                List<TimeRecord> allRecords = Collections.synchronizedList(queryRecords(email, currentOffset, bulkFetchPages * recordsPerPage));
-                recordsByEmail.merge(email, allRecords, (existing, newRecords) -> {
-                    existing.addAll(newRecords);
-                    return existing;
+            EmployeeRecords cached = recordsByEmail.getOrCreate(email);
+            int cachedSize = cached.size();
+
+            // Fetch and cache records if not enough records are available in cache, performing a full search if required;
+            // a page at the end of the history is served as it is while the tail syncer keeps the end up to date
+            boolean fetched = true;
+            if (cacheFiller.needsFetch(email, cached, offset, length, bulkFetch)) {
+                fetched = fetchOrServeStale(email, cached, cachedSize > offset, () -> {
+                    if (bulkFetch) {
+                        fillCache(email, cached, cacheFiller.bulkTarget(cachedSize), true);
+                    }
+                    fillCache(email, cached, offset + length, false);
                 });
             }
+            if (cached.size() != cachedSize) {
+                recordsByEmail.recordsAdded(email);
+            }
 
-            List<TimeRecord> result;
+            // Read ahead if the viewer is close to the end of the cached records
+            if (fetched) {
+                readAhead(email, cached, offset + length);
+            }
 
-            // Fetch records from cache if available
-            if (recordsByEmail.containsKey(email)) {
-                // Fetch and cache records if not enough records are available in cache
-                if (recordsByEmail.get(email).size() < offset + length) {
-                    int lastOffset = recordsByEmail.get(email).size();
-                    List<TimeRecord> queriedRecords = queryRecords(email, lastOffset, offset + length - lastOffset);
-                    recordsByEmail.get(email).addAll(queriedRecords);
-                }
-                // Get records from cache
-                int endIndex = Math.min(offset + length, recordsByEmail.get(email).size());
-                if (offset >= endIndex) {
-                    return new ArrayList<>();
-                }
-                result = recordsByEmail.get(email).subList(offset, endIndex);
+            // Get records from cache sorted by start date time, without invalid records if considerNullField is false
+            return cacheFiller.copySorted(cached, offset, length, considerNullField);
 
-            } else {
-                // Fetch and cache records if not available in cache
-                result = queryRecords(email, 0, offset + length);
-                recordsByEmail.put(email, Collections.synchronizedList(result));
-                result = result.subList(Math.max(result.size() - length, 0), result.size());
+        // Catch any exceptions and return an empty list
+        } catch (Exception e) {
+            LOG.warn("Retrieving the records of {} failed", email, e);
+            metrics.recordFailure("records");
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Runs a fetch for a request. If the request can be served from the cached records as they are,
+     * they are served, flagged as outdated, when the fetch fails or is still running after the
+     * revalidator's wait; a running fetch then completes in the background.
+     * @param email The email the records are fetched for.
+     * @param cached The cached records of the email.
+     * @param servable Whether the cached records can serve the request without the fetch.
+     * @param fetch The fetch.
+     * @return True if the fetch completed, false if stale records are served.
+     * @throws RestClientException If the fetch failed and the request cannot be served without it.
+     */
+    private boolean fetchOrServeStale(String email, EmployeeRecords cached, boolean servable, Runnable fetch) {
+        try {
+            if (!servable) {
+                fetch.run();
+                return true;
             }
+            if (revalidator.runWithin(() -> {
+                fetch.run();
+                recordsByEmail.recordsAdded(email);
+            })) {
+                return true;
+            }
+        } catch (RestClientException e) {
+            cached.setOutdated(true);
+            if (!servable) {
+                throw e;
+            }
+            LOG.warn("Fetching the records of {} failed, serving the cached records", email, e);
+            metrics.recordFailure("records");
+            return false;
+        }
+        cached.setOutdated(true);
+        return false;
+    }
 
-            // Remove invalid records if considerNullField is false
-            result.removeIf(tr -> (!tr.isValid() && !considerNullField));
+    /**
+     * Checks whether the cached records of an email were served without the newest records,
+     * because the legacy service failed or was slow when they were last fetched.
+     * @param email The email to check.
+     * @return True if the records may be outdated.
+     */
+    public boolean isRecordsOutdated(String email) {
+        PeerPage remote = peerClient.ownerOf(email) == null ? null : peerClient.getLastRemotePage(email);
+        if (remote != null) {
+            return remote.isOutdated();
+        }
+        EmployeeRecords cached = recordsByEmail.get(email);
+        return cached != null && cached.isOutdated();
+    }
 
-            // Sort the records by start date time
-            result.sort(Comparator.comparing(TimeRecord::getStartDateTime));
+    /**
+     * Returns the version of the cached records of an email if the cache can answer a range of
+     * records without the legacy service: the range is fetched already, or the end of the history
+     * was reached recently. Nothing is created or restored for an email that is not cached, so that
+     * unknown emails do not fill the cache before the user check.
+     * @param email The email to look up.
+     * @param offset The index of the first record of the range, in the order the records were recorded.
+     * @param length The length of the range.
+     * @return The version of the cached records, or null if the email is not cached or the range must be fetched.
+     */
+    public String getCachedRecordsVersion(String email, int offset, int length) {
+        EmployeeRecords cached = recordsByEmail.get(email);
+        if (cached == null) {
+            return null;
+        }
+        String version = cached.version();
+        return cacheFiller.isAnsweredFromCache(email, cached, offset, length) ? version : null;
+    }
 
-            return result;
+    /**
+     * Retrieves a range of records in legacy offset order, the order they were recorded in.
+     * A range at the end of the history is fetched again only if the end was not reached recently.
+     * @param email The email to retrieve records for.
+     * @param offset The index of the first record of the range, in the order the records were recorded.
+     * @param length The length of the range.
+     * @return The records with the version of the cached records they were read from.
+     * @throws RestClientException If the records could not be fetched.
+     */
+    public RecordsPage getRecordsPage(String email, int offset, int length) {
+        EmployeeRecords cached = recordsByEmail.getOrCreate(email);
+        int cachedSize = cached.size();
+        if (cacheFiller.pageNeedsFetch(email, cached, offset, length)) {
+            fillCache(email, cached, offset + length, false);
+            if (cached.size() != cachedSize) {
+                recordsByEmail.recordsAdded(email);
+            }
+        }
+        readAhead(email, cached, offset + length);
+        return cacheFiller.page(cached, offset, length);
+    }
 
-        // Catch any exceptions and return an empty list
-        } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
-            return new ArrayList<>();
+    /**
+     * Fetches the records added to the end of an email's cached history since it was last reached,
+     * page by page from the offset after the last fetched record, for the tail syncer. Polls go
+     * through the tail syncer's circuit breaker. A successful poll pushes back the entry's write
+     * deadline, since its end is then known to be up to date.
+     * @param email The email to sync.
+     * Emails owned by another replica of a sharded records cache are left to their owner.
+     * @return The number of records appended, or -1 if the email is not cached here or the end of its history was not reached.
+     * @throws RestClientException If the records could not be fetched.
+     */
+    int syncTail(String email) {
+        EmployeeRecords cached = recordsByEmail.get(email);
+        if (cached == null || !cached.isEndReached() || peerClient.ownerOf(email) != null) {
+            return -1;
+        }
+
+        int before = cached.fetchedSize();
+        boolean exhausted = false;
+        while (!exhausted) {
+            int lastOffset = cached.nextOffset();
+            exhausted = fetchCoalescer.execute(Map.entry(email, lastOffset),
+                    () -> fetchIntoCache(email, cached, lastOffset, cacheFiller.getRecordsPerPage(), tailSyncer.getCircuitBreaker()));
+        }
+        recordsByEmail.tailSynced(email);
+        return cached.fetchedSize() - before;
+    }
+
+    /**
+     * Fetches records from the external service until the cache holds the target number of records
+     * or the employee has no more records.
+     * Concurrent callers fetching from the same offset share one request, and its records are appended once.
+     * @param email The email to fetch records for.
+     * @param cached The cached records of the email.
+     * @param targetSize The number of records the cache should hold.
+     * @param parallel Whether to fetch the missing range as concurrent page-sized slices.
+     */
+    private void fillCache(String email, EmployeeRecords cached, int targetSize, boolean parallel) {
+        while (cached.size() < targetSize) {
+            int lastOffset = cached.nextOffset();
+            int length = targetSize - cached.size();
+            boolean exhausted = fetchCoalescer.execute(Map.entry(email, lastOffset), () ->
+                    parallel && !cached.isTailUnverified() && pageRangeFetcher.isParallel(length, cacheFiller.getRecordsPerPage())
+                            ? fetchSlicesIntoCache(email, cached, lastOffset, length)
+                            : fetchIntoCache(email, cached, lastOffset, length));
+            if (exhausted) {
+                return;
+            }
         }
     }
 
+    /**
+     * Fetches a range of records with one request and appends it to the cache.
+     * @return True if the employee has no records past the range.
+     */
+    private boolean fetchIntoCache(String email, EmployeeRecords cached, int offset, int length) {
+        return fetchIntoCache(email, cached, offset, length, null);
+    }
+
+    /**
+     * Fetches a range of records with one request and appends it to the cache batch by batch while it is decoded.
+     * @param breaker The circuit breaker to go through, or null for the one of user requests.
+     * @return True if the employee has no records past the range.
+     */
+    private boolean fetchIntoCache(String email, EmployeeRecords cached, int offset, int length, LegacyCircuitBreaker breaker) {
+        CacheFiller.Fetch fetch = cacheFiller.startFetch(email, cached, offset, length);
+        metrics.recordLegacyCall("queryRecords", () -> breaker == null
+                ? legacyClient.streamRecords(email, fetch.getOffset(), fetch.getLength(), fetch::append)
+                : legacyClient.streamRecords(email, fetch.getOffset(), fetch.getLength(), fetch::append, breaker));
+        return fetch.complete();
+    }
+
+    /**
+     * Fetches a range of records as concurrent page-sized slices and appends them to the cache in offset order.
+     * The slices past a short or failed one are cancelled, so those not started yet are not fetched.
+     * @return True if the employee has no records past the range.
+     */
+    private boolean fetchSlicesIntoCache(String email, EmployeeRecords cached, int offset, int length) {
+        int recordsPerPage = cacheFiller.getRecordsPerPage();
+        List<CompletableFuture<List<TimeRecord>>> slices =
+                pageRangeFetcher.fetchSlices(offset, length, recordsPerPage, (sliceOffset, sliceLength) -> queryRecords(email, sliceOffset, sliceLength));
+
+        try {
+            int sliceOffset = offset;
+            for (CompletableFuture<List<TimeRecord>> slice : slices) {
+                int sliceLength = Math.min(recordsPerPage, offset + length - sliceOffset);
+                List<TimeRecord> queriedRecords;
+                try {
+                    queriedRecords = slice.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+                cached.appendAt(sliceOffset, queriedRecords);
+                if (cacheFiller.completeFetch(email, cached, sliceOffset, sliceLength, queriedRecords.size())) {
+                    return true;
+                }
+                sliceOffset += sliceLength;
+            }
+            return false;
+        } finally {
+            slices.forEach(slice -> slice.cancel(false));
+        }
+    }
+
+    /**
+     * Fetches the next bulk of records in the background when the viewed position is
+     * within the read-ahead depth of the end of the cached records.
+     * @param email The email being viewed.
+     * @param cached The cached records of the email.
+     * @param viewedEnd The offset after the last record being viewed.
+     */
+    private void readAhead(String email, EmployeeRecords cached, int viewedEnd) {
+        int targetSize = cacheFiller.readAheadTarget(cached, viewedEnd);
+        if (targetSize < 0) {
+            return;
+        }
+        prefetcher.submit(email, () -> {
+            fillCache(email, cached, targetSize, false);
+            recordsByEmail.recordsAdded(email);
+        });
+    }
+
+    /**
+     * Retrieves the records of an email starting within a date range, sorted by start time.
+     * The legacy service cannot filter by date, so the employee's history is loaded into the cache
+     * first, fetching only records past the cached ones; the range is then looked up in the cache's
+     * start time index, independently of the length of the history.
+     * The cached records are served as they are if the legacy service fails or is slow.
+     * @param email The email to retrieve records for.
+     * @param from The first day, inclusive, or null for no lower bound.
+     * @param to The last day, inclusive, or null for no upper bound.
+     * @return The list of time records.
+     * @throws RestClientException If the legacy service failed and no records of the email are cached.
+     */
+    public List<TimeRecord> getRecordsBetween(String email, LocalDate from, LocalDate to) {
+        EmployeeRecords cached = recordsByEmail.getOrCreate(email);
+        if (!cached.isEndReached()) {
+            fetchOrServeStale(email, cached, cached.size() > 0, () -> hoursSummarizer.loadHistory(email, this::fillHistory));
+        }
+        return getCachedRecordsBetween(email, from, to);
+    }
+
+    /**
+     * Looks up the cached records of an email starting within a date range, sorted by start time, without fetching any.
+     * @param email The email to look up records for.
+     * @param from The first day, inclusive, or null for no lower bound.
+     * @param to The last day, inclusive, or null for no upper bound.
+     * @return The list of cached time records.
+     */
+    public List<TimeRecord> getCachedRecordsBetween(String email, LocalDate from, LocalDate to) {
+        long fromEpochMillis = from == null ? Long.MIN_VALUE : from.toEpochDay() * MILLIS_PER_DAY;
+        long toEpochMillis = to == null ? Long.MAX_VALUE : to.plusDays(1).toEpochDay() * MILLIS_PER_DAY;
+        return recordsByEmail.getOrCreate(email).copyStartingBetween(fromEpochMillis, toEpochMillis);
+    }
+
+    /**
+     * Retrieves the records of the members of a team concurrently and merges them into one list sorted
+     * by start time: a page of each member's records or, if from or to is given, those starting within
+     * the date range. Members are fetched with the team fetcher's bounded parallelism and deadline;
+     * a member whose records could not be fetched in time is reported and left out.
+     * Members without records are checked for existence, which the fetch has usually cached already.
+     * @param emails The distinct emails of the members.
+     * @param page The page number to retrieve of each member.
+     * @param from The first day, inclusive, or null for no lower bound.
+     * @param to The last day, inclusive, or null for no upper bound.
+     * @return The outcome of each member and their merged records.
+     */
+    public TeamRecords getTeamRecords(List<String> emails, int page, LocalDate from, LocalDate to) {
+        boolean rangeQuery = from != null || to != null;
+        return teamFetcher.fetch(emails, email -> {
+            List<TimeRecord> records = rangeQuery ? getRecordsBetween(email, from, to) : getRecordsByEmail(email, page, false);
+            String status = records.isEmpty() ? checkExistingUser(email) : "USER_EXISTS";
+            return new TeamFetcher.MemberRecords(status.equals("USER_EXISTS") ? "RECORDS_LOADED" : status, records, isRecordsOutdated(email));
+        });
+    }
+
+    public int getMaxTeamSize() {
+        return teamFetcher.getMaxSize();
+    }
+
+    /**
+     * Writes the full history of an employee to an output stream as CSV or NDJSON, chunk by chunk
+     * as it is read from the legacy service. The records cache is neither read nor filled, so an
+     * export does not evict the records of interactive viewers.
+     * @param email The email to export records for.
+     * @param format The export format, csv or ndjson.
+     * @param out The output stream.
+     * @return The number of records exported.
+     * @throws IOException If writing to the output fails.
+     */
+    public long exportRecords(String email, String format, OutputStream out) throws IOException {
+        return recordExporter.export(email, format, out);
+    }
+
+    /**
+     * Summarizes the hours worked by an employee over a date range, in total and per day, ISO week or month.
+     * The employee's whole history is loaded into the cache first, for at most the history load timeout.
+     * @param email The email to summarize hours for.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @param granularity The period length: "day", "week" or "month".
+     * @return The hours summary, partial if the history could not be loaded within the timeout.
+     * @throws IllegalArgumentException If the granularity is unknown, from is after to, or the range has too many periods.
+     */
+    public HoursSummary getHoursSummary(String email, LocalDate from, LocalDate to, String granularity) {
+        return hoursSummarizer.summarize(email, from, to, granularity, this::fillHistory);
+    }
+
+    private void fillHistory(String email, EmployeeRecords cached, int targetSize) {
+        fillCache(email, cached, targetSize, true);
+    }
+
     /**
      * Calculates available pages based on records in cache.
      * @param email The email to calculate pages for.
      * @return The number of available pages.
      */
     public int getAvailablePages(String email) {
-        int maxRecords = recordsByEmail.getOrDefault(email, new ArrayList<>()).size();
-        return (int) Math.ceil((double) maxRecords / recordsPerPage);
+        PeerPage remote = peerClient.ownerOf(email) == null ? null : peerClient.getLastRemotePage(email);
+        int maxRecords = remote != null ? remote.getCachedSize() : recordsByEmail.size(email);
+        return (int) Math.ceil((double) maxRecords / cacheFiller.getRecordsPerPage());
+    }
+
+    public int getRecordsPerPage() {
+        return cacheFiller.getRecordsPerPage();
     }
 
     public int getBulkFetchPages() {
-        return bulkFetchPages;
+        return cacheFiller.getBulkFetchPages();
     }
 
     /**
-     * Checks if user exists by querying one record.
+     * Checks if user exists, on the replica owning the email if the records cache is sharded and
+     * another replica owns it, and locally otherwise or if the owner is down.
      * @param email The email to check.
      * @return the response message.
      */
     public String checkExistingUser(String email) {
+        String owner = peerClient.ownerOf(email);
+        if (owner != null && cacheFiller.knownExistence(email) == null) {
+            try {
+                String response = peerClient.checkExistingUser(owner, email);
+                if (response.equals("USER_EXISTS") || response.equals("INVALID_USER")) {
+                    cacheFiller.userChecked(email, response.equals("USER_EXISTS"));
+                }
+                return response;
+            } catch (RestClientException e) {
+                // The owner is considered down now, so the user is checked here
+            }
+        }
+        return checkLocalUser(email);
+    }
+
+    /**
+     * Checks if user exists, using cached or stored records or a recent check when available,
+     * and otherwise by querying one record.
+     * @param email The email to check.
+     * @return the response message.
+     */
+    public String checkLocalUser(String email) {
 
         try {
-            List<TimeRecord> records = queryRecords(email, 0, 1);
-            return records.isEmpty() ? "INVALID_USER" : "USER_EXISTS";
+            Boolean exists = recordsByEmail.hasRecords(email) ? Boolean.TRUE : cacheFiller.knownExistence(email);
+            if (exists == null) {
+                boolean[] found = {false};
+                metrics.recordLegacyCall("checkExistingUser", () -> legacyClient.streamRecords(email, 0, 1,
+                        batch -> found[0] |= batch.stream().anyMatch(Objects::nonNull)));
+                exists = found[0];
+                cacheFiller.userChecked(email, exists);
+            }
+            return exists ? "USER_EXISTS" : "INVALID_USER";
 
         } catch (RestClientException | IllegalArgumentException e) {
-            System.err.println("Error: " + e.getMessage());
+            LOG.warn("Checking user {} failed", email, e);
+            metrics.recordFailure("user_check");
             return "CONNECTION_ERROR";
         } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
+            LOG.warn("Checking user {} failed", email, e);
+            metrics.recordFailure("user_check");
             return "UNKNOWN_ERROR";
         }
 
@@ -208,27 +623,143 @@ public class TimeTrackerService {
                 return "INVALID_TIME_RANGE";
             }
 
-            String url = baseUrl + "/records";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+            return submitRecord(email, startTime, endTime) ? "SUBMIT_SUCCESS" : "SUBMIT_ERROR";
+
+        } catch (RestClientException | IllegalArgumentException e) {
+            LOG.warn("Submitting a record of {} failed", email, e);
+            metrics.recordFailure("submit");
+            return "CONNECTION_ERROR";
+        } catch (Exception e) {
+            LOG.warn("Submitting a record of {} failed", email, e);
+            metrics.recordFailure("submit");
+            return "SUBMIT_ERROR";
+        }
+    }
+
+    /**
+     * Validates a record and queues it for background submission to the external service.
+     * @param email The email to record time for.
+     * @param startTime The start time to record.
+     * @param endTime The end time to record.
+     * @return The submission, whose status is SUBMIT_QUEUED on success and whose id identifies it for polling.
+     */
+    public Submission queueTime(String email, String startTime, String endTime) {
+        try {
+            if (!Utils.validateStartEndTime(startTime, endTime)) {
+                return new Submission(null, email, startTime, endTime, "INVALID_TIME_RANGE");
+            }
+            return writeBehind.enqueue(email, startTime, endTime);
+
+        } catch (Exception e) {
+            LOG.warn("Queueing a record of {} failed", email, e);
+            metrics.recordFailure("submit");
+            return new Submission(null, email, startTime, endTime, "SUBMIT_ERROR");
+        }
+    }
 
-            String requestBody = "email=" + email + "&start=" + Utils.toLegacyRequestTimeFormat(startTime) + "&end=" + Utils.toLegacyRequestTimeFormat(endTime);
+    /**
+     * Imports time records from a CSV file and starts submitting the valid ones to the external service.
+     * Rows overlapping a cached record of their employee are rejected; employees whose records
+     * are not cached are only checked against the other rows of the file.
+     * @param in The CSV file, in UTF-8.
+     * @return The report, with the result of each row, updated as the valid rows are submitted.
+     */
+    public ImportReport importRecords(InputStream in) {
+        try {
+            return recordImporter.importRecords(new InputStreamReader(in, StandardCharsets.UTF_8), this::overlapsCachedRecords, this::submitRecord);
+
+        } catch (IOException e) {
+            LOG.warn("Reading the import file failed", e);
+            metrics.recordFailure("import");
+            return new ImportReport("INVALID_IMPORT_FILE", List.of());
+        }
+    }
+
+    private boolean overlapsCachedRecords(String email, long startEpochMillis, long endEpochMillis) {
+        EmployeeRecords cached = recordsByEmail.get(email);
+        return cached != null && cached.overlaps(startEpochMillis, endEpochMillis);
+    }
+
+    /**
+     * Returns a recent import, to poll while its rows are submitted.
+     * @param id The import id.
+     * @return The report of the import, or null if unknown.
+     */
+    public ImportReport getImport(String id) {
+        return recordImporter.get(id);
+    }
+
+    /**
+     * Returns a recently queued submission.
+     * @param id The submission id.
+     * @return The submission, or null if unknown.
+     */
+    public Submission getSubmission(String id) {
+        return writeBehind.get(id);
+    }
 
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+    public boolean isWriteBehindEnabled() {
+        return writeBehind.isEnabled();
+    }
 
-            if (response.getStatusCode() != HttpStatus.OK) {
-                return "SUBMIT_ERROR";
+    /**
+     * Starts the background submission of queued records when write-behind is enabled,
+     * and the background sync of the end of viewed histories.
+     */
+    @PostConstruct
+    public void startBackgroundWork() {
+        writeBehind.start(submission -> {
+            if (!submitRecord(submission.getEmail(), submission.getStartTime(), submission.getEndTime())) {
+                throw new RestClientException("Time record was not accepted by the external service");
             }
+        });
+        tailSyncer.start(this::syncTail);
+    }
 
-            return "SUBMIT_SUCCESS";
+    /**
+     * Posts a record to the external service.
+     * @param email The email to record time for.
+     * @param startTime The start time in ISO format.
+     * @param endTime The end time in ISO format.
+     * @return True if the external service accepted the record.
+     */
+    private boolean submitRecord(String email, String startTime, String endTime) {
+        ResponseEntity<String> response = metrics.recordLegacyCall("recordTime", () -> legacyClient.postRecord(email,
+                Utils.toLegacyRequestTimeFormat(startTime), Utils.toLegacyRequestTimeFormat(endTime)));
 
-        } catch (RestClientException | IllegalArgumentException e) {
-            System.err.println("Error: " + e.getMessage());
-            return "CONNECTION_ERROR";
-        } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
-            return "SUBMIT_ERROR";
+        if (response.getStatusCode() != HttpStatus.OK) {
+            return false;
         }
+
+        // Show the record right away if the employee's records are cached, by the replica serving them
+        addSubmitted(cacheFiller.submitted(email, startTime, endTime));
+
+        return true;
+    }
+
+    /**
+     * Adds a submitted record to the cached records of its email, on the replica owning the email if
+     * the records cache is sharded and another replica owns it, and locally otherwise or if the owner is down.
+     * @param record The submitted record.
+     */
+    private void addSubmitted(TimeRecord record) {
+        String owner = peerClient.ownerOf(record.getEmail());
+        if (owner != null) {
+            try {
+                peerClient.addSubmitted(owner, record);
+                return;
+            } catch (RestClientException e) {
+                // The owner is down, its emails are served locally meanwhile
+            }
+        }
+        recordsByEmail.addSubmitted(record.getEmail(), record);
+    }
+
+    /**
+     * Adds a record submitted through another replica to the local cache, which this replica keeps for the emails it owns.
+     * @param record The submitted record.
+     */
+    public void addPeerSubmitted(TimeRecord record) {
+        recordsByEmail.addSubmitted(record.getEmail(), record);
     }
 }
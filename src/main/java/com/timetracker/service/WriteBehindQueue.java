@@ -0,0 +1,270 @@
+package com.timetracker.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.Submission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue that accepts time record submissions immediately and sends them to the legacy service
+ * in the background with a fixed number of concurrent senders.
+ * Submissions are not batched: the legacy "/records" POST accepts a single form-encoded record
+ * and has no bulk variant, so each submission is its own request. Bursts are absorbed by the
+ * queue and sent concurrently over the pooled keep-alive connections instead.
+ * Failed sends are retried with exponential backoff. Submissions not sent yet at shutdown are
+ * written to a spool file and queued again on the next start; a send in progress at shutdown
+ * may therefore be repeated once.
+ */
+@Component
+public class WriteBehindQueue {
+
+    private final static Logger LOG = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    /**
+     * Sends one submission to the legacy service, throwing if it was not accepted.
+     */
+    public interface Sender {
+        void send(Submission submission) throws Exception;
+    }
+
+    private final boolean enabled;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Path spoolFile;
+
+    private final BlockingQueue<Submission> queue;
+
+    // Submissions queued, in flight or waiting for a retry
+    private final Set<Submission> pending = ConcurrentHashMap.newKeySet();
+
+    // Recent submissions by id, for status polling
+    private final Cache<String, Submission> submissionsById;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final TimeTrackerMetrics metrics;
+
+    private ExecutorService senders;
+    private ScheduledExecutorService retryScheduler;
+
+    // Default Constructor
+    public WriteBehindQueue() {
+        this(false, 1000, 4, 5, 500, 30000, 60, "write-behind-spool.jsonl", new TimeTrackerMetrics());
+    }
+
+    @Autowired
+    public WriteBehindQueue(
+            @Value("${timetracker.write_behind.enabled:false}") boolean enabled,
+            @Value("${timetracker.write_behind.capacity:1000}") int capacity,
+            @Value("${timetracker.write_behind.concurrency:4}") int concurrency,
+            @Value("${timetracker.write_behind.max_attempts:5}") int maxAttempts,
+            @Value("${timetracker.write_behind.initial_backoff_ms:500}") long initialBackoffMs,
+            @Value("${timetracker.write_behind.max_backoff_ms:30000}") long maxBackoffMs,
+            @Value("${timetracker.write_behind.status_retention_min:60}") int statusRetentionMin,
+            @Value("${timetracker.write_behind.spool_file:write-behind-spool.jsonl}") String spoolFile,
+            TimeTrackerMetrics metrics) {
+
+        this.enabled = enabled;
+        this.metrics = metrics;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.spoolFile = Paths.get(spoolFile);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+        this.submissionsById = Caffeine.newBuilder()
+                .expireAfterWrite(statusRetentionMin, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the background senders and queues the submissions spooled at the last shutdown.
+     * @param sender The sender posting a submission to the legacy service.
+     */
+    public synchronized void start(Sender sender) {
+        if (!enabled || senders != null) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        restoreSpool();
+        for (int i = 0; i < concurrency; i++) {
+            senders.execute(() -> drain(sender));
+        }
+    }
+
+    /**
+     * Queues a submission.
+     * @param email The email to record time for.
+     * @param startTime The start time in ISO format.
+     * @param endTime The end time in ISO format.
+     * @return The queued submission, or one with status QUEUE_FULL and no id if the queue is full.
+     */
+    public Submission enqueue(String email, String startTime, String endTime) {
+        Submission submission = new Submission(UUID.randomUUID().toString(), email, startTime, endTime, "SUBMIT_QUEUED");
+        pending.add(submission);
+        if (!queue.offer(submission)) {
+            pending.remove(submission);
+            return new Submission(null, email, startTime, endTime, "QUEUE_FULL");
+        }
+        submissionsById.put(submission.getId(), submission);
+        return submission;
+    }
+
+    /**
+     * Returns a recent submission.
+     * @param id The submission id.
+     * @return The submission, or null if unknown or no longer retained.
+     */
+    public Submission get(String id) {
+        return submissionsById.getIfPresent(id);
+    }
+
+    /**
+     * Returns the number of submissions not yet sent.
+     * @return The number of queued, in-flight and retrying submissions.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void drain(Sender sender) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Submission submission;
+            try {
+                submission = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            submission.setAttempts(submission.getAttempts() + 1);
+            try {
+                sender.send(submission);
+                submission.setStatus("SUBMIT_SUCCESS");
+                pending.remove(submission);
+            } catch (Exception e) {
+                LOG.warn("Sending submission {} failed on attempt {}", submission.getId(), submission.getAttempts(), e);
+                metrics.recordFailure("write_behind");
+                if (submission.getAttempts() >= maxAttempts) {
+                    submission.setStatus("SUBMIT_ERROR");
+                    pending.remove(submission);
+                } else {
+                    submission.setStatus("SUBMIT_RETRYING");
+                    scheduleRetry(submission, backoff(submission.getAttempts()));
+                }
+            }
+        }
+    }
+
+    private void scheduleRetry(Submission submission, long delayMs) {
+        try {
+            retryScheduler.schedule(() -> {
+                // Retry later again rather than drop the submission while the queue is full
+                if (!queue.offer(submission)) {
+                    scheduleRetry(submission, delayMs);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the submission stays pending and is spooled
+        }
+    }
+
+    private long backoff(int attempts) {
+        long delay = initialBackoffMs << Math.min(attempts - 1, 20);
+        return Math.min(delay, maxBackoffMs);
+    }
+
+    private void restoreSpool() {
+        if (!Files.exists(spoolFile)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(spoolFile, StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Submission submission = objectMapper.readValue(line, Submission.class);
+                submission.setStatus("SUBMIT_QUEUED");
+                pending.add(submission);
+                submissionsById.put(submission.getId(), submission);
+                if (!queue.offer(submission)) {
+                    scheduleRetry(submission, initialBackoffMs);
+                }
+            }
+            Files.delete(spoolFile);
+        } catch (IOException e) {
+            LOG.error("Restoring the write-behind spool {} failed", spoolFile, e);
+            metrics.recordFailure("write_behind");
+        }
+    }
+
+    /**
+     * Stops the senders and writes the submissions not sent yet to the spool file.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (senders == null) {
+            return;
+        }
+        senders.shutdownNow();
+        retryScheduler.shutdownNow();
+        try {
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Submission> unsent = new ArrayList<>(pending);
+        if (unsent.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(spoolFile, StandardCharsets.UTF_8)) {
+            for (Submission submission : unsent) {
+                writer.write(objectMapper.writeValueAsString(submission));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            LOG.error("Spooling {} unsent submissions to {} failed", unsent.size(), spoolFile, e);
+            metrics.recordFailure("write_behind");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.timetracker.store;
+
+import com.timetracker.model.TimeRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only, memory-mapped log of the records of one employee, in legacy offset order.
+ *
+ * The file starts with a fixed-size header (magic, version, record count, creation time, email) followed by
+ * fixed-size entries of start and end epoch milliseconds and a flags byte. Since entries have a
+ * fixed size, the position of the record at a legacy offset is computed rather than looked up.
+ * The record count in the header is written after the entries it covers, so entries of an
+ * interrupted append are ignored on the next open. A log older than the maximum age it is opened
+ * with is discarded and started over, so records are not trusted indefinitely.
+ */
+class EmployeeLog {
+
+    private final static Logger LOG = LoggerFactory.getLogger(EmployeeLog.class);
+
+    private final static int MAGIC = 0x54544C47;
+    private final static int VERSION = 2;
+
+    // Emails are at most 254 characters, which is at most this many UTF-8 bytes in practice
+    final static int MAX_EMAIL_BYTES = 320;
+
+    private final static int COUNT_POSITION = 8;
+    private final static int EMAIL_LENGTH_POSITION = 12;
+    private final static int CREATED_POSITION = 16;
+    private final static int EMAIL_POSITION = 24;
+    private final static int HEADER_SIZE = EMAIL_POSITION + MAX_EMAIL_BYTES;
+
+    // Start (8 bytes), end (8 bytes), flags (1 byte)
+    private final static int ENTRY_SIZE = 17;
+
+    private final static int INITIAL_CAPACITY = 256;
+
+    // Set when the record had no email
+    private final static byte EMAIL_MISSING = 1;
+
+    // Set for a null or malformed legacy entry, which holds its offset but no record
+    private final static byte SKIPPED = 2;
+
+    private final String email;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int count;
+    private boolean closed;
+
+    private EmployeeLog(String email, FileChannel channel) {
+        this.email = email;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the log of an employee, creating it if the file does not exist.
+     * A file that is not a valid log of the email, or was created more than maxAgeMillis ago, is discarded and started over.
+     * @param file The log file.
+     * @param email The email of the employee.
+     * @param maxAgeMillis The longest time since creation for which the records of the file are kept.
+     * @return The opened log.
+     */
+    static EmployeeLog open(Path file, String email, long maxAgeMillis) throws IOException {
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        if (emailBytes.length > MAX_EMAIL_BYTES) {
+            throw new IOException("Email too long to be stored: " + email);
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            EmployeeLog log = new EmployeeLog(email, channel);
+            long fileSize = channel.size();
+            if (fileSize >= HEADER_SIZE) {
+                log.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                if (log.hasValidHeader(emailBytes)
+                        && System.currentTimeMillis() - log.buffer.getLong(CREATED_POSITION) <= maxAgeMillis) {
+                    long entries = (fileSize - HEADER_SIZE) / ENTRY_SIZE;
+                    log.count = (int) Math.min(log.buffer.getInt(COUNT_POSITION), entries);
+                    return log;
+                }
+            }
+
+            channel.truncate(0);
+            log.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) INITIAL_CAPACITY * ENTRY_SIZE);
+            log.buffer.putInt(0, MAGIC);
+            log.buffer.putInt(4, VERSION);
+            log.buffer.putInt(COUNT_POSITION, 0);
+            log.buffer.putInt(EMAIL_LENGTH_POSITION, emailBytes.length);
+            log.buffer.putLong(CREATED_POSITION, System.currentTimeMillis());
+            log.buffer.position(EMAIL_POSITION);
+            log.buffer.put(emailBytes);
+            return log;
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private boolean hasValidHeader(byte[] emailBytes) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(COUNT_POSITION) < 0 || buffer.getInt(EMAIL_LENGTH_POSITION) != emailBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < emailBytes.length; i++) {
+            if (buffer.get(EMAIL_POSITION + i) != emailBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the creation time of a log file without opening it as a log.
+     * @param file The log file.
+     * @return The creation time in epoch milliseconds, or -1 if the file is not a valid log.
+     */
+    static long readCreatedMillis(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(EMAIL_POSITION);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return -1;
+                }
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return -1;
+            }
+            return header.getLong(CREATED_POSITION);
+        }
+    }
+
+    /**
+     * Returns the number of records in the log, which is the legacy offset of the next record to append.
+     * @return The number of records.
+     */
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Appends records starting at the given legacy offset.
+     * Records at offsets already in the log are skipped; records past a gap are not appended.
+     * @param offset The legacy offset of the first record.
+     * @param records The records to append, with null for null or malformed legacy entries.
+     * @return The number of records appended, or -1 if the log was closed.
+     */
+    synchronized int appendAt(int offset, List<TimeRecord> records) throws IOException {
+        if (closed) {
+            return -1;
+        }
+        int skip = count - offset;
+        if (skip < 0 || skip >= records.size()) {
+            return 0;
+        }
+
+        int newCount = count + records.size() - skip;
+        ensureCapacity(newCount);
+        int position = HEADER_SIZE + count * ENTRY_SIZE;
+        for (int i = skip; i < records.size(); i++) {
+            TimeRecord record = records.get(i);
+            if (record == null) {
+                buffer.putLong(position, 0);
+                buffer.putLong(position + 8, 0);
+                buffer.put(position + 16, SKIPPED);
+            } else {
+                buffer.putLong(position, record.getStartEpochMillis());
+                buffer.putLong(position + 8, record.getEndEpochMillis());
+                buffer.put(position + 16, record.getEmail() == null ? EMAIL_MISSING : 0);
+            }
+            position += ENTRY_SIZE;
+        }
+
+        // Commit the appended entries
+        buffer.putInt(COUNT_POSITION, newCount);
+        int appended = newCount - count;
+        count = newCount;
+        return appended;
+    }
+
+    /**
+     * Reads all records of the log.
+     * Start and end times that were missing or malformed when appended are read as null.
+     * @return The records in legacy offset order, with null for null or malformed legacy entries.
+     */
+    synchronized List<TimeRecord> readAll() {
+        List<TimeRecord> records = new ArrayList<>(count);
+        int position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            byte flags = buffer.get(position + 16);
+            boolean emailMissing = (flags & EMAIL_MISSING) != 0;
+            records.add((flags & SKIPPED) != 0 ? null
+                    : TimeRecord.fromEpochMillis(buffer.getLong(position), buffer.getLong(position + 8), emailMissing ? null : email));
+            position += ENTRY_SIZE;
+        }
+        return records;
+    }
+
+    /**
+     * Grows the mapping, doubling it, until it holds the given number of entries.
+     */
+    private void ensureCapacity(int entries) throws IOException {
+        long required = HEADER_SIZE + (long) entries * ENTRY_SIZE;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        long size = buffer.capacity();
+        while (size < required) {
+            size = HEADER_SIZE + Math.max((size - HEADER_SIZE) * 2, (long) INITIAL_CAPACITY * ENTRY_SIZE);
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Flushes the log to disk and closes its file. Appends to a closed log return -1.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Closing the record log of {} failed", email, e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.timetracker.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.TimeRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local store of the records fetched from the legacy service, kept across restarts.
+ * Each employee has an append-only log file in the store directory, named after a hash of the email.
+ * Records are stored in legacy offset order, so after a restart only records past the last
+ * stored offset need to be fetched again. Storage errors are logged and treated like an empty
+ * store, the legacy service remaining the source of truth.
+ * A log is kept for at most max_age_min after it was started, and at most max_logs logs are kept,
+ * the oldest being deleted first. The records cache deletes a log before that only when the last
+ * stored entry no longer matches the one the legacy service returns at its offset.
+ */
+@Component
+public class RecordStore {
+
+    private final static Logger LOG = LoggerFactory.getLogger(RecordStore.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxAgeMillis;
+    private final int maxLogs;
+
+    // Logs opened recently, closed when evicted
+    private final Cache<String, EmployeeLog> openLogs;
+
+    // Failure counts, injected lazily since the meter registry binds the records cache, which is created with this store
+    private final TimeTrackerMetrics metrics;
+
+    // Default Constructor
+    public RecordStore() {
+        this(false, "record-store", 256, 60, 10000, new TimeTrackerMetrics());
+    }
+
+    @Autowired
+    public RecordStore(
+            @Value("${timetracker.store.enabled:false}") boolean enabled,
+            @Value("${timetracker.store.directory:record-store}") String directory,
+            @Value("${timetracker.store.max_open_logs:256}") int maxOpenLogs,
+            @Value("${timetracker.store.max_age_min:60}") int maxAgeMin,
+            @Value("${timetracker.store.max_logs:10000}") int maxLogs,
+            @Lazy TimeTrackerMetrics metrics) {
+
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxAgeMillis = TimeUnit.MINUTES.toMillis(maxAgeMin);
+        this.maxLogs = Math.max(1, maxLogs);
+        this.metrics = metrics;
+        this.openLogs = Caffeine.newBuilder()
+                .maximumSize(maxOpenLogs)
+                // Close evicted logs right away rather than on the common pool
+                .executor(Runnable::run)
+                .removalListener((String email, EmployeeLog log, RemovalCause cause) -> {
+                    if (log != null) {
+                        log.close();
+                    }
+                })
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the stored records of an email.
+     * @param email The email to load records for.
+     * @return The stored records in legacy offset order, with null for null or malformed legacy entries, empty if none are stored.
+     */
+    public List<TimeRecord> load(String email) {
+        EmployeeLog log = openLog(email, false);
+        return log == null ? new ArrayList<>() : log.readAll();
+    }
+
+    /**
+     * Returns the number of stored entries of an email, which is the legacy offset of the next record to store.
+     * @param email The email to look up.
+     * @return The number of stored records, 0 if none are stored.
+     */
+    public int storedCount(String email) {
+        EmployeeLog log = openLog(email, false);
+        return log == null ? 0 : log.size();
+    }
+
+    /**
+     * Stores records fetched from the legacy service starting at the given offset.
+     * Records at offsets that are already stored are skipped.
+     * @param email The email the records belong to.
+     * @param offset The legacy offset of the first record.
+     * @param records The records to store, with null for null or malformed legacy entries.
+     */
+    public void appendAt(String email, int offset, List<TimeRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            while (true) {
+                EmployeeLog log = openLog(email, true);
+                // A log evicted while in use is closed; append to its reopened successor instead.
+                // Both write the same records at the same offsets, so a race between them is harmless.
+                if (log == null || log.appendAt(offset, records) >= 0) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Storing records of {} failed", email, e);
+            metrics.recordFailure("record_store");
+        }
+    }
+
+    /**
+     * Deletes the stored records of an email, so that they are fetched from the legacy service again.
+     * @param email The email whose records to delete.
+     */
+    public void delete(String email) {
+        if (!enabled) {
+            return;
+        }
+        openLogs.invalidate(email);
+        try {
+            Files.deleteIfExists(logFile(email));
+        } catch (IOException e) {
+            LOG.warn("Deleting the stored records of {} failed", email, e);
+            metrics.recordFailure("record_store");
+        }
+    }
+
+    /**
+     * Deletes the logs older than max_age_min, then the oldest logs past max_logs.
+     */
+    @Scheduled(fixedDelayString = "${timetracker.store.cleanup_interval_ms:60000}")
+    public void deleteExpired() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        Map<Path, Long> createdMillis = new HashMap<>();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "*.log")) {
+            long now = System.currentTimeMillis();
+            for (Path file : logs) {
+                long created = EmployeeLog.readCreatedMillis(file);
+                if (created < 0 || now - created > maxAgeMillis) {
+                    deleteLog(file);
+                } else {
+                    files.add(file);
+                    createdMillis.put(file, created);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Listing the record store {} failed", directory, e);
+            metrics.recordFailure("record_store");
+            return;
+        }
+
+        if (files.size() > maxLogs) {
+            files.sort(Comparator.comparing(createdMillis::get));
+            for (Path file : files.subList(0, files.size() - maxLogs)) {
+                deleteLog(file);
+            }
+        }
+    }
+
+    /**
+     * Closes a log file if it is open and deletes it.
+     */
+    private void deleteLog(Path file) {
+        openLogs.asMap().keySet().removeIf(email -> logFile(email).equals(file));
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Deleting the record log {} failed", file, e);
+            metrics.recordFailure("record_store");
+        }
+    }
+
+    /**
+     * Returns the open log of an email, opening it if needed.
+     * @param create Whether to create the log if the email has none.
+     * @return The log, or null if the store is disabled, the email has no log and create is false, or it could not be opened.
+     */
+    private EmployeeLog openLog(String email, boolean create) {
+        if (!enabled) {
+            return null;
+        }
+        EmployeeLog log = openLogs.getIfPresent(email);
+        if (log != null) {
+            return log;
+        }
+        Path file = logFile(email);
+        if (!create && !Files.exists(file)) {
+            return null;
+        }
+        return openLogs.get(email, key -> {
+            try {
+                Files.createDirectories(directory);
+                return EmployeeLog.open(file, key, maxAgeMillis);
+            } catch (IOException e) {
+                LOG.warn("Opening the record log of {} failed", key, e);
+                metrics.recordFailure("record_store");
+                return null;
+            }
+        });
+    }
+
+    private Path logFile(String email) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(email.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + 4);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return directory.resolve(name.append(".log").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Flushes and closes all open logs.
+     */
+    @PreDestroy
+    public void close() {
+        openLogs.invalidateAll();
+        openLogs.cleanUp();
+    }
+}
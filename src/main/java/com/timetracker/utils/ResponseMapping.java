@@ -4,17 +4,43 @@ import java.util.Map;
 
 public class ResponseMapping {
 
-    public final static Map<String, String> RESPONSES = Map.of(
-        "SUBMIT_SUCCESS", "Time record submitted successfully",
-        "SUBMIT_ERROR", "Error: Time record could not be submitted",
-        "INVALID_TIME_RANGE", "Error: Invalid time range, start time must be before end time",
-        "INVALID_USER", "Error: User does not exist in the system",
-        "UNKNOWN_ERROR", "Error: Unknown error",
-        "CONNECTION_ERROR", "Error: Could not connect to the external service"
+    public final static Map<String, String> RESPONSES = Map.ofEntries(
+        Map.entry("SUBMIT_SUCCESS", "Time record submitted successfully"),
+        Map.entry("SUBMIT_QUEUED", "Time record queued for submission"),
+        Map.entry("SUBMIT_RETRYING", "Time record submission is being retried"),
+        Map.entry("SUBMIT_ERROR", "Error: Time record could not be submitted"),
+        Map.entry("QUEUE_FULL", "Error: Too many pending submissions, please try again later"),
+        Map.entry("UNKNOWN_SUBMISSION", "Error: Unknown submission"),
+        Map.entry("INVALID_TIME_RANGE", "Error: Invalid time range, start time must be before end time"),
+        Map.entry("INVALID_CURSOR", "Error: Invalid cursor"),
+        Map.entry("IMPORT_RUNNING", "Import running, records are being submitted"),
+        Map.entry("IMPORT_COMPLETED", "Import completed"),
+        Map.entry("UNKNOWN_IMPORT", "Error: Unknown import"),
+        Map.entry("INVALID_IMPORT_FILE", "Error: The file must be a CSV file with email, start and end columns"),
+        Map.entry("IMPORT_TOO_LARGE", "Error: The file has too many rows"),
+        Map.entry("INVALID_ROW", "Error: The row must have an email and start and end times"),
+        Map.entry("OVERLAPPING_RECORD", "Error: The time record overlaps another time record of the employee"),
+        Map.entry("INVALID_EXPORT_FORMAT", "Error: Unsupported export format, use csv or ndjson"),
+        Map.entry("RECORDS_LOADED", "Records loaded"),
+        Map.entry("FETCH_TIMEOUT", "Error: The external service did not return the records in time"),
+        Map.entry("INVALID_TEAM", "Error: Enter at least one email"),
+        Map.entry("TEAM_TOO_LARGE", "Error: Too many emails, please view the team in smaller groups"),
+        Map.entry("INVALID_USER", "Error: User does not exist in the system"),
+        Map.entry("UNKNOWN_ERROR", "Error: Unknown error"),
+        Map.entry("CONNECTION_ERROR", "Error: Could not connect to the external service")
     );
 
     public static String getMappedResponse(String key) {
         return RESPONSES.getOrDefault(key, RESPONSES.get("UNKNOWN_ERROR"));
     }
 
+    /**
+     * Returns a JSON response body with a response key and its message.
+     * @param key The response key.
+     * @return The body, with the key as "status" and its message as "message".
+     */
+    public static Map<String, Object> getResponseBody(String key) {
+        return Map.of("status", key, "message", getMappedResponse(key));
+    }
+
 }
@@ -1,7 +1,9 @@
 package com.timetracker.utils;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public class Utils {
 
@@ -10,6 +12,12 @@ public class Utils {
     private final static DateTimeFormatter isoFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
     private final static DateTimeFormatter legacyResponseFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'+0000'");
 
+    // Marker returned by parseLegacyEpochMillis for missing or malformed input
+    public final static long INVALID_TIME = Long.MIN_VALUE;
+
+    // Length of a legacy response timestamp, e.g. "2023-01-01T09:00:00.000+0000"
+    private final static int LEGACY_RESPONSE_LENGTH = 28;
+
     /**
      * Converts a time string from ISO format to legacy request format.
      * @param time The time string in ISO format.
@@ -56,5 +64,113 @@ public class Utils {
     public static boolean validateLegacyStartEndTime(String startTime, String endTime) {
         return LocalDateTime.parse(startTime, legacyResponseFormatter).isBefore(LocalDateTime.parse(endTime, legacyResponseFormatter));
     }
-}
 
+    /**
+     * Parses a time string in ISO format into epoch milliseconds (UTC).
+     * @param time The time string in ISO format.
+     * @return The epoch milliseconds, or INVALID_TIME if the string is null or malformed.
+     */
+    public static long parseIsoEpochMillis(String time) {
+        if (time == null) {
+            return INVALID_TIME;
+        }
+        try {
+            return LocalDateTime.parse(time, isoFormatter).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return INVALID_TIME;
+        }
+    }
+
+    /**
+     * Parses a time string in legacy response format into epoch milliseconds (UTC).
+     * Reads the fixed-width fields in place without allocating, so it is cheap enough
+     * to call for every record of a large response.
+     * @param time The time string in legacy response format.
+     * @return The epoch milliseconds, or INVALID_TIME if the string is null or malformed.
+     */
+    public static long parseLegacyEpochMillis(String time) {
+        if (time == null || time.length() != LEGACY_RESPONSE_LENGTH
+                || time.charAt(4) != '-' || time.charAt(7) != '-' || time.charAt(10) != 'T'
+                || time.charAt(13) != ':' || time.charAt(16) != ':' || time.charAt(19) != '.'
+                || !time.startsWith("+0000", 23)) {
+            return INVALID_TIME;
+        }
+
+        int year = digits(time, 0, 4);
+        int month = digits(time, 5, 2);
+        int day = digits(time, 8, 2);
+        int hour = digits(time, 11, 2);
+        int minute = digits(time, 14, 2);
+        int second = digits(time, 17, 2);
+        int millis = digits(time, 20, 3);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return INVALID_TIME;
+        }
+
+        long seconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+        return seconds * 1000L + millis;
+    }
+
+    /**
+     * Formats epoch milliseconds (UTC) as a time string in legacy response format.
+     * @param epochMillis The epoch milliseconds.
+     * @return The time string in legacy response format, or null for INVALID_TIME.
+     */
+    public static String formatLegacyEpochMillis(long epochMillis) {
+        if (epochMillis == INVALID_TIME) {
+            return null;
+        }
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1000000, ZoneOffset.UTC);
+        return dateTime.format(legacyResponseFormatter);
+    }
+
+    /**
+     * Reads a run of decimal digits from a string.
+     * @return The parsed value, or -1 if any character is not a digit.
+     */
+    private static int digits(String s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Converts a proleptic Gregorian date to days since 1970-01-01 (same algorithm as LocalDate.toEpochDay).
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            total -= leap ? 1 : 2;
+        }
+        return total - 719528;
+    }
+}
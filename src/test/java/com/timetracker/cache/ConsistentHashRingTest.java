@@ -0,0 +1,57 @@
+package com.timetracker.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    private final static List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    public void testNodeForSpreadsKeysAndIsTheSameOnEveryReplica() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 100);
+        ConsistentHashRing otherReplica = new ConsistentHashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"), 100);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 30000; i++) {
+            String email = "employee" + i + "@example.com";
+            String node = ring.nodeFor(email);
+            assertEquals(node, otherReplica.nodeFor(email));
+            counts.merge(node, 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7000 && count < 13000, "Unbalanced ring: " + counts));
+    }
+
+    @Test
+    public void testAddingANodeOnlyMovesKeysToIt() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 100);
+        ConsistentHashRing grown = new ConsistentHashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), 100);
+        int moved = 0;
+
+        // Act
+        for (int i = 0; i < 10000; i++) {
+            String email = "employee" + i + "@example.com";
+            String before = ring.nodeFor(email);
+            String after = grown.nodeFor(email);
+            if (!before.equals(after)) {
+                assertEquals("http://d:8080", after);
+                moved++;
+            }
+        }
+
+        // Assert
+        assertTrue(moved > 1500 && moved < 3500, "Expected about a quarter of the keys to move, moved " + moved);
+        assertNull(new ConsistentHashRing(List.of(), 100).nodeFor("employee@example.com"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.timetracker.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DailyTotalsTest {
+
+    @Test
+    public void testSumMatchesNaiveTotalsForRecordsInAnyOrder() {
+        // Arrange
+        DailyTotals totals = new DailyTotals();
+        long[] expectedByDay = new long[60];
+        LocalDate firstDay = LocalDate.of(2023, 1, 1);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            // Records of up to two days, starting on any day of the range, some of them removed again
+            long start = epochMillis(firstDay.atStartOfDay().plusMinutes(random.nextInt(50 * 24 * 60)));
+            long end = start + random.nextInt(48 * 60) * 60000L;
+            int sign = i % 5 == 4 ? -1 : 1;
+            totals.add(start, end, sign);
+            for (long t = start; t < end; t += 60000L) {
+                int day = (int) (Math.floorDiv(t, 86400000L) - firstDay.toEpochDay());
+                expectedByDay[day] += sign * 60000L;
+            }
+        }
+
+        // Act & Assert
+        for (int from = 0; from < expectedByDay.length; from += 7) {
+            for (int to = from; to < expectedByDay.length; to += 5) {
+                long expected = 0;
+                for (int day = from; day <= to; day++) {
+                    expected += expectedByDay[day];
+                }
+                assertEquals(expected, totals.sum(firstDay.toEpochDay() + from, firstDay.toEpochDay() + to), from + ".." + to);
+            }
+        }
+    }
+
+    @Test
+    public void testRecordSpanningMidnightIsSplitBetweenDays() {
+        // Arrange
+        DailyTotals totals = new DailyTotals();
+        LocalDate day = LocalDate.of(2023, 1, 8);
+
+        // Act
+        totals.add(epochMillis(day.atTime(22, 0)), epochMillis(day.plusDays(1).atTime(2, 30)), 1);
+
+        // Assert
+        assertEquals(2 * 3600000L, totals.sum(day.toEpochDay(), day.toEpochDay()));
+        assertEquals(150 * 60000L, totals.sum(day.toEpochDay() + 1, day.toEpochDay() + 1));
+        assertEquals(270 * 60000L, totals.sum(day.toEpochDay() - 10, day.toEpochDay() + 10));
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
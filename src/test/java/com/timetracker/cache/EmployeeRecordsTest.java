@@ -0,0 +1,127 @@
+package com.timetracker.cache;
+
+import com.timetracker.model.TimeRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmployeeRecordsTest {
+
+    @Test
+    public void testCopyRangeMaterializesAppendedRecords() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord first = new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email);
+        TimeRecord invalid = new TimeRecord("2023-01-02T17:00:00.000+0000", "2023-01-02T09:00:00.000+0000", email);
+        TimeRecord noEmail = new TimeRecord("2023-01-03T09:00:00.000+0000", "2023-01-03T17:00:00.000+0000", null);
+        TimeRecord last = new TimeRecord("2023-01-04T09:30:15.250+0000", "2023-01-04T17:45:00.000+0000", email);
+
+        EmployeeRecords records = new EmployeeRecords(email, Long.MAX_VALUE);
+        records.appendAt(0, Arrays.asList(first, invalid));
+        records.appendAt(1, Arrays.asList(invalid, noEmail, last));
+
+        // Act
+        List<TimeRecord> all = records.copyRange(0, 10);
+        List<TimeRecord> validOnly = records.copyRange(0, 10, false);
+
+        // Assert
+        assertEquals(4, records.fetchedSize());
+        assertEquals(Arrays.asList(first, invalid, noEmail, last), all);
+        assertEquals(Arrays.asList(first, last), validOnly);
+        assertEquals("2023-01-04T09:30", all.get(3).getFormattedStart());
+    }
+
+    @Test
+    public void testSkippedEntriesHoldTheirLegacyOffsets() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord first = new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email);
+        TimeRecord second = new TimeRecord("2023-01-02T09:00:00.000+0000", "2023-01-02T17:00:00.000+0000", email);
+        TimeRecord third = new TimeRecord("2023-01-03T09:00:00.000+0000", "2023-01-03T17:00:00.000+0000", email);
+        EmployeeRecords records = new EmployeeRecords(email, Long.MAX_VALUE);
+
+        // Act
+        int appended = records.appendAt(0, Arrays.asList(first, null, second));
+        records.appendAt(2, Arrays.asList(second, null, third));
+
+        // Assert
+        assertEquals(2, appended);
+        assertEquals(3, records.fetchedSize());
+        assertEquals(5, records.nextOffset());
+        assertEquals(Arrays.asList(first, second, third), records.copyRange(0, 10));
+        assertEquals(Arrays.asList(null, second, null, third), records.copyFetchedEntries(1, 5));
+    }
+
+    @Test
+    public void testOnlyRecordsCachedExactlyAreStorableAndARenewalLeavesTheTailUnverified() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord first = new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email);
+        TimeRecord malformed = new TimeRecord("2023-01-02 09:00", "2023-01-02T17:00:00.000+0000", email);
+        TimeRecord third = new TimeRecord("2023-01-03T09:00:00.000+0000", "2023-01-03T17:00:00.000+0000", email);
+        EmployeeRecords records = new EmployeeRecords(email, System.nanoTime() - 1);
+
+        // Act
+        records.appendAt(0, Arrays.asList(first, null, malformed, third));
+        int storable = records.storableOffset();
+        records.renew(Long.MAX_VALUE);
+
+        // Assert
+        assertEquals(2, storable);
+        assertEquals(2, records.storableOffset());
+        assertEquals(4, records.nextOffset());
+        assertTrue(records.isTailUnverified());
+        assertTrue(records.matchesEntryAt(1, null));
+        assertTrue(records.matchesEntryAt(3, third));
+        assertFalse(records.matchesEntryAt(3, first));
+        assertFalse(records.matchesEntryAt(4, third));
+    }
+
+    @Test
+    public void testCopyStartingBetweenReturnsRecordsInRangeSortedByStart() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord week1 = new TimeRecord("2023-01-02T09:00:00.000+0000", "2023-01-02T17:00:00.000+0000", email);
+        TimeRecord week2 = new TimeRecord("2023-01-09T09:00:00.000+0000", "2023-01-09T17:00:00.000+0000", email);
+        TimeRecord week2Backdated = new TimeRecord("2023-01-10T09:00:00.000+0000", "2023-01-10T17:00:00.000+0000", email);
+        TimeRecord week3 = new TimeRecord("2023-01-16T09:00:00.000+0000", "2023-01-16T17:00:00.000+0000", email);
+        TimeRecord noStart = new TimeRecord(null, "2023-01-11T17:00:00.000+0000", email);
+        TimeRecord provisional = new TimeRecord("2023-01-11T09:00:00.000+0000", "2023-01-11T17:00:00.000+0000", email);
+
+        EmployeeRecords records = new EmployeeRecords(email, Long.MAX_VALUE);
+        records.appendAt(0, Arrays.asList(week1, week2, week3, noStart, week2Backdated));
+        records.addProvisional(provisional);
+
+        // Act
+        List<TimeRecord> inRange = records.copyStartingBetween(
+                week2.getStartEpochMillis(), week3.getStartEpochMillis());
+
+        // Assert
+        assertEquals(Arrays.asList(week2, week2Backdated, provisional), inRange);
+    }
+
+    @Test
+    public void testOverlapsFindsRecordsStartingBeforeTheRange() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord nightShift = new TimeRecord("2023-01-01T20:00:00.000+0000", "2023-01-02T06:00:00.000+0000", email);
+        TimeRecord dayShift = new TimeRecord("2023-01-02T09:00:00.000+0000", "2023-01-02T12:00:00.000+0000", email);
+        TimeRecord provisional = new TimeRecord("2023-01-03T09:00:00.000+0000", "2023-01-03T12:00:00.000+0000", email);
+
+        EmployeeRecords records = new EmployeeRecords(email, Long.MAX_VALUE);
+        records.appendAt(0, Arrays.asList(nightShift, dayShift));
+        records.addProvisional(provisional);
+        long hour = 3600000L;
+
+        // Act & Assert
+        assertTrue(records.overlaps(nightShift.getEndEpochMillis() - hour, nightShift.getEndEpochMillis() + hour));
+        assertFalse(records.overlaps(nightShift.getEndEpochMillis(), dayShift.getStartEpochMillis()));
+        assertTrue(records.overlaps(provisional.getStartEpochMillis() + hour, provisional.getEndEpochMillis() + hour));
+        assertFalse(records.overlaps(provisional.getEndEpochMillis(), provisional.getEndEpochMillis() + hour));
+    }
+}
@@ -0,0 +1,91 @@
+package com.timetracker.client;
+
+import com.timetracker.metrics.TimeTrackerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LegacyCircuitBreakerTest {
+
+    @Test
+    public void testOpensAfterFailuresAndRejectsCalls() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LegacyCircuitBreaker circuitBreaker = new LegacyCircuitBreaker(true, 10, 4, 50, 5000, 80, 30, 1, new TimeTrackerMetrics(registry));
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            boolean fail = i % 2 == 0;
+            try {
+                circuitBreaker.call(() -> {
+                    calls.incrementAndGet();
+                    if (fail) {
+                        throw new ResourceAccessException("Read timed out");
+                    }
+                    return true;
+                });
+            } catch (ResourceAccessException e) {
+                // Expected for failing calls
+            }
+        }
+
+        // Act & Assert
+        assertEquals(LegacyCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(LegacyServiceUnavailableException.class, () -> circuitBreaker.call(calls::incrementAndGet));
+        assertEquals(4, calls.get());
+        assertEquals(1, registry.get("timetracker.failures").tag("component", "circuit_breaker").counter().count());
+    }
+
+    @Test
+    public void testClosesAfterSuccessfulProbe() {
+        // Arrange
+        LegacyCircuitBreaker circuitBreaker = new LegacyCircuitBreaker(true, 10, 1, 50, 5000, 80, 0, 1, new TimeTrackerMetrics());
+        assertThrows(ResourceAccessException.class, () -> circuitBreaker.call(() -> {
+            throw new ResourceAccessException("Connection refused");
+        }));
+
+        // Act
+        LegacyCircuitBreaker.State probing = circuitBreaker.getState();
+        circuitBreaker.call(() -> true);
+
+        // Assert
+        assertEquals(LegacyCircuitBreaker.State.HALF_OPEN, probing);
+        assertEquals(LegacyCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testOnlyServerErrorsAndIoErrorsCountAsFailures() {
+        // Arrange
+        LegacyCircuitBreaker blocking = new LegacyCircuitBreaker(true, 10, 2, 50, 5000, 80, 30, 1, new TimeTrackerMetrics());
+        LegacyCircuitBreaker reactive = new LegacyCircuitBreaker(true, 10, 2, 50, 5000, 80, 30, 1, new TimeTrackerMetrics());
+        LegacyCircuitBreaker serverErrors = new LegacyCircuitBreaker(true, 10, 2, 50, 5000, 80, 30, 1, new TimeTrackerMetrics());
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpClientErrorException.class, () -> blocking.call(() -> {
+                throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+            }));
+            assertThrows(WebClientResponseException.class, () -> reactive.call(Mono.error(
+                    WebClientResponseException.create(400, "Bad Request", null, null, null))).block());
+        }
+        assertThrows(HttpServerErrorException.class, () -> serverErrors.call(() -> {
+            throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", null, null, null);
+        }));
+        assertThrows(WebClientResponseException.class, () -> serverErrors.call(Mono.error(
+                WebClientResponseException.create(503, "Service Unavailable", null, null, null))).block());
+
+        // Assert
+        assertEquals(LegacyCircuitBreaker.State.CLOSED, blocking.getState());
+        assertEquals(LegacyCircuitBreaker.State.CLOSED, reactive.getState());
+        assertEquals(LegacyCircuitBreaker.State.OPEN, serverErrors.getState());
+    }
+}
@@ -0,0 +1,95 @@
+package com.timetracker.client;
+
+import com.timetracker.model.TimeRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class LegacyServiceClientTest {
+
+    private MockRestServiceServer server;
+
+    private LegacyServiceClient legacyServiceClient;
+
+    @BeforeEach
+    public void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        legacyServiceClient = new LegacyServiceClient();
+        legacyServiceClient.setRestTemplate(restTemplate);
+    }
+
+    @Test
+    public void testStreamRecordsCountsNullAndMalformedEntriesWithoutDecodingThem() {
+        // Arrange
+        String body = "[null,"
+                + "{\"start\":\"2023-01-01T09:00:00.000+0000\",\"end\":\"2023-01-01T17:00:00.000+0000\",\"email\":\"test@example.com\",\"id\":7},"
+                + "42,"
+                + "{\"start\":{\"nested\":true},\"end\":null,\"email\":\"test@example.com\"}]";
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=0&length=10"))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+        List<TimeRecord> records = new ArrayList<>();
+
+        // Act
+        int count = legacyServiceClient.streamRecords("test@example.com", 0, 10, records::addAll);
+
+        // Assert
+        assertEquals(4, count);
+        assertEquals(4, records.size());
+        assertNull(records.get(0));
+        assertEquals("09:00", records.get(1).getStartTime());
+        assertTrue(records.get(1).isValid());
+        assertNull(records.get(2));
+        assertTrue(records.get(3).anyFieldNull());
+        server.verify();
+    }
+
+    @Test
+    public void testStreamRecordsDeliversLargeResponsesInBatches() {
+        // Arrange
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 150; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"start\":\"2023-01-01T09:00:00.000+0000\",\"end\":\"2023-01-01T17:00:00.000+0000\",\"email\":\"test@example.com\"}");
+        }
+        body.append("]");
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=0&length=150"))
+                .andRespond(withSuccess(body.toString(), MediaType.APPLICATION_JSON));
+        List<Integer> batchSizes = new ArrayList<>();
+
+        // Act
+        int count = legacyServiceClient.streamRecords("test@example.com", 0, 150, batch -> batchSizes.add(batch.size()));
+
+        // Assert
+        assertEquals(150, count);
+        assertEquals(List.of(64, 64, 22), batchSizes);
+    }
+
+    @Test
+    public void testPostRecordUrlEncodesTheForm() {
+        // Arrange
+        server.expect(requestTo("http://timetracker-legacy:8080/records"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(content().string("email=a%2Bb%26c%40example.com&start=2023-01-02+09%3A00&end=2023-01-02+17%3A00"))
+                .andRespond(withSuccess());
+
+        // Act
+        legacyServiceClient.postRecord("a+b&c@example.com", "2023-01-02 09:00", "2023-01-02 17:00");
+
+        // Assert
+        server.verify();
+    }
+}
@@ -0,0 +1,114 @@
+package com.timetracker.client;
+
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.PeerPage;
+import com.timetracker.model.TimeRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class PeerClientTest {
+
+    private MockRestServiceServer server;
+
+    private PeerClient peerClient;
+
+    // An email owned by the other replica
+    private String remoteEmail;
+
+    @BeforeEach
+    public void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        peerClient = new PeerClient(true, "http://self:8080/", "http://self:8080,http://peer:8080", "s3cret", 100, 500, 1000, 60, new TimeTrackerMetrics());
+        peerClient.setRestTemplate(restTemplate);
+
+        for (int i = 0; remoteEmail == null; i++) {
+            if (peerClient.ownerOf("employee" + i + "@example.com") != null) {
+                remoteEmail = "employee" + i + "@example.com";
+            }
+        }
+    }
+
+    @Test
+    public void testFetchRecordsReadsPageFromOwner() {
+        // Arrange
+        String body = "{\"records\":[{\"start\":\"2023-01-01T09:00:00.000+0000\",\"end\":\"2023-01-01T17:00:00.000+0000\",\"email\":\"" + remoteEmail + "\"}],"
+                + "\"cachedSize\":50,\"outdated\":false}";
+        server.expect(requestTo("http://peer:8080/internal/peer/records?email=" + remoteEmail.replace("@", "%40") + "&offset=0&length=10&considerNullField=true&bulkFetch=false"))
+                .andExpect(header(PeerClient.SECRET_HEADER, "s3cret"))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+
+        // Act
+        String owner = peerClient.ownerOf(remoteEmail);
+        PeerPage page = peerClient.fetchRecords(owner, remoteEmail, 0, 10, true, false);
+
+        // Assert
+        assertEquals("http://peer:8080", owner);
+        assertEquals("09:00", page.getRecords().get(0).getStartTime());
+        assertEquals(50, peerClient.getLastRemotePage(remoteEmail).getCachedSize());
+        server.verify();
+    }
+
+    @Test
+    public void testFailedOwnerIsSkippedWhileDown() {
+        // Arrange
+        server.expect(requestTo("http://peer:8080/internal/peer/users?email=" + remoteEmail.replace("@", "%40"))).andRespond(withServerError());
+
+        // Act
+        String owner = peerClient.ownerOf(remoteEmail);
+        assertThrows(RestClientException.class, () -> peerClient.checkExistingUser(owner, remoteEmail));
+
+        // Assert
+        assertNull(peerClient.ownerOf(remoteEmail));
+        server.verify();
+    }
+
+    @Test
+    public void testSubmittedRecordIsPassedToOwner() {
+        // Arrange
+        TimeRecord record = new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", remoteEmail);
+        server.expect(requestTo("http://peer:8080/internal/peer/submitted"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header(PeerClient.SECRET_HEADER, "s3cret"))
+                .andExpect(content().json("{\"start\":\"2023-01-01T09:00:00.000+0000\",\"end\":\"2023-01-01T17:00:00.000+0000\",\"email\":\"" + remoteEmail + "\"}"))
+                .andRespond(withNoContent());
+
+        // Act
+        peerClient.addSubmitted(peerClient.ownerOf(remoteEmail), record);
+
+        // Assert
+        server.verify();
+    }
+
+    @Test
+    public void testOnlyCallsWithTheSharedSecretAreAuthorized() {
+        // Arrange
+        PeerClient withoutSecret = new PeerClient(true, "http://self:8080", "http://self:8080,http://peer:8080", "", 100, 500, 1000, 60, new TimeTrackerMetrics());
+
+        // Act
+        boolean authorized = peerClient.isAuthorized("s3cret");
+        boolean wrongSecret = peerClient.isAuthorized("guess");
+        boolean missingSecret = peerClient.isAuthorized(null);
+
+        // Assert
+        assertTrue(authorized);
+        assertFalse(wrongSecret);
+        assertFalse(missingSecret);
+        assertFalse(withoutSecret.isEnabled());
+        assertFalse(withoutSecret.isAuthorized(""));
+    }
+}
@@ -0,0 +1,90 @@
+package com.timetracker.controller;
+
+import com.timetracker.model.RecordsPage;
+import com.timetracker.model.TimeRecord;
+import com.timetracker.service.TimeTrackerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RecordsApiControllerTest {
+
+    @Mock
+    private TimeTrackerService timeTrackerService;
+
+    @InjectMocks
+    private RecordsApiController recordsApiController;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(timeTrackerService.getRecordsPerPage()).thenReturn(10);
+    }
+
+    @Test
+    public void testGetRecordsReturnsNextCursorAndETag() {
+        // Arrange
+        String email = "test@example.com";
+        List<TimeRecord> records = List.of(new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email));
+        when(timeTrackerService.checkExistingUser(email)).thenReturn("USER_EXISTS");
+        when(timeTrackerService.getRecordsPage(eq(email), anyInt(), anyInt())).thenReturn(new RecordsPage(records, "1.1", 1, false));
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        // Act
+        ResponseEntity<Object> response = recordsApiController.getRecords(email, null, 0, request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("W/\"1.1-0-10\"", response.getHeaders().getETag());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(records, body.get("records"));
+        assertEquals(false, body.get("hasMore"));
+
+        // The next cursor addresses the offset after the returned records
+        recordsApiController.getRecords(email, (String) body.get("nextCursor"), 0, request);
+        verify(timeTrackerService).getRecordsPage(email, 1, 10);
+    }
+
+    @Test
+    public void testUnchangedPageIsNotModifiedWithoutFetching() {
+        // Arrange
+        String email = "test@example.com";
+        when(timeTrackerService.getCachedRecordsVersion(email, 0, 10)).thenReturn("1.1");
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/records");
+        servletRequest.addHeader("If-None-Match", "W/\"1.1-0-10\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        // Act
+        ResponseEntity<Object> response = recordsApiController.getRecords(email, null, 0, new ServletWebRequest(servletRequest, servletResponse));
+
+        // Assert
+        assertNull(response);
+        assertEquals(304, servletResponse.getStatus());
+        verify(timeTrackerService, never()).checkExistingUser(anyString());
+        verify(timeTrackerService, never()).getRecordsPage(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testMalformedCursorIsRejected() {
+        // Act
+        ResponseEntity<Object> response = recordsApiController.getRecords("test@example.com", "not a cursor", 0,
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
@@ -1,5 +1,6 @@
 package com.timetracker.controller;
 
+import com.timetracker.model.Submission;
 import com.timetracker.model.TimeRecord;
 import com.timetracker.service.TimeTrackerService;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,9 +8,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.ui.ExtendedModelMap;
 import org.springframework.ui.Model;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,7 +52,7 @@ public class TimeTrackerControllerTest {
                 .thenReturn("USER_EXISTS");
 
         // Act
-        String res = timeTrackerController.getTimeRecords(email, 1, false, model);
+        String res = timeTrackerController.getTimeRecords(email, 1, false, null, null, model);
 
         // Assert
         assertEquals("records", res);
@@ -72,4 +77,38 @@ public class TimeTrackerControllerTest {
         // Assert
         assertEquals(expectedResponse, response);
     }
+
+    @Test
+    public void testRecordTimeQueued() {
+        // Arrange
+        String email = "test@example.com";
+        String startTime = "2023-01-01T09:00";
+        String endTime = "2023-01-01T17:00";
+        String expectedResponse = "redirect:/?recordResponse=SUBMIT_QUEUED&email=test@example.com&submissionId=42";
+
+        // Mock the service response
+        when(timeTrackerService.isWriteBehindEnabled()).thenReturn(true);
+        when(timeTrackerService.queueTime(anyString(), anyString(), anyString()))
+                .thenReturn(new Submission("42", email, startTime, endTime, "SUBMIT_QUEUED"));
+
+        // Act
+        String response = timeTrackerController.recordTime(email, startTime, endTime, null);
+
+        // Assert
+        assertEquals(expectedResponse, response);
+    }
+
+    @Test
+    public void testSearchRecordsAnswersBadGatewayWhenLegacyServiceFails() {
+        // Arrange
+        String email = "test@example.com";
+        when(timeTrackerService.checkExistingUser(anyString())).thenReturn("USER_EXISTS");
+        when(timeTrackerService.getRecordsBetween(eq(email), any(), any())).thenThrow(new ResourceAccessException("Read timed out"));
+
+        // Act
+        ResponseEntity<Object> response = timeTrackerController.searchTimeRecords(email, LocalDate.of(2023, 1, 1), null);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_GATEWAY, response.getStatusCode());
+    }
 }
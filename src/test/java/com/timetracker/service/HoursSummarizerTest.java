@@ -0,0 +1,32 @@
+package com.timetracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HoursSummarizerTest {
+
+    @Test
+    public void testPeriodsStartWithTheRangeAndFollowIsoWeeks() {
+        // Act
+        List<LocalDate> periodStarts = HoursSummarizer.periodStarts(LocalDate.of(2023, 1, 4), LocalDate.of(2023, 1, 16), "week");
+
+        // Assert
+        assertEquals(List.of(LocalDate.of(2023, 1, 4), LocalDate.of(2023, 1, 9), LocalDate.of(2023, 1, 16)), periodStarts);
+        assertEquals(LocalDate.of(2023, 1, 8), HoursSummarizer.periodEnd(periodStarts.get(0), "week"));
+        assertEquals("2023-W01", HoursSummarizer.periodLabel(periodStarts.get(0), "week"));
+        assertEquals("2023-01", HoursSummarizer.periodLabel(periodStarts.get(0), "month"));
+        assertEquals("2023-01-04", HoursSummarizer.periodLabel(periodStarts.get(0), "day"));
+    }
+
+    @Test
+    public void testInvalidRangesAreRejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> HoursSummarizer.periodStarts(LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 1), "day"));
+        assertThrows(IllegalArgumentException.class, () -> HoursSummarizer.periodStarts(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 2), "year"));
+        assertThrows(IllegalArgumentException.class, () -> HoursSummarizer.periodStarts(LocalDate.of(2000, 1, 1), LocalDate.of(2023, 1, 1), "day"));
+    }
+}
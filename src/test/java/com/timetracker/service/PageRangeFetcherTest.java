@@ -0,0 +1,48 @@
+package com.timetracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageRangeFetcherTest {
+
+    @Test
+    public void testSlicesPastTheQueueAreFetchedByTheCallerAndCancelledSlicesAreNot() throws InterruptedException {
+        // Arrange
+        PageRangeFetcher fetcher = new PageRangeFetcher(2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch queuedFetched = new CountDownLatch(1);
+        String caller = Thread.currentThread().getName();
+
+        // Act
+        List<CompletableFuture<List<String>>> slices = fetcher.fetchSlices(0, 4, 1, (offset, length) -> {
+            if (offset == 2) {
+                queuedFetched.countDown();
+            }
+            if (Thread.currentThread().getName().startsWith("bulk-fetch-")) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Collections.singletonList(Thread.currentThread().getName());
+        });
+        boolean cancelled = slices.get(2).cancel(false);
+        release.countDown();
+        slices.get(0).join();
+        slices.get(1).join();
+
+        // Assert
+        assertEquals(Collections.singletonList(caller), slices.get(3).join());
+        assertTrue(cancelled);
+        assertFalse(queuedFetched.await(200, TimeUnit.MILLISECONDS));
+        fetcher.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+package com.timetracker.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.cache.UserExistenceCache;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.client.PeerClient;
+import com.timetracker.client.ReactiveLegacyServiceClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.TimeRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+public class ReactiveTimeTrackerServiceTest {
+
+    @Mock
+    private ReactiveLegacyServiceClient legacyClient;
+
+    private ReactiveTimeTrackerService reactiveTimeTrackerService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // Both services share the caches, as singletons do in the application context
+        RecordsCache recordsCache = new RecordsCache();
+        UserExistenceCache userExistence = new UserExistenceCache();
+        ReadAheadPrefetcher prefetcher = new ReadAheadPrefetcher();
+        TimeTrackerMetrics metrics = new TimeTrackerMetrics();
+        Revalidator revalidator = new Revalidator();
+        TailSyncer tailSyncer = new TailSyncer();
+        LegacyServiceClient blockingClient = new LegacyServiceClient();
+        RecordExporter recordExporter = new RecordExporter(1000, blockingClient, metrics);
+        TeamFetcher teamFetcher = new TeamFetcher();
+        PeerClient peerClient = new PeerClient();
+        CacheFiller cacheFiller = new CacheFiller(10, 5, 5, 10000, recordsCache, userExistence, prefetcher, tailSyncer, metrics);
+        HoursSummarizer hoursSummarizer = new HoursSummarizer(recordsCache, cacheFiller);
+        TimeTrackerService timeTrackerService = new TimeTrackerService(recordsCache, cacheFiller, prefetcher, new PageRangeFetcher(),
+                revalidator, recordExporter, new RecordImporter(), teamFetcher, hoursSummarizer, tailSyncer, new WriteBehindQueue(), metrics, blockingClient, peerClient);
+        reactiveTimeTrackerService = new ReactiveTimeTrackerService(recordsCache, cacheFiller, prefetcher, metrics, revalidator,
+                timeTrackerService, recordExporter, teamFetcher, hoursSummarizer, peerClient, legacyClient);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneLegacyCall() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord record = new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email);
+        Sinks.Many<Optional<TimeRecord>> response = Sinks.many().unicast().onBackpressureBuffer();
+        when(legacyClient.streamRecords(email, 0, 10)).thenReturn(response.asFlux());
+
+        // Act
+        CompletableFuture<List<TimeRecord>> first = reactiveTimeTrackerService.retrieveRecords(email, 0, 10, true, false).toFuture();
+        CompletableFuture<List<TimeRecord>> second = reactiveTimeTrackerService.retrieveRecords(email, 0, 10, true, false).toFuture();
+        response.tryEmitNext(Optional.of(record));
+        response.tryEmitComplete();
+
+        // Assert
+        assertEquals(List.of(record), first.join());
+        assertEquals(List.of(record), second.join());
+        verify(legacyClient, times(1)).streamRecords(email, 0, 10);
+    }
+
+    @Test
+    public void testCheckExistingUserReportsConnectionError() {
+        // Arrange
+        String email = "test@example.com";
+        when(legacyClient.streamRecords(email, 0, 1)).thenReturn(Flux.error(new WebClientRequestException(
+                new IOException("Connection refused"), HttpMethod.GET, URI.create("http://localhost/records"), new HttpHeaders())));
+
+        // Act
+        String result = reactiveTimeTrackerService.checkExistingUser(email).block();
+
+        // Assert
+        assertEquals("CONNECTION_ERROR", result);
+    }
+}
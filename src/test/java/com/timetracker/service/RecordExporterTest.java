@@ -0,0 +1,92 @@
+package com.timetracker.service;
+
+import com.timetracker.client.LegacyCircuitBreaker;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class RecordExporterTest {
+
+    private final static String RECORD = "{\"start\":\"2023-01-01T09:00:00.000+0000\",\"end\":\"2023-01-01T17:00:00.000+0000\",\"email\":\"%s\"}";
+
+    private MockRestServiceServer server;
+
+    private RecordExporter recordExporter;
+
+    @BeforeEach
+    public void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        LegacyServiceClient legacyClient = new LegacyServiceClient("http://timetracker-legacy:8080", 50, 20, 2000, 10000, 1000, 30, 30, new LegacyCircuitBreaker());
+        legacyClient.setRestTemplate(restTemplate);
+        recordExporter = new RecordExporter(2, legacyClient, new TimeTrackerMetrics());
+    }
+
+    @Test
+    public void testExportWalksHistoryInChunksAsCsv() throws IOException {
+        // Arrange
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=0&length=2"))
+                .andRespond(withSuccess("[" + String.format(RECORD, "test@example.com") + "," + String.format(RECORD, "a,\\\"b\\\"") + "]", MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=2&length=2"))
+                .andRespond(withSuccess("[" + String.format(RECORD, "test@example.com") + "]", MediaType.APPLICATION_JSON));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long exported = recordExporter.export("test@example.com", RecordExporter.FORMAT_CSV, out);
+
+        // Assert
+        assertEquals(3, exported);
+        assertEquals("start,end,email\n"
+                + "2023-01-01T09:00:00.000+0000,2023-01-01T17:00:00.000+0000,test@example.com\n"
+                + "2023-01-01T09:00:00.000+0000,2023-01-01T17:00:00.000+0000,\"a,\"\"b\"\"\"\n"
+                + "2023-01-01T09:00:00.000+0000,2023-01-01T17:00:00.000+0000,test@example.com\n",
+                out.toString(StandardCharsets.UTF_8));
+        server.verify();
+    }
+
+    @Test
+    public void testExportWritesNdjson() throws IOException {
+        // Arrange
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=0&length=2"))
+                .andRespond(withSuccess("[" + String.format(RECORD, "test@example.com") + "]", MediaType.APPLICATION_JSON));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long exported = recordExporter.export("test@example.com", RecordExporter.FORMAT_NDJSON, out);
+
+        // Assert
+        assertEquals(1, exported);
+        assertEquals(String.format(RECORD, "test@example.com") + "\n", out.toString(StandardCharsets.UTF_8));
+        server.verify();
+    }
+
+    @Test
+    public void testExportCountsNullEntriesTowardTheEndOfTheHistory() throws IOException {
+        // Arrange
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=0&length=2"))
+                .andRespond(withSuccess("[null," + String.format(RECORD, "test@example.com") + "]", MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://timetracker-legacy:8080/records?email=test@example.com&offset=2&length=2"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long exported = recordExporter.export("test@example.com", RecordExporter.FORMAT_NDJSON, out);
+
+        // Assert
+        assertEquals(1, exported);
+        assertEquals(String.format(RECORD, "test@example.com") + "\n", out.toString(StandardCharsets.UTF_8));
+        server.verify();
+    }
+}
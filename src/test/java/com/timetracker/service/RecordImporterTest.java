@@ -0,0 +1,136 @@
+package com.timetracker.service;
+
+import com.timetracker.model.ImportReport;
+import com.timetracker.model.ImportResult;
+import com.timetracker.utils.Utils;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordImporterTest {
+
+    private final RecordImporter recordImporter = new RecordImporter(3, 4, 0, 60);
+
+    @Test
+    public void testImportValidatesRowsAndSubmitsValidOnes() throws IOException {
+        // Arrange
+        String csv = "Email,StartTime,EndTime\n"
+                + "a@example.com,2023-01-02T09:00,2023-01-02T17:00\n"
+                + "a@example.com,2023-01-02T16:00,2023-01-02T18:00\n"
+                + "\n"
+                + "b@example.com,2023-01-03T09:00:00.000+0000,2023-01-03T17:00:00.000+0000\n"
+                + "b@example.com,2023-01-04T17:00,2023-01-04T09:00\n"
+                + ",2023-01-02T09:00,2023-01-02T17:00\n"
+                + "c@example.com,yesterday,2023-01-02T17:00\n"
+                + "c@example.com,2023-01-05T09:00,2023-01-05T17:00\n";
+        long cachedStart = Utils.parseIsoEpochMillis("2023-01-05T08:00");
+        Set<String> submitted = ConcurrentHashMap.newKeySet();
+
+        // Act
+        ImportReport report = awaitFinished(new RecordImporter(10, 4, 0, 60).importRecords(new StringReader(csv),
+                (email, start, end) -> email.equals("c@example.com") && start < cachedStart + 7200000L && end > cachedStart,
+                (email, startTime, endTime) -> submitted.add(email + " " + startTime + " " + endTime)));
+
+        // Assert
+        assertEquals("IMPORT_COMPLETED", report.getStatus());
+        assertEquals(7, report.getRows());
+        assertEquals(2, report.getSubmitted());
+        assertEquals(5, report.getRejected());
+        assertEquals(List.of("SUBMIT_SUCCESS", "OVERLAPPING_RECORD", "SUBMIT_SUCCESS", "INVALID_TIME_RANGE", "INVALID_ROW", "INVALID_ROW", "OVERLAPPING_RECORD"),
+                report.getResults().stream().map(ImportResult::getStatus).collect(Collectors.toList()));
+        assertEquals(5, report.getResults().get(2).getLine());
+        assertEquals(Set.of("a@example.com 2023-01-02T09:00 2023-01-02T17:00", "b@example.com 2023-01-03T09:00 2023-01-03T17:00"), submitted);
+    }
+
+    @Test
+    public void testImportReportsFailedSubmissions() throws IOException {
+        // Arrange
+        String csv = "start,end,email\n2023-01-02T09:00,2023-01-02T17:00,a@example.com\n2023-01-03T09:00,2023-01-03T17:00,a@example.com\n";
+
+        // Act
+        ImportReport report = awaitFinished(recordImporter.importRecords(new StringReader(csv), (email, start, end) -> false, (email, startTime, endTime) -> {
+            if (startTime.startsWith("2023-01-03")) {
+                throw new ResourceAccessException("Connection refused");
+            }
+            return false;
+        }));
+
+        // Assert
+        assertEquals(2, report.getFailed());
+        assertEquals("SUBMIT_ERROR", report.getResults().get(0).getStatus());
+        assertEquals("CONNECTION_ERROR", report.getResults().get(1).getStatus());
+    }
+
+    @Test
+    public void testImportSubmitsInTheBackgroundAndIsTrackedById() throws IOException {
+        // Arrange
+        String csv = "email,start,end\na@example.com,2023-01-02T09:00,2023-01-02T17:00\na@example.com,2023-01-03T09:00,2023-01-03T17:00\n";
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        ImportReport report = recordImporter.importRecords(new StringReader(csv), (email, start, end) -> false, (email, startTime, endTime) -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        String runningStatus = report.getStatus();
+        int runningQueued = report.getQueued();
+        release.countDown();
+        awaitFinished(report);
+
+        // Assert
+        assertEquals("IMPORT_RUNNING", runningStatus);
+        assertEquals(2, runningQueued);
+        assertSame(report, recordImporter.get(report.getId()));
+        assertEquals("IMPORT_COMPLETED", report.getStatus());
+        assertEquals(0, report.getQueued());
+        assertEquals(2, report.getSubmitted());
+        assertNull(recordImporter.get("unknown"));
+    }
+
+    @Test
+    public void testImportRejectsFilesWithoutColumnsOrWithTooManyRows() throws IOException {
+        // Arrange
+        String noEndColumn = "email,start\na@example.com,2023-01-02T09:00\n";
+        String tooManyRows = "email,start,end\n" + "a@example.com,2023-01-02T09:00,2023-01-02T17:00\n".repeat(4);
+
+        // Act
+        ImportReport invalid = recordImporter.importRecords(new StringReader(noEndColumn), (email, start, end) -> false, (email, startTime, endTime) -> true);
+        ImportReport tooLarge = recordImporter.importRecords(new StringReader(tooManyRows), (email, start, end) -> false, (email, startTime, endTime) -> fail("Nothing should be submitted"));
+
+        // Assert
+        assertEquals("INVALID_IMPORT_FILE", invalid.getStatus());
+        assertEquals("IMPORT_TOO_LARGE", tooLarge.getStatus());
+    }
+
+    @Test
+    public void testParseCsvLineUnquotesFields() {
+        // Act
+        List<String> fields = RecordImporter.parseCsvLine("\"a,\"\"b\"\"\", 2023-01-02T09:00 ,");
+
+        // Assert
+        assertEquals(List.of("a,\"b\"", "2023-01-02T09:00", ""), fields);
+    }
+
+    private static ImportReport awaitFinished(ImportReport report) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!report.isFinished() && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertTrue(report.isFinished());
+        return report;
+    }
+}
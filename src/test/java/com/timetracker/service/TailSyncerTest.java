@@ -0,0 +1,86 @@
+package com.timetracker.service;
+
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.client.LegacyCircuitBreaker;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TailSyncerTest {
+
+    @Test
+    public void testIntervalAdaptsToHowOftenRecordsAppear() {
+        // Arrange
+        TailSyncer tailSyncer = new TailSyncer(true, 10, 80, 10, 100, 1, 10, 1000, new LegacyCircuitBreaker(), new TimeTrackerMetrics());
+        String email = "test@example.com";
+        tailSyncer.touch(email);
+        TailSyncer.HotEmployee employee = tailSyncer.getHotEmployee(email);
+
+        // Act
+        long[] intervals = new long[6];
+        tailSyncer.sync(email, employee, polled -> 0);
+        intervals[0] = employee.getIntervalNanos();
+        tailSyncer.sync(email, employee, polled -> 0);
+        intervals[1] = employee.getIntervalNanos();
+        tailSyncer.sync(email, employee, polled -> 0);
+        tailSyncer.sync(email, employee, polled -> 0);
+        intervals[2] = employee.getIntervalNanos();
+        tailSyncer.sync(email, employee, polled -> 3);
+        intervals[3] = employee.getIntervalNanos();
+        tailSyncer.sync(email, employee, polled -> -1);
+        intervals[4] = employee.getIntervalNanos();
+        tailSyncer.sync(email, employee, polled -> {
+            throw new ResourceAccessException("Read timed out");
+        });
+        intervals[5] = employee.getIntervalNanos();
+
+        // Assert
+        assertEquals(TimeUnit.SECONDS.toNanos(20), intervals[0]);
+        assertEquals(TimeUnit.SECONDS.toNanos(40), intervals[1]);
+        assertEquals(TimeUnit.SECONDS.toNanos(80), intervals[2]);
+        assertEquals(TimeUnit.SECONDS.toNanos(40), intervals[3]);
+        assertEquals(TimeUnit.SECONDS.toNanos(40), intervals[4]);
+        assertEquals(TimeUnit.SECONDS.toNanos(40), intervals[5]);
+    }
+
+    @Test
+    public void testOnlyViewedEmployeesAreTracked() {
+        // Arrange
+        TailSyncer tailSyncer = new TailSyncer(true, 10, 80, 10, 100, 1, 10, 1000, new LegacyCircuitBreaker(), new TimeTrackerMetrics());
+        TailSyncer disabled = new TailSyncer(false, 10, 80, 10, 100, 1, 10, 1000, new LegacyCircuitBreaker(), new TimeTrackerMetrics());
+
+        // Act
+        tailSyncer.touch("viewed@example.com");
+        disabled.touch("viewed@example.com");
+
+        // Assert
+        assertNotNull(tailSyncer.getHotEmployee("viewed@example.com"));
+        assertNull(tailSyncer.getHotEmployee("other@example.com"));
+        assertNull(disabled.getHotEmployee("viewed@example.com"));
+    }
+
+    @Test
+    public void testSyncedTailIsTrustedForTheSyncInterval() {
+        // Arrange
+        TailSyncer tailSyncer = new TailSyncer(true, 10, 80, 10, 100, 1, 10, 1000, new LegacyCircuitBreaker(), new TimeTrackerMetrics());
+        String email = "test@example.com";
+        EmployeeRecords synced = new EmployeeRecords(email, System.nanoTime() + TimeUnit.MINUTES.toNanos(5));
+        synced.setEndReached(true);
+        EmployeeRecords notReached = new EmployeeRecords(email, System.nanoTime() + TimeUnit.MINUTES.toNanos(5));
+
+        // Act
+        boolean untracked = tailSyncer.isTailFresh(email, synced);
+        tailSyncer.touch(email);
+        boolean fresh = tailSyncer.isTailFresh(email, synced);
+        boolean unsynced = tailSyncer.isTailFresh(email, notReached);
+
+        // Assert
+        assertFalse(untracked);
+        assertTrue(fresh);
+        assertFalse(unsynced);
+    }
+}
@@ -0,0 +1,87 @@
+package com.timetracker.service;
+
+import com.timetracker.model.TeamMember;
+import com.timetracker.model.TeamRecords;
+import com.timetracker.model.TimeRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TeamFetcherTest {
+
+    private static TimeRecord record(String email, long startHour) {
+        return TimeRecord.fromEpochMillis(startHour * 3600000L, (startHour + 1) * 3600000L, email);
+    }
+
+    @Test
+    public void testMergeByStartTimeInterleavesSortedLists() {
+        // Arrange
+        List<List<TimeRecord>> lists = List.of(
+                List.of(record("a", 1), record("a", 4), record("a", 9)),
+                List.of(),
+                List.of(record("b", 2), record("b", 4), record("b", 5)),
+                List.of(record("c", 0)));
+
+        // Act
+        List<TimeRecord> merged = TeamFetcher.mergeByStartTime(lists);
+
+        // Assert
+        assertEquals(List.of("c 0", "a 1", "b 2", "a 4", "b 4", "b 5", "a 9"), merged.stream()
+                .map(record -> record.getEmail() + " " + record.getStartEpochMillis() / 3600000L)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testFetchReturnsPartialResultsWhenMembersMissTheirDeadline() throws InterruptedException {
+        // Arrange
+        TeamFetcher teamFetcher = new TeamFetcher(2, 300, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> emails = List.of("a@example.com", "slow@example.com", "b@example.com", "down@example.com", "none@example.com");
+
+        // Act
+        long start = System.nanoTime();
+        TeamRecords team = teamFetcher.fetch(emails, email -> {
+            switch (email) {
+                case "slow@example.com":
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new TeamFetcher.MemberRecords("RECORDS_LOADED", List.of(record(email, 0)), false);
+                case "down@example.com":
+                    throw new ResourceAccessException("Connection refused");
+                case "none@example.com":
+                    return new TeamFetcher.MemberRecords("INVALID_USER", List.of(), false);
+                default:
+                    return new TeamFetcher.MemberRecords("RECORDS_LOADED", List.of(record(email, email.charAt(0) - 'a' + 1)), false);
+            }
+        });
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+        teamFetcher.shutdown();
+
+        // Assert
+        assertTrue(elapsedMs < 2000, "The team should not wait for the slow member, took " + elapsedMs + " ms");
+        assertTrue(team.isPartial());
+        assertEquals(List.of("RECORDS_LOADED", "FETCH_TIMEOUT", "RECORDS_LOADED", "CONNECTION_ERROR", "INVALID_USER"),
+                team.getMembers().stream().map(TeamMember::getStatus).collect(Collectors.toList()));
+        assertEquals(List.of("a@example.com", "b@example.com"),
+                team.getRecords().stream().map(TimeRecord::getEmail).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testParseEmailsSplitsAndDeduplicates() {
+        // Act
+        List<String> emails = TeamFetcher.parseEmails(" a@example.com,b@example.com;\n a@example.com  c@example.com, ");
+
+        // Assert
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"), emails);
+    }
+}
@@ -3,34 +3,57 @@ package com.timetracker.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timetracker.cache.EmployeeRecords;
+import com.timetracker.cache.RecordsCache;
+import com.timetracker.cache.UserExistenceCache;
+import com.timetracker.client.LegacyServiceClient;
+import com.timetracker.client.PeerClient;
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.HoursSummary;
+import com.timetracker.model.RecordsPage;
 import com.timetracker.model.TimeRecord;
 import com.timetracker.utils.Utils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.function.Executable;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class TimeTrackerServiceTest {
 
     @Mock
     private RestTemplate restTemplate;
 
-    @InjectMocks
     private TimeTrackerService timeTrackerService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        timeTrackerService.setRestTemplate(restTemplate);
+        timeTrackerService = newService(new ReadAheadPrefetcher());
     }
 
     @Test
@@ -61,9 +84,9 @@ public class TimeTrackerServiceTest {
         List<TimeRecord> expectedRecords = new ArrayList<>();
         expectedRecords.add(new TimeRecord(Utils.toLegacyResponseTimeFormat(startTime), Utils.toLegacyResponseTimeFormat(endTime), email));
 
-        // Mock response for getForObject
+        // Mock response for the records query
         TimeRecord[] mockRecords = expectedRecords.toArray(new TimeRecord[0]);
-        when(restTemplate.getForObject(anyString(), eq(TimeRecord[].class))).thenReturn(mockRecords);
+        mockRecordsResponse(url -> mockRecords);
 
         // Act
         List<TimeRecord> records = timeTrackerService.retrieveRecords(email, 0, 10, true, false);
@@ -71,5 +94,491 @@ public class TimeTrackerServiceTest {
         // Assert
         assertEquals(expectedRecords, records);
     }
-}
 
+    @Test
+    public void testCheckExistingUserUsesCachedRecords() {
+        // Arrange
+        String email = "test@example.com";
+        TimeRecord[] mockRecords = {
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email)
+        };
+        mockRecordsResponse(url -> mockRecords);
+        timeTrackerService.retrieveRecords(email, 0, 10, true, false);
+
+        // Act
+        String result = timeTrackerService.checkExistingUser(email);
+
+        // Assert
+        assertEquals("USER_EXISTS", result);
+        verifyRecordsQueries(1);
+    }
+
+    @Test
+    public void testCheckExistingUserCachesUnknownUser() {
+        // Arrange
+        String email = "unknown@example.com";
+        mockRecordsResponse(url -> new TimeRecord[0]);
+
+        // Act
+        String first = timeTrackerService.checkExistingUser(email);
+        String second = timeTrackerService.checkExistingUser(email);
+
+        // Assert
+        assertEquals("INVALID_USER", first);
+        assertEquals("INVALID_USER", second);
+        verifyRecordsQueries(1);
+    }
+
+    @Test
+    public void testBulkFetchStitchesParallelSlicesInOffsetOrder() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 2);
+        ReflectionTestUtils.setField(cacheFiller(), "bulkFetchPages", 3);
+
+        // Each record starts offset hours after midnight, so the order of the cache is visible
+        mockRecordsResponse(url -> {
+            MultiValueMap<String, String> params = UriComponentsBuilder.fromUriString(url).build().getQueryParams();
+            int offset = Integer.parseInt(params.getFirst("offset"));
+            int length = Integer.parseInt(params.getFirst("length"));
+            TimeRecord[] records = new TimeRecord[length];
+            for (int i = 0; i < length; i++) {
+                String start = String.format("2023-01-01T%02d:00", offset + i);
+                String end = String.format("2023-01-01T%02d:30", offset + i);
+                records[i] = new TimeRecord(Utils.toLegacyResponseTimeFormat(start), Utils.toLegacyResponseTimeFormat(end), email);
+            }
+            return records;
+        });
+
+        // Act
+        timeTrackerService.getRecordsByEmail(email, 1, true);
+        List<TimeRecord> records = timeTrackerService.getRecordsByEmail(email, 3, false);
+
+        // Assert
+        assertEquals(3, timeTrackerService.getAvailablePages(email));
+        assertEquals("04:00", records.get(0).getStartTime());
+        assertEquals("05:00", records.get(1).getStartTime());
+        verifyRecordsQueries(3);
+    }
+
+    @Test
+    public void testViewNearTheEndOfTheCacheReadsAheadTheNextBulk() throws InterruptedException {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(true, 1, 1, 1, 10));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 2);
+        ReflectionTestUtils.setField(cacheFiller(), "bulkFetchPages", 2);
+        RecordsCache recordsByEmail = (RecordsCache) ReflectionTestUtils.getField(timeTrackerService, "recordsByEmail");
+        mockRecordsResponse(url -> {
+            int length = Integer.parseInt(UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("length"));
+            TimeRecord[] records = new TimeRecord[length];
+            Arrays.fill(records, new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email));
+            return records;
+        });
+
+        // Act
+        List<TimeRecord> firstPage = timeTrackerService.retrieveRecords(email, 0, 2, true, false);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recordsByEmail.size(email) < 6 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertEquals(6, recordsByEmail.size(email));
+        verifyRecordsQueries(2);
+    }
+
+    @Test
+    public void testConcurrentViewsShareOneLegacyRequest() throws InterruptedException {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        TimeRecord[] legacyRecords = {
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email),
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-02T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-02T17:00"), email)
+        };
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mockRecordsResponse(url -> {
+            requested.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return legacyRecords;
+        });
+
+        // Act
+        CompletableFuture<List<TimeRecord>> first = CompletableFuture.supplyAsync(() -> timeTrackerService.retrieveRecords(email, 0, 10, true, false));
+        requested.await(5, TimeUnit.SECONDS);
+        CompletableFuture<List<TimeRecord>> second = CompletableFuture.supplyAsync(() -> timeTrackerService.retrieveRecords(email, 0, 10, true, false));
+        Thread.sleep(100);
+        release.countDown();
+
+        // Assert
+        assertEquals(Arrays.asList(legacyRecords), first.join());
+        assertEquals(Arrays.asList(legacyRecords), second.join());
+        verifyRecordsQueries(1);
+    }
+
+    @Test
+    public void testCacheLookupsAndLegacyCallsAreMeasured() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1), new TimeTrackerMetrics(registry));
+        String email = "test@example.com";
+        TimeRecord[] legacyRecords = new TimeRecord[3];
+        Arrays.fill(legacyRecords, new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email));
+        mockRecordsResponse(url -> {
+            if (url.contains("down@example.com")) {
+                throw new ResourceAccessException("Connection refused");
+            }
+            return url.contains("offset=0") ? legacyRecords : new TimeRecord[0];
+        });
+
+        // Act
+        timeTrackerService.retrieveRecords(email, 0, 2, true, false);
+        timeTrackerService.retrieveRecords(email, 0, 2, true, false);
+        timeTrackerService.retrieveRecords(email, 2, 2, true, false);
+        timeTrackerService.retrieveRecords("down@example.com", 0, 2, true, false);
+
+        // Assert
+        assertEquals(1, registry.get("timetracker.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, registry.get("timetracker.cache.requests").tag("result", "partial").counter().count());
+        assertEquals(2, registry.get("timetracker.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(2, registry.get("timetracker.legacy.requests").tags("operation", "queryRecords", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("timetracker.legacy.requests").tags("operation", "queryRecords", "outcome", "error").timer().count());
+        assertEquals(0, registry.get("timetracker.legacy.in_flight").tag("operation", "queryRecords").gauge().value());
+    }
+
+    @Test
+    public void testRecordTimeWritesThroughToCachedRecords() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 10);
+        TimeRecord existing = new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email);
+        TimeRecord submitted = new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-02T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-02T17:00"), email);
+        List<TimeRecord> legacyRecords = new ArrayList<>(List.of(existing));
+        mockRecordsResponse(url -> {
+            int offset = Integer.parseInt(UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("offset"));
+            return legacyRecords.subList(Math.min(offset, legacyRecords.size()), legacyRecords.size()).toArray(new TimeRecord[0]);
+        });
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(), eq(String.class))).thenReturn(
+                new ResponseEntity<>("SUBMIT_SUCCESS", null, HttpStatus.OK));
+        timeTrackerService.getRecordsByEmail(email, 1, false);
+
+        // Act
+        timeTrackerService.recordTime(email, "2023-01-02T09:00", "2023-01-02T17:00");
+        List<TimeRecord> beforeReconcile = timeTrackerService.getRecordsByEmail(email, 1, false);
+        legacyRecords.add(submitted);
+        List<TimeRecord> afterReconcile = timeTrackerService.getRecordsByEmail(email, 1, false);
+
+        // Assert
+        assertEquals(List.of(existing, submitted), beforeReconcile);
+        assertEquals(List.of(existing, submitted), afterReconcile);
+        assertEquals(1, timeTrackerService.getAvailablePages(email));
+    }
+
+    @Test
+    public void testHoursSummarySplitsRecordsAtMidnight() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 10);
+        TimeRecord[] legacyRecords = {
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-02T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-02T17:00"), email),
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-08T22:00"), Utils.toLegacyResponseTimeFormat("2023-01-09T02:30"), email),
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T10:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T11:00"), email)
+        };
+        mockRecordsResponse(url -> {
+            int offset = Integer.parseInt(UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("offset"));
+            return offset == 0 ? legacyRecords : new TimeRecord[0];
+        });
+
+        // Act
+        HoursSummary summary = timeTrackerService.getHoursSummary(email, LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 15), "week");
+
+        // Assert
+        assertEquals(12.5, summary.getTotalHours());
+        assertEquals(2, summary.getPeriods().size());
+        assertEquals("2023-W01", summary.getPeriods().get(0).getPeriod());
+        assertEquals(10.0, summary.getPeriods().get(0).getHours());
+        assertEquals("2023-W02", summary.getPeriods().get(1).getPeriod());
+        assertEquals(2.5, summary.getPeriods().get(1).getHours());
+    }
+
+    @Test
+    public void testHoursSummaryIsPartialWhenHistoryLoadTimesOut() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 1);
+        ReflectionTestUtils.setField(cacheFiller(), "bulkFetchPages", 1);
+        ReflectionTestUtils.setField(cacheFiller(), "historyLoadTimeoutMs", 0);
+        TimeRecord[] legacyRecords = {
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-02T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-02T17:00"), email),
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-03T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-03T17:00"), email)
+        };
+        mockRecordsResponse(url -> {
+            int offset = Integer.parseInt(UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("offset"));
+            return Arrays.copyOfRange(legacyRecords, Math.min(offset, 2), Math.min(offset + 1, 2));
+        });
+
+        // Act
+        HoursSummary first = timeTrackerService.getHoursSummary(email, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31), "month");
+        boolean outdated = timeTrackerService.isRecordsOutdated(email);
+        HoursSummary second = timeTrackerService.getHoursSummary(email, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31), "month");
+
+        // Assert
+        assertTrue(first.isPartial());
+        assertEquals(8.0, first.getTotalHours());
+        assertTrue(outdated);
+        assertEquals(16.0, second.getTotalHours());
+        verifyRecordsQueries(2);
+    }
+
+    @Test
+    public void testServesCachedRecordsWhenLegacyServiceFails() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 2);
+        TimeRecord[] legacyRecords = {
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email),
+                new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-02T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-02T17:00"), email)
+        };
+        mockRecordsResponse(url -> legacyRecords);
+        timeTrackerService.getRecordsByEmail(email, 1, false);
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        // Act
+        List<TimeRecord> records = timeTrackerService.getRecordsBetween(email, LocalDate.of(2023, 1, 2), null);
+
+        // Assert
+        assertEquals(List.of(legacyRecords[1]), records);
+        assertTrue(timeTrackerService.isRecordsOutdated(email));
+    }
+
+    @Test
+    public void testRecordsBetweenFailsWhenNothingIsCached() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 2);
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        // Act
+        Executable search = () -> timeTrackerService.getRecordsBetween("test@example.com", LocalDate.of(2023, 1, 2), null);
+
+        // Assert
+        assertThrows(ResourceAccessException.class, search);
+        assertTrue(timeTrackerService.isRecordsOutdated("test@example.com"));
+    }
+
+    @Test
+    public void testTailSyncFetchesOnlyNewRecordsAndServesViewsFromCache() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 10);
+        List<TimeRecord> legacyRecords = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            legacyRecords.add(new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-0" + day + "T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-0" + day + "T17:00"), email));
+        }
+        List<Integer> queriedOffsets = new ArrayList<>();
+        mockRecordsResponse(url -> {
+            int offset = Integer.parseInt(UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("offset"));
+            queriedOffsets.add(offset);
+            return legacyRecords.subList(Math.min(offset, legacyRecords.size()), legacyRecords.size()).toArray(new TimeRecord[0]);
+        });
+        timeTrackerService.getRecordsByEmail(email, 1, false);
+        RecordsCache recordsByEmail = (RecordsCache) ReflectionTestUtils.getField(timeTrackerService, "recordsByEmail");
+        EmployeeRecords cached = recordsByEmail.get(email);
+
+        // Act
+        timeTrackerService.getRecordsByEmail(email, 1, false);
+        legacyRecords.add(new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-04T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-04T17:00"), email));
+        ReflectionTestUtils.setField(cached, "writeDeadlineNanos", System.nanoTime() - 1);
+        int appended = timeTrackerService.syncTail(email);
+        List<TimeRecord> records = timeTrackerService.getRecordsByEmail(email, 1, false);
+
+        // Assert
+        assertFalse(cached.isStale());
+        assertEquals(1, appended);
+        assertEquals(legacyRecords, records);
+        assertEquals(List.of(0, 3), queriedOffsets);
+        assertEquals(-1, timeTrackerService.syncTail("unknown@example.com"));
+    }
+
+    @Test
+    public void testRenewedEntryRefetchesItsLastRecordAndStartsOverIfItChanged() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 10);
+        List<TimeRecord> legacyRecords = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            legacyRecords.add(new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-0" + day + "T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-0" + day + "T17:00"), email));
+        }
+        List<Integer> queriedOffsets = new ArrayList<>();
+        mockRecordsResponse(url -> {
+            int offset = Integer.parseInt(UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("offset"));
+            queriedOffsets.add(offset);
+            return legacyRecords.subList(Math.min(offset, legacyRecords.size()), legacyRecords.size()).toArray(new TimeRecord[0]);
+        });
+        timeTrackerService.getRecordsByEmail(email, 1, false);
+        RecordsCache recordsByEmail = (RecordsCache) ReflectionTestUtils.getField(timeTrackerService, "recordsByEmail");
+        EmployeeRecords cached = recordsByEmail.get(email);
+
+        // Act
+        legacyRecords.add(new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-04T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-04T17:00"), email));
+        ReflectionTestUtils.setField(cached, "writeDeadlineNanos", System.nanoTime() - 1);
+        List<TimeRecord> unchanged = timeTrackerService.getRecordsByEmail(email, 1, false);
+        legacyRecords.set(3, new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-04T10:00"), Utils.toLegacyResponseTimeFormat("2023-01-04T17:00"), email));
+        ReflectionTestUtils.setField(cached, "writeDeadlineNanos", System.nanoTime() - 1);
+        List<TimeRecord> changed = timeTrackerService.getRecordsByEmail(email, 1, false);
+
+        // Assert
+        assertEquals(4, unchanged.size());
+        assertEquals(legacyRecords, changed);
+        assertEquals(List.of(0, 2, 3, 0), queriedOffsets);
+        assertFalse(cached.isTailUnverified());
+    }
+
+    @Test
+    public void testNullEntriesDoNotShiftLaterFetches() {
+        // Arrange
+        String email = "test@example.com";
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        ReflectionTestUtils.setField(cacheFiller(), "recordsPerPage", 2);
+        TimeRecord[] legacyRecords = new TimeRecord[5];
+        for (int day = 1; day <= 5; day++) {
+            legacyRecords[day - 1] = day == 2 ? null
+                    : new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-0" + day + "T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-0" + day + "T17:00"), email);
+        }
+        List<Integer> queriedOffsets = new ArrayList<>();
+        mockRecordsResponse(url -> {
+            MultiValueMap<String, String> params = UriComponentsBuilder.fromUriString(url).build().getQueryParams();
+            int offset = Integer.parseInt(params.getFirst("offset"));
+            int length = Integer.parseInt(params.getFirst("length"));
+            queriedOffsets.add(offset);
+            return Arrays.copyOfRange(legacyRecords, Math.min(offset, 5), Math.min(offset + length, 5));
+        });
+
+        // Act
+        List<TimeRecord> firstPage = timeTrackerService.getRecordsByEmail(email, 1, false);
+        List<TimeRecord> secondPage = timeTrackerService.getRecordsByEmail(email, 2, false);
+
+        // Assert
+        assertEquals(List.of(legacyRecords[0], legacyRecords[2]), firstPage);
+        assertEquals(List.of(legacyRecords[3], legacyRecords[4]), secondPage);
+        assertEquals(List.of(0, 2, 3), queriedOffsets);
+    }
+
+    @Test
+    public void testRecordsPageEndsBeforeProvisionalRecords() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        TimeRecord existing = new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email);
+        mockRecordsResponse(url -> new TimeRecord[]{existing});
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(), eq(String.class))).thenReturn(
+                new ResponseEntity<>("SUBMIT_SUCCESS", null, HttpStatus.OK));
+        timeTrackerService.getRecordsPage(email, 0, 10);
+        timeTrackerService.recordTime(email, "2023-01-02T09:00", "2023-01-02T17:00");
+
+        // Act
+        RecordsPage page = timeTrackerService.getRecordsPage(email, 0, 10);
+
+        // Assert
+        assertEquals(2, page.getRecords().size());
+        assertEquals(1, page.getNextOffset());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    public void testRecordsPageOffsetsSkipNullEntries() {
+        // Arrange
+        timeTrackerService = newService(new ReadAheadPrefetcher(false, 0, 0, 1, 1));
+        String email = "test@example.com";
+        TimeRecord first = new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-01T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-01T17:00"), email);
+        TimeRecord second = new TimeRecord(Utils.toLegacyResponseTimeFormat("2023-01-02T09:00"), Utils.toLegacyResponseTimeFormat("2023-01-02T17:00"), email);
+        mockRecordsResponse(url -> url.contains("offset=0&") ? new TimeRecord[]{first, null, second} : new TimeRecord[0]);
+
+        // Act
+        RecordsPage firstPage = timeTrackerService.getRecordsPage(email, 0, 1);
+        RecordsPage secondPage = timeTrackerService.getRecordsPage(email, firstPage.getNextOffset(), 10);
+
+        // Assert
+        assertEquals(1, firstPage.getNextOffset());
+        assertTrue(firstPage.isHasMore());
+        assertEquals(1, secondPage.getRecords().size());
+        assertEquals(second.getStart(), secondPage.getRecords().get(0).getStart());
+        assertEquals(2, secondPage.getNextOffset());
+        assertFalse(secondPage.isHasMore());
+    }
+
+    @Test
+    public void testCachedRecordsVersionDoesNotCreateEntries() {
+        // Arrange
+        String email = "unknown@example.com";
+        RecordsCache recordsByEmail = (RecordsCache) ReflectionTestUtils.getField(timeTrackerService, "recordsByEmail");
+
+        // Act
+        String version = timeTrackerService.getCachedRecordsVersion(email, 0, 10);
+
+        // Assert
+        assertNull(version);
+        assertNull(recordsByEmail.get(email));
+    }
+
+    /**
+     * Builds a service on default components, answering legacy calls with the mocked RestTemplate.
+     */
+    private TimeTrackerService newService(ReadAheadPrefetcher prefetcher) {
+        return newService(prefetcher, new TimeTrackerMetrics());
+    }
+
+    private TimeTrackerService newService(ReadAheadPrefetcher prefetcher, TimeTrackerMetrics metrics) {
+        LegacyServiceClient legacyClient = new LegacyServiceClient();
+        legacyClient.setRestTemplate(restTemplate);
+        RecordsCache recordsCache = new RecordsCache();
+        TailSyncer tailSyncer = new TailSyncer();
+        CacheFiller cacheFiller = new CacheFiller(10, 5, 5, 10000, recordsCache, new UserExistenceCache(), prefetcher, tailSyncer, metrics);
+        return new TimeTrackerService(recordsCache, cacheFiller, prefetcher, new PageRangeFetcher(),
+                new Revalidator(), new RecordExporter(1000, legacyClient, metrics), new RecordImporter(), new TeamFetcher(),
+                new HoursSummarizer(recordsCache, cacheFiller), tailSyncer, new WriteBehindQueue(), metrics, legacyClient, new PeerClient());
+    }
+
+    /**
+     * Returns the cache filler of the service under test, whose paging settings tests adjust.
+     */
+    private CacheFiller cacheFiller() {
+        return (CacheFiller) ReflectionTestUtils.getField(timeTrackerService, "cacheFiller");
+    }
+
+    /**
+     * Stubs the legacy records query to answer with the JSON encoding of the records for the requested URL.
+     */
+    private void mockRecordsResponse(Function<String, TimeRecord[]> recordsByUrl) {
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> {
+                    List<Map<String, String>> json = new ArrayList<>();
+                    for (TimeRecord record : recordsByUrl.apply(invocation.getArgument(0))) {
+                        json.add(record == null ? null : Map.of("start", record.getStart(), "end", record.getEnd(), "email", record.getEmail()));
+                    }
+                    MockClientHttpResponse response = new MockClientHttpResponse(new ObjectMapper().writeValueAsBytes(json), HttpStatus.OK);
+                    ResponseExtractor<?> extractor = invocation.getArgument(3);
+                    return extractor.extractData(response);
+                });
+    }
+
+    private void verifyRecordsQueries(int count) {
+        verify(restTemplate, times(count)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class));
+    }
+}
@@ -0,0 +1,77 @@
+package com.timetracker.service;
+
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.Submission;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFailedSubmissionIsRetried() throws Exception {
+        // Arrange
+        WriteBehindQueue queue = new WriteBehindQueue(true, 10, 1, 3, 1, 1, 60, tempDir.resolve("spool.jsonl").toString(), new TimeTrackerMetrics());
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch sent = new CountDownLatch(1);
+        queue.start(submission -> {
+            if (attempts.incrementAndGet() < 2) {
+                throw new IllegalStateException("Legacy service unavailable");
+            }
+            sent.countDown();
+        });
+
+        // Act
+        Submission submission = queue.enqueue("test@example.com", "2023-01-01T09:00", "2023-01-01T17:00");
+
+        // Assert
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        waitUntilFinished(submission);
+        assertEquals("SUBMIT_SUCCESS", queue.get(submission.getId()).getStatus());
+        assertEquals(2, submission.getAttempts());
+        queue.shutdown();
+    }
+
+    @Test
+    public void testUnsentSubmissionsAreSpooledAcrossRestart() throws Exception {
+        // Arrange
+        Path spoolFile = tempDir.resolve("spool.jsonl");
+        WriteBehindQueue first = new WriteBehindQueue(true, 10, 1, 100, 60000, 60000, 60, spoolFile.toString(), new TimeTrackerMetrics());
+        first.start(submission -> {
+            throw new IllegalStateException("Legacy service unavailable");
+        });
+        Submission submission = first.enqueue("test@example.com", "2023-01-01T09:00", "2023-01-01T17:00");
+        while (submission.getAttempts() == 0) {
+            Thread.sleep(10);
+        }
+
+        // Act
+        first.shutdown();
+        WriteBehindQueue second = new WriteBehindQueue(true, 10, 1, 3, 1, 1, 60, spoolFile.toString(), new TimeTrackerMetrics());
+        CountDownLatch sent = new CountDownLatch(1);
+        second.start(resent -> sent.countDown());
+
+        // Assert
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertFalse(Files.exists(spoolFile));
+        assertNotNull(second.get(submission.getId()));
+        second.shutdown();
+    }
+
+    private static void waitUntilFinished(Submission submission) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!submission.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
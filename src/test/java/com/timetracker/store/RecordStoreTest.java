@@ -0,0 +1,104 @@
+package com.timetracker.store;
+
+import com.timetracker.metrics.TimeTrackerMetrics;
+import com.timetracker.model.TimeRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecordStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testStoredRecordsAreLoadedAfterRestart() {
+        // Arrange
+        String email = "test@example.com";
+        List<TimeRecord> records = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            records.add(new TimeRecord(String.format("2023-01-01T%02d:00:00.000+0000", i % 24),
+                    String.format("2023-01-01T%02d:30:00.000+0000", i % 24), email));
+        }
+        records.add(new TimeRecord(null, "2023-01-02T10:00:00.000+0000", null));
+
+        RecordStore store = new RecordStore(true, tempDir.toString(), 256, 60, 10000, new TimeTrackerMetrics());
+        store.appendAt(email, 0, records.subList(0, 200));
+        store.appendAt(email, 150, records.subList(150, records.size()));
+        store.close();
+
+        // Act
+        RecordStore restarted = new RecordStore(true, tempDir.toString(), 256, 60, 10000, new TimeTrackerMetrics());
+        List<TimeRecord> loaded = restarted.load(email);
+
+        // Assert
+        assertEquals(records, loaded);
+        assertEquals(records.size(), restarted.storedCount(email));
+        restarted.close();
+    }
+
+    @Test
+    public void testUnknownEmailHasNoRecords() {
+        // Arrange
+        RecordStore store = new RecordStore(true, tempDir.toString(), 1, 60, 10000, new TimeTrackerMetrics());
+        store.appendAt("a@example.com", 0, Arrays.asList(
+                new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", "a@example.com")));
+
+        // Act
+        List<TimeRecord> loaded = store.load("b@example.com");
+
+        // Assert
+        assertTrue(loaded.isEmpty());
+        assertEquals(1, store.storedCount("a@example.com"));
+        store.close();
+    }
+
+    @Test
+    public void testOldestLogsPastTheLimitAndDeletedLogsAreDropped() throws InterruptedException {
+        // Arrange
+        RecordStore store = new RecordStore(true, tempDir.toString(), 256, 60, 2, new TimeTrackerMetrics());
+        String[] emails = {"a@example.com", "b@example.com", "c@example.com"};
+        for (String email : emails) {
+            store.appendAt(email, 0, Arrays.asList(
+                    new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email)));
+            Thread.sleep(5);
+        }
+
+        // Act
+        store.deleteExpired();
+        store.delete("c@example.com");
+
+        // Assert
+        assertEquals(0, store.storedCount("a@example.com"));
+        assertEquals(1, store.storedCount("b@example.com"));
+        assertEquals(0, store.storedCount("c@example.com"));
+        assertTrue(store.load("c@example.com").isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void testLogsOlderThanTheMaximumAgeAreDiscarded() throws InterruptedException {
+        // Arrange
+        String email = "test@example.com";
+        RecordStore store = new RecordStore(true, tempDir.toString(), 256, 0, 10000, new TimeTrackerMetrics());
+        store.appendAt(email, 0, Arrays.asList(
+                new TimeRecord("2023-01-01T09:00:00.000+0000", "2023-01-01T17:00:00.000+0000", email)));
+        store.close();
+        Thread.sleep(5);
+
+        // Act
+        RecordStore restarted = new RecordStore(true, tempDir.toString(), 256, 0, 10000, new TimeTrackerMetrics());
+        List<TimeRecord> loaded = restarted.load(email);
+
+        // Assert
+        assertTrue(loaded.isEmpty());
+        restarted.close();
+    }
+}
@@ -0,0 +1,55 @@
+package com.timetracker.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UtilsTest {
+
+    private final DateTimeFormatter legacyResponseFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'+0000'");
+
+    @Test
+    public void testParseLegacyEpochMillisMatchesFormatter() {
+        // Arrange
+        String[] times = {
+                "1970-01-01T00:00:00.000+0000",
+                "2023-01-01T09:00:00.000+0000",
+                "2024-02-29T23:59:59.999+0000",
+                "2000-12-31T12:34:56.789+0000",
+                "1969-07-20T20:17:40.000+0000"
+        };
+
+        for (String time : times) {
+            // Act
+            long parsed = Utils.parseLegacyEpochMillis(time);
+
+            // Assert
+            long expected = LocalDateTime.parse(time, legacyResponseFormatter).toInstant(ZoneOffset.UTC).toEpochMilli();
+            assertEquals(expected, parsed, time);
+        }
+    }
+
+    @Test
+    public void testParseLegacyEpochMillisRejectsMalformedInput() {
+        // Arrange
+        String[] times = {
+                null,
+                "",
+                "2023-01-01T09:00",
+                "2023-13-01T09:00:00.000+0000",
+                "2023-02-29T09:00:00.000+0000",
+                "2023-01-01T24:00:00.000+0000",
+                "2023-01-01T09:00:00.000+0100",
+                "2023-01-0xT09:00:00.000+0000"
+        };
+
+        for (String time : times) {
+            // Act & Assert
+            assertEquals(Utils.INVALID_TIME, Utils.parseLegacyEpochMillis(time), String.valueOf(time));
+        }
+    }
+}